@@ -5,9 +5,13 @@ package it.unicam.cs.asdl2223.es10;
 
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Realizza un insieme tramite una tabella hash con indirizzamento primario (la
@@ -23,6 +27,17 @@ import java.util.Set;
  * eccede quello di default la tabella viene raddoppiata e viene fatto un
  * riposizionamento di tutti gli elementi.
  * 
+ * In modalità di ridimensionamento incrementale, scelta nel costruttore, il
+ * riposizionamento non avviene in un solo passo: la tabella vecchia e quella
+ * nuova coesistono e ogni add o remove sposta nella tabella nuova pochi bucket
+ * della vecchia, in ordine di posizione, finché la vecchia non è vuota. In
+ * questo modo nessuna singola operazione paga il costo dell'intero
+ * riposizionamento. Durante lo spostamento un elemento il cui bucket nella
+ * tabella vecchia è già stato spostato si trova (o viene inserito) nella
+ * tabella nuova, altrimenti nella vecchia, per cui ogni ricerca scorre
+ * comunque una sola lista di collisione. contains non sposta bucket, in modo
+ * da non invalidare gli iteratori aperti.
+ * 
  * @author Template: Luca Tesei, Implementazione: collettiva
  *
  */
@@ -39,6 +54,16 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	 */
 	private static final double LOAD_FACTOR = 0.75;
 
+	// capacità massima, la più grande potenza di due rappresentabile
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/*
+	 * Numero di bucket non vuoti spostati da ogni operazione durante un
+	 * ridimensionamento incrementale; i bucket vuoti esaminati per trovarli
+	 * sono al più dieci volte tanti.
+	 */
+	private static final int REHASH_STEP = 4;
+
 	/*
 	 * Numero di elementi effettivamente presenti nella hash table in questo
 	 * momento. ATTENZIONE: questo valore è diverso dalla capacity, che è la
@@ -76,6 +101,21 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	 */
 	private Object[] table;
 
+	/*
+	 * Durante un ridimensionamento incrementale è la tabella di capacità
+	 * doppia in cui vengono spostati i bucket di table, altrimenti è null.
+	 */
+	private Object[] newTable;
+
+	/*
+	 * Durante un ridimensionamento incrementale i bucket di table in posizione
+	 * minore di rehashIndex sono già stati spostati in newTable e sono vuoti.
+	 */
+	private int rehashIndex;
+
+	// se true la tabella viene ridimensionata incrementalmente
+	private final boolean incrementalResize;
+
 	/*
 	 * Funzion di hash primaria usata da questa hash table. Va inizializzata nel
 	 * costruttore all'atto di creazione dell'oggetto.
@@ -90,9 +130,12 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	// I due metodi seguenti sono di comodo per gestire la capacity e la soglia
 	// oltre la quale bisogna fare il resize.
 
-	/* Numero di elementi della tabella corrente */
+	/*
+	 * Numero di elementi della tabella corrente; durante un ridimensionamento
+	 * incrementale è la capacità della tabella nuova
+	 */
 	private int getCurrentCapacity() {
-		return this.table.length;
+		return this.newTable == null ? this.table.length : this.newTable.length;
 	};
 
 	/*
@@ -108,12 +151,34 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	 * caricamento di default.
 	 */
 	public CollisionListResizableHashTable(PrimaryHashFunction phf) {
+		this(phf, false);
+	}
+
+	/**
+	 * Costruisce una Hash Table con capacità iniziale di default e fattore di
+	 * caricamento di default, scegliendo come ridimensionarla.
+	 * 
+	 * @param phf               la funzione di hash primario
+	 * @param incrementalResize se true la tabella viene ridimensionata
+	 *                          spostando pochi bucket a ogni add o remove,
+	 *                          se false riposizionando tutti gli elementi
+	 *                          in un solo passo
+	 */
+	public CollisionListResizableHashTable(PrimaryHashFunction phf, boolean incrementalResize) {
 		this.phf = phf;
+		this.incrementalResize = incrementalResize;
 		this.table = new Object[INITIAL_CAPACITY];
 		this.size = 0;
 		this.modCount = 0;
 	}
 
+	/**
+	 * @return true se la tabella viene ridimensionata incrementalmente
+	 */
+	public boolean isIncrementalResize() {
+		return this.incrementalResize;
+	}
+
 	@Override
 	public int size() {
 		return this.size;
@@ -129,14 +194,12 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	public boolean contains(Object o) {
 		if (o == null)
 			throw new NullPointerException();
-		//mi salvo la posizione nell'hashtable dove dovrebbe trovarsi o
-		int itemPosition = this.phf.hash(o.hashCode(), this.getCurrentCapacity());
-		//se è vuota torno false
-		if (this.table[itemPosition] == null)
-			return false;
-		//altrimenti prendo il primo nodo nella posizione e verifico se 
+		//mi salvo la tabella e la posizione dove dovrebbe trovarsi o
+		Object[] buckets = this.tableFor(o.hashCode());
+		int itemPosition = this.phf.hash(o.hashCode(), buckets.length);
+		//prendo il primo nodo nella posizione e verifico se 
 		//lui o i nodi successivi siano uguali ad o in accordo con equals
-		Node<E> myNode = (Node<E>) this.table[itemPosition];
+		Node<E> myNode = (Node<E>) buckets[itemPosition];
 		while (myNode != null) {
 			if (o.equals(myNode.item))
 				return true;
@@ -150,6 +213,87 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 		return new Itr();
 	}
 
+	/**
+	 * Restituisce uno spliterator fail-fast che divide gli elementi per
+	 * intervalli di bucket, per cui gli stream paralleli sull'insieme
+	 * suddividono il lavoro fra i thread scorrendo direttamente la tabella.
+	 * Lo spliterator si lega alla tabella al primo uso e ha le caratteristiche
+	 * SIZED, DISTINCT e NONNULL; le parti ottenute dividendolo stimano il
+	 * proprio numero di elementi come metà di quello della parte divisa.
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return new TableSpliterator(0, -1, 0, 0);
+	}
+
+	/**
+	 * Esegue l'azione su ogni elemento scorrendo direttamente i bucket, senza
+	 * creare un iteratore.
+	 * 
+	 * @throws ConcurrentModificationException se l'azione modifica la tabella
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		if (action == null)
+			throw new NullPointerException();
+		int numeroModificheAtteso = this.modCount;
+		for (Object[] buckets : new Object[][] { this.table, this.newTable }) {
+			if (buckets == null)
+				continue;
+			for (Object bucket : buckets)
+				for (Node<E> node = (Node<E>) bucket; node != null; node = node.next)
+					action.accept(node.item);
+		}
+		if (numeroModificheAtteso != this.modCount)
+			throw new ConcurrentModificationException("Tabella modificata durante l'iterazione");
+	}
+
+	/**
+	 * Rimuove gli elementi che soddisfano il predicato con una sola scansione
+	 * dei bucket, staccando i nodi dalle liste man mano che li trova.
+	 * 
+	 * @throws ConcurrentModificationException se il predicato modifica la
+	 *                                         tabella
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		if (filter == null)
+			throw new NullPointerException();
+		int numeroModificheAtteso = this.modCount;
+		int removed = 0;
+		// size e modCount vengono aggiornati anche se il predicato lancia una
+		// eccezione dopo che alcuni nodi sono già stati staccati
+		try {
+			for (Object[] buckets : new Object[][] { this.table, this.newTable }) {
+				if (buckets == null)
+					continue;
+				for (int i = 0; i < buckets.length; i++) {
+					Node<E> previous = null;
+					for (Node<E> node = (Node<E>) buckets[i]; node != null; node = node.next) {
+						if (filter.test(node.item)) {
+							if (previous == null)
+								buckets[i] = node.next;
+							else
+								previous.next = node.next;
+							removed++;
+						} else
+							previous = node;
+					}
+				}
+			}
+		} finally {
+			if (removed > 0) {
+				this.size -= removed;
+				this.modCount++;
+			}
+		}
+		if (numeroModificheAtteso + (removed > 0 ? 1 : 0) != this.modCount)
+			throw new ConcurrentModificationException("Tabella modificata durante l'iterazione");
+		return removed > 0;
+	}
+
 	@Override
 	public Object[] toArray() {
 		throw new UnsupportedOperationException("Operazione non supportata");
@@ -165,49 +309,118 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	public boolean add(E e) {
 		if (e == null)
 			throw new NullPointerException();
-		//mi salvo la posizione nell'hashtable dove si dovrà trovare e
-		int itemPosition = this.phf.hash(e.hashCode(), this.getCurrentCapacity());
-		boolean added = false;
-		//se la sua pos è vuota aggiungo il nodo
-		if (this.table[itemPosition] == null) {
-			this.table[itemPosition] = new Node<E>(e, null);
-			added = true;
-		} else {
-			//se non è vuota verifico che non sia gia presente
-			if (this.contains(e))
+		this.rehashStep();
+		//mi salvo la tabella e la posizione dove si dovrà trovare e
+		Object[] buckets = this.tableFor(e.hashCode());
+		int itemPosition = this.phf.hash(e.hashCode(), buckets.length);
+		//verifico che non sia gia presente scorrendo la lista una sola volta
+		Node<E> head = (Node<E>) buckets[itemPosition];
+		for (Node<E> node = head; node != null; node = node.next)
+			if (e.equals(node.item))
 				return false;
-			//poi lo inserisco in testa alla lista
-			Node<E> head = (Node<E>) this.table[itemPosition];
-			this.table[itemPosition] = new Node<E>(e, head);
-			added = true;
-		}
-		if (added) {
-			this.size++;
-			this.modCount++;
-		}
-		//verifico la size ed in caso richiamo resize
-		if (this.size > this.getCurrentThreshold())
+		//poi lo inserisco in testa alla lista
+		buckets[itemPosition] = new Node<E>(e, head);
+		this.size++;
+		this.modCount++;
+		//verifico la size ed in caso richiamo resize, a meno che non sia già
+		//in corso un ridimensionamento incrementale
+		if (this.newTable == null && this.size > this.getCurrentThreshold())
 			resize();
-		return added;
+		return true;
+	}
+
+	/*
+	 * Restituisce la tabella che contiene il bucket degli elementi con un certo
+	 * codice hash: durante un ridimensionamento incrementale è la tabella
+	 * nuova se il loro bucket nella vecchia è già stato spostato
+	 */
+	private Object[] tableFor(int hashCode) {
+		if (this.newTable != null && this.phf.hash(hashCode, this.table.length) < this.rehashIndex)
+			return this.newTable;
+		return this.table;
 	}
 
 	/*
 	 * Raddoppia la tabella corrente e riposiziona tutti gli elementi. Da chiamare
-	 * quando this.size diventa maggiore di getCurrentThreshold()
+	 * quando this.size diventa maggiore di getCurrentThreshold(). In modalità
+	 * incrementale crea solo la tabella nuova e sposta i primi bucket.
 	 */
 	private void resize() {
 		//creo una nuova tabella grande il doppio
-		Object[] newTable = new Object[this.getCurrentCapacity() * 2];
-		//creo un iteratore per scorrere la lista
-		Iterator<E> iter = this.iterator();
-		//finche cè un next lo copio nella nuova tabella
-		while (iter.hasNext()) {
-			E item = iter.next();
-			int pos = this.phf.hash(item.hashCode(), newTable.length);
-			newTable[pos] = item;
+		this.newTable = new Object[this.table.length * 2];
+		this.rehashIndex = 0;
+		if (this.incrementalResize) {
+			this.rehashStep();
+			return;
+		}
+		//sposto tutti i bucket nella nuova tabella
+		while (this.newTable != null)
+			this.moveBucket();
+	}
+
+	/*
+	 * Porta la tabella alla più piccola capacità, non minore di quella
+	 * corrente, che contiene n elementi senza superare il fattore di
+	 * caricamento, riposizionando gli elementi una sola volta anche se servono
+	 * più raddoppi. Un eventuale ridimensionamento incrementale in corso viene
+	 * prima completato.
+	 */
+	private void ensureCapacity(int n) {
+		int capacity = this.getCurrentCapacity();
+		while (capacity < MAXIMUM_CAPACITY && n > (int) (capacity * LOAD_FACTOR))
+			capacity <<= 1;
+		if (capacity == this.getCurrentCapacity())
+			return;
+		while (this.newTable != null)
+			this.moveBucket();
+		this.newTable = new Object[capacity];
+		this.rehashIndex = 0;
+		while (this.newTable != null)
+			this.moveBucket();
+	}
+
+	/*
+	 * Se è in corso un ridimensionamento incrementale sposta nella tabella
+	 * nuova i prossimi REHASH_STEP bucket non vuoti, esaminando al più
+	 * 10 * REHASH_STEP bucket
+	 */
+	private void rehashStep() {
+		int moved = 0;
+		for (int visited = 0; this.newTable != null && moved < REHASH_STEP
+				&& visited < 10 * REHASH_STEP; visited++) {
+			if (this.table[this.rehashIndex] != null)
+				moved++;
+			this.moveBucket();
+		}
+	}
+
+	/*
+	 * Sposta i nodi del bucket rehashIndex della tabella vecchia nella tabella
+	 * nuova, senza creare nodi; quando la tabella vecchia è vuota la tabella
+	 * nuova diventa quella corrente. Lo spostamento conta come modifica per
+	 * gli iteratori, anche se fatto da un add o remove che non cambia gli
+	 * elementi.
+	 */
+	@SuppressWarnings("unchecked")
+	private void moveBucket() {
+		Node<E> node = (Node<E>) this.table[this.rehashIndex];
+		this.table[this.rehashIndex] = null;
+		if (node != null)
+			this.modCount++;
+		while (node != null) {
+			Node<E> next = node.next;
+			int pos = this.phf.hash(node.item.hashCode(), this.newTable.length);
+			node.next = (Node<E>) this.newTable[pos];
+			this.newTable[pos] = node;
+			node = next;
+		}
+		this.rehashIndex++;
+		if (this.rehashIndex == this.table.length) {
+			//faccio puntare il rif. della tabella alla tabella nuova
+			this.table = this.newTable;
+			this.newTable = null;
+			this.rehashIndex = 0;
 		}
-		//faccio puntare il rif. della tabella alla tabella nuova
-		this.table = newTable;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -215,20 +428,22 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	public boolean remove(Object o) {
 		if (o == null)
 			throw new NullPointerException();
-		//posizione in cui si deve trovare l'oggetto
-		int pos = this.phf.hash(o.hashCode(), this.getCurrentCapacity());
+		this.rehashStep();
+		//tabella e posizione in cui si deve trovare l'oggetto
+		Object[] buckets = this.tableFor(o.hashCode());
+		int pos = this.phf.hash(o.hashCode(), buckets.length);
 		//se è vuoto ritorno false
-		if (this.table[pos] == null)
+		if (buckets[pos] == null)
 			return false;
 		Node<E> previous = null;
-		Node<E> list = (Node<E>) this.table[pos];
+		Node<E> list = (Node<E>) buckets[pos];
 		//quando trovo l'oggetto da rimuovere imposto il successivo del 
 		//precedente uguale al successivo di quello da rimuovere.
 		//se quello da rimuovere era il primo imposto solamente il secondo alla testa
 		do {
 			if (o.equals(list.item)) {
 				if (previous == null) {
-					this.table[pos] = list.next;
+					buckets[pos] = list.next;
 				} else
 					previous.next = list.next;
 				this.size--;
@@ -259,10 +474,19 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 		return true;
 	}
 
+	/**
+	 * Aggiunge tutti gli elementi della collezione. Prima degli inserimenti la
+	 * tabella viene portata, con un solo riposizionamento, alla capacità
+	 * sufficiente a contenere anche tutti gli elementi della collezione, per
+	 * cui gli inserimenti non causano raddoppi; se la collezione contiene
+	 * molti elementi già presenti la capacità può risultare maggiore del
+	 * necessario.
+	 */
 	@Override
 	public boolean addAll(Collection<? extends E> c) {
 		if (c == null)
 			throw new NullPointerException();
+		this.ensureCapacity((int) Math.min((long) this.size + c.size(), Integer.MAX_VALUE));
 		boolean changed = false;
 		Iterator<? extends E> iter = c.iterator();
 		while (iter.hasNext()) {
@@ -274,15 +498,35 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 		return changed;
 	}
 
+	/**
+	 * Mantiene solo gli elementi contenuti nella collezione, con una sola
+	 * scansione dei bucket che chiede alla collezione se contiene ogni
+	 * elemento. Se la collezione non è un Set i suoi elementi vengono prima
+	 * copiati in un HashSet, in modo che ogni domanda costi O(1) e non
+	 * O(|c|).
+	 */
 	@Override
 	public boolean retainAll(Collection<?> c) {
-		throw new UnsupportedOperationException("Operazione non supportata");
+		if (c == null)
+			throw new NullPointerException();
+		Collection<?> keep = c instanceof Set ? c : new HashSet<Object>(c);
+		return this.removeIf(item -> !keep.contains(item));
 	}
 
+	/**
+	 * Rimuove gli elementi contenuti nella collezione. Se la collezione è un
+	 * Set grande almeno quanto l'insieme fa una sola scansione dei bucket
+	 * chiedendo alla collezione se contiene ogni elemento, altrimenti ne
+	 * rimuove uno alla volta gli elementi.
+	 * 
+	 * @throws NullPointerException se la collezione è nulla o contiene null
+	 */
 	@Override
 	public boolean removeAll(Collection<?> c) {
 		if (c == null)
 			throw new NullPointerException();
+		if (c instanceof Set && c.size() >= this.size && !containsNull(c))
+			return this.removeIf(c::contains);
 		boolean changed = false;
 		Iterator<?> iter = c.iterator();
 		while (iter.hasNext()) {
@@ -294,12 +538,27 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 		return changed;
 	}
 
+	/*
+	 * Determina se una collezione contiene null; le collezioni che non
+	 * ammettono null possono lanciare NullPointerException invece di
+	 * rispondere false
+	 */
+	private static boolean containsNull(Collection<?> c) {
+		try {
+			return c.contains(null);
+		} catch (NullPointerException e) {
+			return false;
+		}
+	}
+
 	@Override
 	public void clear() {
 		// Ritorno alla situazione iniziale
 		this.table = new Object[INITIAL_CAPACITY];
+		this.newTable = null;
+		this.rehashIndex = 0;
 		this.size = 0;
-		this.modCount = 0;
+		this.modCount++;
 	}
 
 	/*
@@ -326,68 +585,195 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 	 * L'iteratore deve essere fail-fast, cioè deve lanciare una eccezione
 	 * ConcurrentModificationException se a una chiamata di next() si "accorge" che
 	 * la tabella è stata cambiata rispetto a quando l'iteratore è stato creato.
+	 * 
+	 * Durante un ridimensionamento incrementale vengono scorse prima la
+	 * tabella vecchia e poi la nuova, che contengono elementi diversi.
 	 */
 	private class Itr implements Iterator<E> {
-		private int lastPosition;
-		private int lastNodeIdx;
+		// la tabella che si sta scorrendo
+		private Object[] buckets;
+		// il prossimo bucket da esaminare
+		private int nextBucket;
+		// il prossimo nodo da restituire, null se non ce ne sono altri
+		private Node<E> nextNode;
 		private int numeroModificheAtteso;
 
 		private Itr() {
 			this.numeroModificheAtteso = modCount;
-			this.lastPosition = 0;
-			this.lastNodeIdx = 0;
+			this.buckets = table;
+			this.nextBucket = 0;
+			this.advance();
 		}
 
+		/*
+		 * Porta nextNode al primo nodo del prossimo bucket non vuoto, passando
+		 * alla tabella nuova alla fine di quella vecchia
+		 */
 		@SuppressWarnings("unchecked")
-		@Override
-		public boolean hasNext() {
-			for (int i = 0; i < CollisionListResizableHashTable.this.table.length; i++) {
-				Node<E> head = (Node<E>) CollisionListResizableHashTable.this.table[i];
-				if (head == null) {
-					continue;
-				}
-				if (lastNodeIdx == 0 && head != null) {
-					return true;
-				}
-				for (int j = 1; head.next != null;) {
-					head = head.next;
-					if (j == lastNodeIdx && head.next != null) {
-						return true;
-					}
-					if (j == lastNodeIdx && head.next == null) {
-						return false;
-					}
+		private void advance() {
+			while (this.nextNode == null) {
+				if (this.nextBucket == this.buckets.length) {
+					if (this.buckets == newTable || newTable == null)
+						return;
+					this.buckets = newTable;
+					this.nextBucket = 0;
 				}
+				this.nextNode = (Node<E>) this.buckets[this.nextBucket++];
 			}
-			return false;
 		}
 
-		@SuppressWarnings("unchecked")
+		@Override
+		public boolean hasNext() {
+			return this.nextNode != null;
+		}
+
 		@Override
 		public E next() {
 			if (this.numeroModificheAtteso != CollisionListResizableHashTable.this.modCount) {
 				throw new ConcurrentModificationException("Lista modificata durante l'iterazione");
 			}
 			if (!hasNext())
-				throw new NoSuchElementException("Richiesta di next quando hasNext Ã¨ falso");
-			Node<E> head = (Node<E>) CollisionListResizableHashTable.this.table[lastPosition];
-			while (head == null) {
-				lastPosition++;
-				lastNodeIdx = 0;
-				head = (Node<E>) CollisionListResizableHashTable.this.table[lastPosition];
+				throw new NoSuchElementException("Richiesta di next quando hasNext è falso");
+			E item = this.nextNode.item;
+			this.nextNode = this.nextNode.next;
+			this.advance();
+			return item;
+		}
+	}
+
+	/*
+	 * Lunghezze delle liste di collisione dei bucket in uso, usate da
+	 * HashTableStatistics: durante un ridimensionamento incrementale sono i
+	 * bucket non ancora spostati della tabella vecchia seguiti da quelli della
+	 * nuova
+	 */
+	@SuppressWarnings("unchecked")
+	int[] chainLengths() {
+		int from = this.newTable == null ? 0 : this.rehashIndex;
+		int[] lengths = new int[this.table.length - from + (this.newTable == null ? 0 : this.newTable.length)];
+		int i = 0;
+		for (Object[] buckets : new Object[][] { this.table, this.newTable }) {
+			if (buckets == null)
+				continue;
+			for (int j = buckets == this.table ? from : 0; j < buckets.length; j++, i++)
+				for (Node<E> node = (Node<E>) buckets[j]; node != null; node = node.next)
+					lengths[i]++;
+		}
+		return lengths;
+	}
+
+	/*
+	 * Spliterator sui bucket della tabella. I bucket sono numerati di seguito,
+	 * prima quelli della tabella vecchia e poi quelli della nuova, per cui
+	 * durante un ridimensionamento incrementale ogni parte copre un intervallo
+	 * di bucket di una o di entrambe le tabelle. Finché fence è negativo lo
+	 * spliterator non è ancora legato alla tabella.
+	 */
+	private final class TableSpliterator implements Spliterator<E> {
+		private Object[] oldBuckets;
+		private Object[] newBuckets;
+		// il prossimo bucket da esaminare
+		private int index;
+		// il primo bucket che non appartiene a questa parte
+		private int fence;
+		// stima del numero di elementi di questa parte
+		private int est;
+		private int numeroModificheAtteso;
+		// il prossimo nodo da restituire nel bucket corrente
+		private Node<E> current;
+
+		private TableSpliterator(int origin, int fence, int est, int numeroModificheAtteso) {
+			this.index = origin;
+			this.fence = fence;
+			this.est = est;
+			this.numeroModificheAtteso = numeroModificheAtteso;
+		}
+
+		private int getFence() {
+			if (this.fence < 0) {
+				this.oldBuckets = table;
+				this.newBuckets = newTable;
+				this.est = size;
+				this.numeroModificheAtteso = modCount;
+				// i bucket della vecchia già spostati sono vuoti
+				this.index = this.newBuckets == null ? 0 : rehashIndex;
+				this.fence = this.oldBuckets.length + (this.newBuckets == null ? 0 : this.newBuckets.length);
 			}
-			if (lastNodeIdx == 0 && head != null) {
-				lastNodeIdx++;
-				return head.item;
+			return this.fence;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Node<E> bucket(int i) {
+			if (i < this.oldBuckets.length)
+				return (Node<E>) this.oldBuckets[i];
+			return (Node<E>) this.newBuckets[i - this.oldBuckets.length];
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			int hi = this.getFence();
+			int lo = this.index;
+			int mid = (lo + hi) >>> 1;
+			if (lo >= mid || this.current != null)
+				return null;
+			TableSpliterator prefix = new TableSpliterator(lo, mid, this.est >>>= 1, this.numeroModificheAtteso);
+			prefix.oldBuckets = this.oldBuckets;
+			prefix.newBuckets = this.newBuckets;
+			this.index = mid;
+			return prefix;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			int hi = this.getFence();
+			while (this.current != null || this.index < hi) {
+				if (this.current == null)
+					this.current = this.bucket(this.index++);
+				else {
+					E item = this.current.item;
+					this.current = this.current.next;
+					action.accept(item);
+					if (this.numeroModificheAtteso != modCount)
+						throw new ConcurrentModificationException("Tabella modificata durante l'iterazione");
+					return true;
+				}
 			}
-			for (int j = 1; head.next != null;) {
-				head = head.next;
-				if (j == lastNodeIdx && head.next != null) {
-					lastNodeIdx++;
-					return head.item;
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			if (action == null)
+				throw new NullPointerException();
+			int hi = this.getFence();
+			int i = this.index;
+			Node<E> node = this.current;
+			this.index = hi;
+			this.current = null;
+			while (node != null || i < hi) {
+				if (node == null)
+					node = this.bucket(i++);
+				else {
+					action.accept(node.item);
+					node = node.next;
 				}
 			}
-			return null;
+			if (this.numeroModificheAtteso != modCount)
+				throw new ConcurrentModificationException("Tabella modificata durante l'iterazione");
+		}
+
+		@Override
+		public long estimateSize() {
+			this.getFence();
+			return this.est;
+		}
+
+		@Override
+		public int characteristics() {
+			return (this.fence < 0 || this.est == size ? Spliterator.SIZED : 0) | Spliterator.DISTINCT
+					| Spliterator.NONNULL;
 		}
 	}
 
@@ -398,6 +784,13 @@ public class CollisionListResizableHashTable<E> implements Set<E> {
 		return this.table;
 	}
 
+	/*
+	 * Only for JUnit testing purposes.
+	 */
+	protected Object[] getNewTable() {
+		return this.newTable;
+	}
+
 	/*
 	 * Only for JUnit testing purposes.
 	 */
@@ -0,0 +1,420 @@
+package it.unicam.cs.asdl2223.es10;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Realizza un insieme che può essere usato contemporaneamente da più thread
+ * tramite una tabella hash con indirizzamento primario e liste di collisione,
+ * come CollisionListResizableHashTable: la funzione di hash primario viene
+ * passata nel costruttore, gli elementi duplicati (secondo equals) e null non
+ * sono ammessi, la capacità iniziale di default è 16 e la tabella viene
+ * raddoppiata quando il fattore di caricamento supera 0.75.
+ *
+ * Le letture (contains e gli iteratori) non usano lock: i bucket sono letti
+ * con semantica volatile e i nodi non vengono mai ricollegati, ma solo
+ * rimossi dalla loro lista. Le scritture bloccano solo il lock del gruppo di
+ * bucket (stripe) a cui appartiene il bucket modificato, per cui thread che
+ * scrivono in bucket di gruppi diversi non si ostacolano; il numero di lock
+ * cresce con la tabella fino a 1024.
+ *
+ * Il raddoppio è cooperativo: il thread che lo avvia crea la tabella nuova e
+ * i bucket della vecchia vengono spostati a blocchi da tutti i thread che
+ * scrivono nel frattempo, ognuno dei quali prenota il proprio blocco. Ogni
+ * bucket spostato viene sostituito da un nodo di inoltro che rimanda le
+ * operazioni alla tabella nuova; gli elementi vengono copiati in nodi nuovi,
+ * per cui una lettura in corso sulla tabella vecchia vede sempre una lista
+ * integra. Poiché la funzione di hash primario può mandare gli elementi di un
+ * bucket vecchio in qualsiasi bucket nuovo, anche i bucket della tabella nuova
+ * sono protetti dai suoi lock, acquisiti sempre dopo quelli della vecchia.
+ *
+ * Gli iteratori sono debolmente consistenti invece che fail-fast: non
+ * lanciano mai ConcurrentModificationException, restituiscono una sola volta
+ * ogni elemento presente per tutta la durata dell'iterazione e possono
+ * restituire o meno gli elementi aggiunti o rimossi nel frattempo. Anche size
+ * è un valore aggiornato senza sincronizzazione, esatto solo in assenza di
+ * scritture concorrenti.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public class ConcurrentCollisionListHashTable<E> extends AbstractSet<E> implements Set<E> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final double LOAD_FACTOR = 0.75;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	// numero massimo di lock di una tabella
+	private static final int MAXIMUM_LOCKS = 1024;
+
+	// numero di bucket spostati da un thread con una sola prenotazione
+	private static final int TRANSFER_STRIDE = 64;
+
+	// la tabella corrente
+	private volatile Table<E> table;
+
+	/*
+	 * Numero di elementi, come somma di contatori separati per non creare
+	 * contesa fra i thread che scrivono
+	 */
+	private final LongAdder size;
+
+	private final PrimaryHashFunction phf;
+
+	/**
+	 * Costruisce un insieme vuoto con capacità iniziale di default.
+	 *
+	 * @param phf la funzione di hash primario
+	 * @throws NullPointerException se la funzione passata è nulla
+	 */
+	public ConcurrentCollisionListHashTable(PrimaryHashFunction phf) {
+		this(phf, 0);
+	}
+
+	/**
+	 * Costruisce un insieme vuoto con capacità sufficiente a contenere il
+	 * numero di elementi indicato senza raddoppi.
+	 *
+	 * @param phf          la funzione di hash primario
+	 * @param expectedSize il numero di elementi previsto
+	 * @throws NullPointerException     se la funzione passata è nulla
+	 * @throws IllegalArgumentException se il numero di elementi previsto è
+	 *                                  negativo
+	 */
+	public ConcurrentCollisionListHashTable(PrimaryHashFunction phf, int expectedSize) {
+		if (phf == null)
+			throw new NullPointerException("Funzione di hash nulla");
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Numero di elementi previsto negativo");
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < MAXIMUM_CAPACITY && expectedSize > (int) (capacity * LOAD_FACTOR))
+			capacity <<= 1;
+		this.phf = phf;
+		this.table = new Table<E>(capacity);
+		this.size = new LongAdder();
+	}
+
+	@Override
+	public int size() {
+		long s = this.size.sum();
+		return s < 0 ? 0 : (int) Math.min(s, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size.sum() <= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean contains(Object o) {
+		if (o == null)
+			throw new NullPointerException();
+		int h = o.hashCode();
+		Table<E> t = this.table;
+		Node<E> node = t.bins.get(this.phf.hash(h, t.length()));
+		while (node != null) {
+			if (node instanceof ForwardingNode) {
+				// il bucket è stato spostato, continuo nella tabella nuova
+				t = ((ForwardingNode<E>) node).nextTable;
+				node = t.bins.get(this.phf.hash(h, t.length()));
+				continue;
+			}
+			if (node.hash == h && o.equals(node.item))
+				return true;
+			node = node.next;
+		}
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean add(E e) {
+		if (e == null)
+			throw new NullPointerException();
+		int h = e.hashCode();
+		Table<E> t = this.table;
+		while (true) {
+			int i = this.phf.hash(h, t.length());
+			Node<E> head;
+			synchronized (t.lockFor(i)) {
+				head = t.bins.get(i);
+				if (!(head instanceof ForwardingNode)) {
+					for (Node<E> node = head; node != null; node = node.next)
+						if (node.hash == h && e.equals(node.item))
+							return false;
+					t.bins.set(i, new Node<E>(e, h, head));
+				}
+			}
+			if (head instanceof ForwardingNode) {
+				// aiuto a completare lo spostamento e riprovo nella tabella
+				// nuova
+				this.transfer(t);
+				t = ((ForwardingNode<E>) head).nextTable;
+				continue;
+			}
+			this.size.increment();
+			// controllo la soglia solo in caso di collisione, in modo da non
+			// sommare i contatori a ogni inserimento
+			if (head != null && t.next.get() == null && this.size.sum() > t.threshold)
+				this.resize(t);
+			return true;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean remove(Object o) {
+		if (o == null)
+			throw new NullPointerException();
+		int h = o.hashCode();
+		Table<E> t = this.table;
+		while (true) {
+			int i = this.phf.hash(h, t.length());
+			Node<E> head;
+			synchronized (t.lockFor(i)) {
+				head = t.bins.get(i);
+				if (!(head instanceof ForwardingNode)) {
+					// quando trovo l'oggetto da rimuovere imposto il successivo
+					// del precedente uguale al successivo di quello da rimuovere
+					Node<E> previous = null;
+					for (Node<E> node = head; node != null; previous = node, node = node.next) {
+						if (node.hash == h && o.equals(node.item)) {
+							if (previous == null)
+								t.bins.set(i, node.next);
+							else
+								previous.next = node.next;
+							this.size.decrement();
+							return true;
+						}
+					}
+					return false;
+				}
+			}
+			this.transfer(t);
+			t = ((ForwardingNode<E>) head).nextTable;
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+
+	/*
+	 * Avvia il raddoppio della tabella t, se nessun altro thread lo ha già
+	 * avviato, e partecipa allo spostamento dei bucket
+	 */
+	private void resize(Table<E> t) {
+		if (t != this.table || t.length() >= MAXIMUM_CAPACITY)
+			return;
+		if (t.next.get() == null)
+			t.next.compareAndSet(null, new Table<E>(t.length() * 2));
+		this.transfer(t);
+	}
+
+	/*
+	 * Sposta nella tabella nuova i blocchi di bucket di t non ancora prenotati
+	 * da altri thread; chi completa l'ultimo blocco rende corrente la tabella
+	 * nuova
+	 */
+	private void transfer(Table<E> t) {
+		Table<E> nt = t.next.get();
+		ForwardingNode<E> forward = new ForwardingNode<E>(nt);
+		while (true) {
+			int start = t.transferIndex.getAndAdd(TRANSFER_STRIDE);
+			if (start >= t.length())
+				return;
+			int end = Math.min(start + TRANSFER_STRIDE, t.length());
+			for (int i = start; i < end; i++)
+				this.moveBin(t, nt, i, forward);
+			if (t.transferred.addAndGet(end - start) == t.length())
+				this.table = nt;
+		}
+	}
+
+	/*
+	 * Copia i nodi del bucket i di t nella tabella nuova e lo sostituisce con
+	 * il nodo di inoltro
+	 */
+	private void moveBin(Table<E> t, Table<E> nt, int i, ForwardingNode<E> forward) {
+		synchronized (t.lockFor(i)) {
+			for (Node<E> node = t.bins.get(i); node != null; node = node.next) {
+				int j = this.phf.hash(node.hash, nt.length());
+				synchronized (nt.lockFor(j)) {
+					nt.bins.set(j, new Node<E>(node.item, node.hash, nt.bins.get(j)));
+				}
+			}
+			t.bins.set(i, forward);
+		}
+	}
+
+	/*
+	 * Aspetta che lo spostamento dei bucket di t sia completo, partecipando
+	 * finché ci sono blocchi da prenotare
+	 */
+	private void awaitTransfer(Table<E> t) {
+		this.transfer(t);
+		while (t.transferred.get() < t.length())
+			Thread.yield();
+	}
+
+	/*
+	 * Una tabella con i suoi lock e lo stato del suo eventuale raddoppio
+	 */
+	private static final class Table<E> {
+		private final AtomicReferenceArray<Node<E>> bins;
+
+		// il lock del bucket i è locks[i & (locks.length - 1)]
+		private final Object[] locks;
+
+		private final int threshold;
+
+		// la tabella in cui vengono spostati i bucket, null se non è iniziato
+		// un raddoppio
+		private final AtomicReference<Table<E>> next = new AtomicReference<Table<E>>();
+
+		// primo bucket non ancora prenotato per lo spostamento
+		private final AtomicInteger transferIndex = new AtomicInteger();
+
+		// numero di bucket già spostati
+		private final AtomicInteger transferred = new AtomicInteger();
+
+		private Table(int capacity) {
+			this.bins = new AtomicReferenceArray<Node<E>>(capacity);
+			this.locks = new Object[Math.min(capacity, MAXIMUM_LOCKS)];
+			for (int i = 0; i < this.locks.length; i++)
+				this.locks[i] = new Object();
+			this.threshold = (int) (capacity * LOAD_FACTOR);
+		}
+
+		private int length() {
+			return this.bins.length();
+		}
+
+		private Object lockFor(int i) {
+			return this.locks[i & (this.locks.length - 1)];
+		}
+	}
+
+	/*
+	 * Classe per i nodi delle liste di collisione. Il codice hash
+	 * dell'elemento viene memorizzato per evitare di ricalcolarlo durante le
+	 * ricerche e gli spostamenti.
+	 */
+	private static class Node<E> {
+		private final E item;
+		private final int hash;
+		private volatile Node<E> next;
+
+		private Node(E item, int hash, Node<E> next) {
+			this.item = item;
+			this.hash = hash;
+			this.next = next;
+		}
+	}
+
+	/*
+	 * Nodo messo al posto di un bucket già spostato nella tabella nuova
+	 */
+	private static final class ForwardingNode<E> extends Node<E> {
+		private final Table<E> nextTable;
+
+		private ForwardingNode(Table<E> nextTable) {
+			super(null, 0, null);
+			this.nextTable = nextTable;
+		}
+	}
+
+	/*
+	 * Iteratore debolmente consistente. Scorre i bucket della tabella
+	 * corrente; se ne trova uno spostato aspetta la fine del raddoppio e
+	 * ricomincia dalla tabella nuova, saltando gli elementi che appartenevano
+	 * a bucket già visitati delle tabelle precedenti.
+	 */
+	private class Itr implements Iterator<E> {
+		private Table<E> current;
+		// il prossimo bucket da leggere in current
+		private int bin;
+		// il prossimo nodo da restituire, null se non ce ne sono altri
+		private Node<E> nextNode;
+		private E lastReturned;
+		/*
+		 * Per ogni tabella abbandonata contiene la sua capacità e il primo
+		 * bucket non visitato
+		 */
+		private final List<int[]> visited = new ArrayList<int[]>();
+
+		private Itr() {
+			this.current = table;
+			this.advance();
+		}
+
+		private boolean alreadyVisited(int h) {
+			for (int[] v : this.visited)
+				if (phf.hash(h, v[0]) < v[1])
+					return true;
+			return false;
+		}
+
+		/*
+		 * Porta nextNode al prossimo nodo non ancora visitato, a partire da
+		 * quello corrente
+		 */
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			while (true) {
+				while (this.nextNode != null) {
+					if (!this.alreadyVisited(this.nextNode.hash))
+						return;
+					this.nextNode = this.nextNode.next;
+				}
+				if (this.bin == this.current.length())
+					return;
+				Node<E> head = this.current.bins.get(this.bin);
+				if (head instanceof ForwardingNode) {
+					awaitTransfer(this.current);
+					this.visited.add(new int[] { this.current.length(), this.bin });
+					this.current = ((ForwardingNode<E>) head).nextTable;
+					this.bin = 0;
+					continue;
+				}
+				this.nextNode = head;
+				this.bin++;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.nextNode != null;
+		}
+
+		@Override
+		public E next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException("Richiesta di next quando hasNext è falso");
+			this.lastReturned = this.nextNode.item;
+			this.nextNode = this.nextNode.next;
+			this.advance();
+			return this.lastReturned;
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastReturned == null)
+				throw new IllegalStateException("Nessun elemento da rimuovere");
+			ConcurrentCollisionListHashTable.this.remove(this.lastReturned);
+			this.lastReturned = null;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package it.unicam.cs.asdl2223.es10;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Template: Luca Tesei, Implementation: Collettiva da Esercitazione a
+ *         Casa
+ *
+ */
+class ConcurrentCollisionListHashTableTest {
+	/*
+	 * Funzioni di hash primario usate nei test: il metodo della divisione e
+	 * una variante del metodo della moltiplicazione
+	 */
+	static final PrimaryHashFunction DIVISIONE = (k, m) -> Math.floorMod(k, m);
+
+	static final PrimaryHashFunction MOLTIPLICAZIONE = (k, m) -> (int) (((k * 0x9E3779B9L) & 0xffffffffL) * m >>> 32);
+
+	// numero di thread che modificano la tabella
+	static final int THREADS = 4;
+
+	// numero di elementi inseriti da tutti i thread insieme
+	static final int N = 20000;
+
+	// numero di elementi inseriti prima dell'avvio dei thread
+	static final int STABILI = 1000;
+
+	@Test
+	final void testConcurrentAddRemoveContains() throws Exception {
+		for (PrimaryHashFunction phf : new PrimaryHashFunction[] { DIVISIONE, MOLTIPLICAZIONE }) {
+			ConcurrentCollisionListHashTable<Integer> s = new ConcurrentCollisionListHashTable<Integer>(phf);
+			// gli elementi negativi non vengono mai toccati dai thread
+			for (int i = 1; i <= STABILI; i++)
+				s.add(-i);
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+			try {
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for (int t = 0; t < THREADS; t++) {
+					final int first = t;
+					futures.add(executor.submit(() -> {
+						// ogni thread inserisce gli elementi congrui a first
+						// e ne rimuove uno ogni due
+						for (int i = first; i < N; i += THREADS)
+							assertTrue(s.add(i));
+						for (int i = first; i < N; i += THREADS)
+							assertFalse(s.add(i));
+						for (int i = first; i < N; i += 2 * THREADS)
+							assertTrue(s.remove(i));
+						for (int i = first; i < N; i += 2 * THREADS)
+							assertFalse(s.contains(i));
+						return null;
+					}));
+				}
+				// un thread scorre la tabella mentre gli altri la modificano:
+				// non deve vedere duplicati né perdere gli elementi stabili
+				futures.add(executor.submit(() -> {
+					for (int r = 0; r < 10; r++) {
+						Set<Integer> visti = new HashSet<Integer>();
+						for (Integer x : s)
+							assertTrue(visti.add(x));
+						for (int i = 1; i <= STABILI; i++) {
+							assertTrue(visti.contains(-i));
+							assertTrue(s.contains(-i));
+						}
+					}
+					return null;
+				}));
+				for (Future<?> f : futures)
+					f.get();
+			} finally {
+				executor.shutdown();
+			}
+			// alla fine restano gli stabili e gli elementi non rimossi
+			Set<Integer> atteso = new HashSet<Integer>();
+			for (int i = 1; i <= STABILI; i++)
+				atteso.add(-i);
+			for (int i = 0; i < N; i++)
+				if (i % (2 * THREADS) >= THREADS)
+					atteso.add(i);
+			assertEquals(atteso.size(), s.size());
+			assertEquals(atteso, s);
+			assertEquals(s, atteso);
+			Set<Integer> visti = new HashSet<Integer>();
+			for (Integer x : s)
+				assertTrue(visti.add(x));
+			assertEquals(atteso, visti);
+		}
+	}
+
+	@Test
+	final void testIteratorRemove() {
+		// tutti gli elementi nello stesso bucket
+		ConcurrentCollisionListHashTable<String> s = new ConcurrentCollisionListHashTable<String>((k, m) -> 0, 4);
+		for (int i = 0; i < 100; i++)
+			s.add("x" + i);
+		Iterator<String> it = s.iterator();
+		while (it.hasNext())
+			if (it.next().endsWith("3"))
+				it.remove();
+		assertEquals(90, s.size());
+		assertFalse(s.contains("x13"));
+		assertTrue(s.contains("x14"));
+	}
+
+	@Test
+	final void testClear() {
+		ConcurrentCollisionListHashTable<Integer> s = new ConcurrentCollisionListHashTable<Integer>(DIVISIONE);
+		for (int i = 0; i < 100; i++)
+			s.add(i);
+		s.clear();
+		assertTrue(s.isEmpty());
+		assertEquals(0, s.toArray().length);
+		assertFalse(s.contains(1));
+	}
+
+	@Test
+	final void testAddNull() {
+		ConcurrentCollisionListHashTable<Integer> s = new ConcurrentCollisionListHashTable<Integer>(DIVISIONE);
+		assertThrows(NullPointerException.class, () -> s.add(null));
+	}
+
+}
@@ -0,0 +1,190 @@
+package it.unicam.cs.asdl2223.es10;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Statistiche sulle liste di collisione di una tabella hash con liste di
+ * collisione: lunghezza massima e media, istogramma delle lunghezze e numero
+ * di nodi esaminati dalle ricerche. Le statistiche si possono calcolare su una
+ * CollisionListResizableHashTable esistente oppure simulando l'inserimento di
+ * un insieme di elementi con una funzione di hash primario e una capacità, in
+ * modo da confrontare funzioni diverse sugli stessi dati senza costruire le
+ * tabelle.
+ *
+ * Il numero di nodi esaminati (probe) da una ricerca con successo è la
+ * posizione dell'elemento nella sua lista, per cui la somma su tutti gli
+ * elementi vale la somma di l * (l + 1) / 2 sulle liste di lunghezza l; una
+ * ricerca senza successo esamina tutta la lista del suo bucket. Con una
+ * funzione di hash uniforme e fattore di caricamento alfa le due medie sono
+ * circa 1 + alfa / 2 e alfa.
+ *
+ * Il calcolo scorre tutti i bucket e costa O(capacità + elementi); gli oggetti
+ * di questa classe sono immutabili.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public class HashTableStatistics {
+
+	private final int capacity;
+
+	private final int size;
+
+	// histogram[l] è il numero di bucket con una lista lunga l
+	private final int[] histogram;
+
+	// somma su tutti gli elementi dei nodi esaminati per trovarli
+	private final long successfulProbes;
+
+	/*
+	 * Calcola le statistiche a partire dalle lunghezze delle liste di ogni
+	 * bucket
+	 */
+	private HashTableStatistics(int[] chainLengths) {
+		int max = 0;
+		long elements = 0;
+		long probes = 0;
+		for (int l : chainLengths) {
+			max = Math.max(max, l);
+			elements += l;
+			probes += (long) l * (l + 1) / 2;
+		}
+		this.histogram = new int[max + 1];
+		for (int l : chainLengths)
+			this.histogram[l]++;
+		this.capacity = chainLengths.length;
+		this.size = (int) elements;
+		this.successfulProbes = probes;
+	}
+
+	/**
+	 * Calcola le statistiche delle liste di collisione di una tabella.
+	 * Durante un ridimensionamento incrementale considera i bucket in uso di
+	 * entrambe le tabelle.
+	 *
+	 * @param table la tabella da esaminare
+	 * @return le statistiche della tabella
+	 * @throws NullPointerException se la tabella passata è nulla
+	 */
+	public static HashTableStatistics of(CollisionListResizableHashTable<?> table) {
+		if (table == null)
+			throw new NullPointerException("Tabella nulla");
+		return new HashTableStatistics(table.chainLengths());
+	}
+
+	/**
+	 * Calcola le statistiche delle liste di collisione che si otterrebbero
+	 * inserendo gli elementi dati in una tabella della capacità data con la
+	 * funzione di hash primario data. Gli elementi uguali secondo equals
+	 * devono comparire una sola volta.
+	 *
+	 * @param phf      la funzione di hash primario
+	 * @param elements gli elementi, tutti distinti
+	 * @param capacity il numero di bucket della tabella
+	 * @return le statistiche della tabella simulata
+	 * @throws NullPointerException     se la funzione, la collezione o uno dei
+	 *                                  suoi elementi sono nulli
+	 * @throws IllegalArgumentException se la capacità non è positiva
+	 */
+	public static HashTableStatistics simulate(PrimaryHashFunction phf, Collection<?> elements, int capacity) {
+		if (phf == null || elements == null)
+			throw new NullPointerException("Funzione di hash o elementi nulli");
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacità non positiva: " + capacity);
+		int[] lengths = new int[capacity];
+		for (Object item : elements) {
+			if (item == null)
+				throw new NullPointerException("Elemento nullo");
+			lengths[phf.hash(item.hashCode(), capacity)]++;
+		}
+		return new HashTableStatistics(lengths);
+	}
+
+	/**
+	 * @return il numero di bucket
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * @return il numero di elementi
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * @return il fattore di caricamento, elementi diviso bucket
+	 */
+	public double getLoadFactor() {
+		return this.capacity == 0 ? 0 : (double) this.size / this.capacity;
+	}
+
+	/**
+	 * @return la lunghezza della lista di collisione più lunga
+	 */
+	public int getMaxChainLength() {
+		return this.histogram.length - 1;
+	}
+
+	/**
+	 * @return la lunghezza media delle liste di collisione non vuote, 0 se
+	 *         non ci sono elementi
+	 */
+	public double getMeanChainLength() {
+		int nonEmpty = this.capacity - this.histogram[0];
+		return nonEmpty == 0 ? 0 : (double) this.size / nonEmpty;
+	}
+
+	/**
+	 * @return il numero di bucket vuoti
+	 */
+	public int getEmptyBuckets() {
+		return this.histogram[0];
+	}
+
+	/**
+	 * Restituisce l'istogramma delle lunghezze delle liste: l'elemento di
+	 * indice l è il numero di bucket con una lista lunga l.
+	 *
+	 * @return una copia dell'istogramma, lungo getMaxChainLength() + 1
+	 */
+	public int[] getChainLengthHistogram() {
+		return Arrays.copyOf(this.histogram, this.histogram.length);
+	}
+
+	/**
+	 * @return il numero totale di nodi esaminati cercando una volta ogni
+	 *         elemento
+	 */
+	public long getSuccessfulProbes() {
+		return this.successfulProbes;
+	}
+
+	/**
+	 * @return il numero medio di nodi esaminati da una ricerca con successo,
+	 *         0 se non ci sono elementi
+	 */
+	public double getMeanSuccessfulProbes() {
+		return this.size == 0 ? 0 : (double) this.successfulProbes / this.size;
+	}
+
+	/**
+	 * @return il numero medio di nodi esaminati da una ricerca senza successo
+	 *         di un elemento che cade in un bucket qualsiasi con uguale
+	 *         probabilità, cioè il fattore di caricamento
+	 */
+	public double getMeanUnsuccessfulProbes() {
+		return this.getLoadFactor();
+	}
+
+	@Override
+	public String toString() {
+		return "HashTableStatistics[capacity=" + this.capacity + ", size=" + this.size + ", maxChainLength="
+				+ this.getMaxChainLength() + ", meanChainLength=" + this.getMeanChainLength()
+				+ ", meanSuccessfulProbes=" + this.getMeanSuccessfulProbes() + ", meanUnsuccessfulProbes="
+				+ this.getMeanUnsuccessfulProbes() + ", histogram=" + Arrays.toString(this.histogram) + "]";
+	}
+}
@@ -0,0 +1,330 @@
+package it.unicam.cs.asdl2223.es10;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Realizza un insieme di valori int tramite una tabella hash a indirizzamento
+ * aperto con scansione lineare. La posizione iniziale di ogni elemento è data
+ * dalla funzione di hash primario passata nel costruttore, come in
+ * CollisionListResizableHashTable; in caso di collisione si prova la
+ * posizione successiva, ciclicamente, fino a trovare l'elemento o una cella
+ * vuota.
+ *
+ * Gli elementi sono memorizzati direttamente in un array di int, senza nodi
+ * e senza oggetti Integer, per cui ogni elemento occupa in media poco più di
+ * 4-8 byte invece dei circa 40-50 di un nodo di una lista di collisione con il
+ * relativo Integer, e le scansioni leggono celle contigue in memoria. Il
+ * valore 0 indica una cella vuota, per cui l'elemento 0 viene ricordato a
+ * parte. La rimozione sposta all'indietro gli elementi successivi dello stesso
+ * gruppo invece di lasciare celle marcate come cancellate, per cui le ricerche
+ * non rallentano dopo molte rimozioni.
+ *
+ * La capacità è una potenza di due, con default iniziale 16 e fattore di
+ * caricamento 0.75: quando viene superato la tabella viene raddoppiata.
+ * Raggiunta la capacità massima la tabella non viene più raddoppiata e,
+ * quando resterebbe senza celle vuote, add lancia IllegalStateException.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public class IntHashSet {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final double LOAD_FACTOR = 0.75;
+
+	// capacità massima, la più grande potenza di due rappresentabile
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	// il valore che indica una cella vuota
+	private static final int FREE = 0;
+
+	/*
+	 * Numero di elementi presenti, compreso l'eventuale elemento 0 che non è
+	 * memorizzato nella tabella
+	 */
+	private int size;
+
+	// la tabella, le celle vuote contengono FREE
+	private int[] table;
+
+	// indica se l'elemento 0 appartiene all'insieme
+	private boolean containsFree;
+
+	private final PrimaryHashFunction phf;
+
+	/*
+	 * Contatore del numero di modifiche. Serve per rendere l'iterator fail-fast.
+	 */
+	private int modCount;
+
+	/**
+	 * Costruisce un insieme vuoto con capacità iniziale di default.
+	 *
+	 * @param phf la funzione di hash primario
+	 * @throws NullPointerException se la funzione passata è nulla
+	 */
+	public IntHashSet(PrimaryHashFunction phf) {
+		this(phf, 0);
+	}
+
+	/**
+	 * Costruisce un insieme vuoto con capacità sufficiente a contenere il
+	 * numero di elementi indicato senza raddoppi.
+	 *
+	 * @param phf          la funzione di hash primario
+	 * @param expectedSize il numero di elementi previsto
+	 * @throws NullPointerException     se la funzione passata è nulla
+	 * @throws IllegalArgumentException se il numero di elementi previsto è
+	 *                                  negativo
+	 */
+	public IntHashSet(PrimaryHashFunction phf, int expectedSize) {
+		if (phf == null)
+			throw new NullPointerException("Funzione di hash nulla");
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Numero di elementi previsto negativo");
+		this.phf = phf;
+		this.table = new int[capacityFor(expectedSize)];
+	}
+
+	/*
+	 * La più piccola potenza di due, non minore della capacità iniziale, che
+	 * contiene n elementi senza superare il fattore di caricamento
+	 */
+	private static int capacityFor(int n) {
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < MAXIMUM_CAPACITY && n > (int) (capacity * LOAD_FACTOR))
+			capacity <<= 1;
+		return capacity;
+	}
+
+	/* Valore corrente soglia oltre la quale si deve fare la resize */
+	private int getCurrentThreshold() {
+		return (int) (this.table.length * LOAD_FACTOR);
+	}
+
+	// posizione iniziale dell'elemento k nella tabella corrente
+	private int home(int k) {
+		return this.phf.hash(k, this.table.length);
+	}
+
+	/**
+	 * @return il numero di elementi dell'insieme
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return true se l'insieme è vuoto
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Determina se un valore appartiene all'insieme.
+	 *
+	 * @param k il valore da cercare
+	 * @return true se il valore appartiene all'insieme
+	 */
+	public boolean contains(int k) {
+		if (k == FREE)
+			return this.containsFree;
+		int mask = this.table.length - 1;
+		// scorro il gruppo a partire dalla posizione iniziale fino a una cella
+		// vuota
+		for (int i = this.home(k); this.table[i] != FREE; i = (i + 1) & mask)
+			if (this.table[i] == k)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Aggiunge un valore all'insieme.
+	 *
+	 * @param k il valore da aggiungere
+	 * @return true se il valore è stato aggiunto, false se era già presente
+	 * @throws IllegalStateException se la tabella ha raggiunto la capacità
+	 *                               massima e resterebbe senza celle vuote
+	 */
+	public boolean add(int k) {
+		if (k == FREE) {
+			if (this.containsFree)
+				return false;
+			this.containsFree = true;
+		} else {
+			// una sola scansione: se trovo k mi fermo, altrimenti lo inserisco
+			// nella cella vuota che chiude il gruppo
+			int mask = this.table.length - 1;
+			int i = this.home(k);
+			while (this.table[i] != FREE) {
+				if (this.table[i] == k)
+					return false;
+				i = (i + 1) & mask;
+			}
+			// deve restare almeno una cella vuota, altrimenti la ricerca di un
+			// valore assente non terminerebbe
+			int cells = this.containsFree ? this.size - 1 : this.size;
+			if (cells + 1 >= this.table.length)
+				throw new IllegalStateException("Tabella piena, capacità massima raggiunta");
+			this.table[i] = k;
+		}
+		this.size++;
+		this.modCount++;
+		if (this.size > this.getCurrentThreshold() && this.table.length < MAXIMUM_CAPACITY)
+			this.resize(this.table.length * 2);
+		return true;
+	}
+
+	/**
+	 * Rimuove un valore dall'insieme.
+	 *
+	 * @param k il valore da rimuovere
+	 * @return true se il valore è stato rimosso, false se non era presente
+	 */
+	public boolean remove(int k) {
+		if (k == FREE) {
+			if (!this.containsFree)
+				return false;
+			this.containsFree = false;
+		} else {
+			int mask = this.table.length - 1;
+			int i = this.home(k);
+			while (this.table[i] != k) {
+				if (this.table[i] == FREE)
+					return false;
+				i = (i + 1) & mask;
+			}
+			this.shiftBack(i);
+		}
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	/*
+	 * Libera la cella hole spostando all'indietro gli elementi successivi del
+	 * gruppo che possono occuparla, cioè quelli la cui posizione iniziale non
+	 * cade ciclicamente fra la cella liberata e la loro posizione
+	 */
+	private void shiftBack(int hole) {
+		int mask = this.table.length - 1;
+		int j = hole;
+		while (true) {
+			j = (j + 1) & mask;
+			int k = this.table[j];
+			if (k == FREE)
+				break;
+			int h = this.home(k);
+			boolean movable = j > hole ? (h <= hole || h > j) : (h <= hole && h > j);
+			if (movable) {
+				this.table[hole] = k;
+				hole = j;
+			}
+		}
+		this.table[hole] = FREE;
+	}
+
+	/*
+	 * Sostituisce la tabella con una della capacità data riposizionando tutti
+	 * gli elementi
+	 */
+	private void resize(int capacity) {
+		int[] old = this.table;
+		this.table = new int[capacity];
+		int mask = capacity - 1;
+		for (int k : old) {
+			if (k == FREE)
+				continue;
+			int i = this.home(k);
+			while (this.table[i] != FREE)
+				i = (i + 1) & mask;
+			this.table[i] = k;
+		}
+	}
+
+	/**
+	 * Svuota l'insieme riportando la tabella alla capacità iniziale.
+	 */
+	public void clear() {
+		this.table = new int[INITIAL_CAPACITY];
+		this.containsFree = false;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	/**
+	 * @return un nuovo array con gli elementi dell'insieme, in un ordine
+	 *         qualsiasi
+	 */
+	public int[] toArray() {
+		int[] result = new int[this.size];
+		int n = 0;
+		if (this.containsFree)
+			result[n++] = FREE;
+		for (int k : this.table)
+			if (k != FREE)
+				result[n++] = k;
+		return result;
+	}
+
+	/**
+	 * Restituisce un iteratore fail-fast sugli elementi dell'insieme, in un
+	 * ordine qualsiasi. L'iteratore non supporta la rimozione.
+	 *
+	 * @return un iteratore sugli elementi dell'insieme
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return new Itr();
+	}
+
+	@Override
+	public String toString() {
+		int[] elements = this.toArray();
+		Arrays.sort(elements);
+		return Arrays.toString(elements);
+	}
+
+	/*
+	 * Iteratore che restituisce prima l'eventuale elemento 0 e poi le celle
+	 * piene della tabella in ordine di posizione.
+	 */
+	private class Itr implements PrimitiveIterator.OfInt {
+		// prossima cella da esaminare, -1 se l'elemento 0 non è ancora stato
+		// restituito
+		private int position;
+		private final int numeroModificheAtteso;
+
+		private Itr() {
+			this.numeroModificheAtteso = modCount;
+			this.position = containsFree ? -1 : 0;
+			this.skipFree();
+		}
+
+		private void skipFree() {
+			while (this.position >= 0 && this.position < table.length && table[this.position] == FREE)
+				this.position++;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < table.length;
+		}
+
+		@Override
+		public int nextInt() {
+			if (this.numeroModificheAtteso != modCount)
+				throw new ConcurrentModificationException("Insieme modificato durante l'iterazione");
+			if (!this.hasNext())
+				throw new NoSuchElementException("Richiesta di next quando hasNext è falso");
+			int k = this.position == -1 ? FREE : table[this.position];
+			this.position++;
+			this.skipFree();
+			return k;
+		}
+	}
+}
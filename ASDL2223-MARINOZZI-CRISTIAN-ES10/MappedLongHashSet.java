@@ -0,0 +1,607 @@
+package it.unicam.cs.asdl2223.es10;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Realizza un insieme di valori long memorizzato fuori dallo heap, in un file
+ * mappato in memoria. La tabella è a indirizzamento aperto con scansione
+ * lineare, come in LongHashSet: la posizione iniziale di ogni elemento è data
+ * dalla funzione di hash primario passata nel costruttore, applicata al codice
+ * hash del valore (calcolato come in Long.hashCode), il valore 0 indica una
+ * cella vuota e la rimozione sposta all'indietro gli elementi successivi del
+ * gruppo.
+ *
+ * Poiché le celle stanno nel file e non in array Java, il garbage collector
+ * non vede la tabella, per cui anche decine di milioni di elementi non
+ * allungano le pause; il sistema operativo tiene in memoria solo le pagine
+ * usate. Il file contiene un'intestazione con capacità, numero di elementi e
+ * presenza dell'elemento 0, seguita dalle celle, per cui riaprire un insieme
+ * esistente richiede solo di mappare il file, senza ricostruire la tabella.
+ * Per ritrovare gli elementi il file deve essere riaperto con una funzione di
+ * hash primario equivalente a quella con cui è stato scritto (per esempio una
+ * SeededPrimaryHashFunction con lo stesso seme).
+ *
+ * Le celle sono mappate in segmenti di 1 GiB, per superare il limite di 2 GiB
+ * di un singolo MappedByteBuffer. Quando il fattore di caricamento 0.75 viene
+ * superato la tabella viene raddoppiata, prima di inserire il nuovo
+ * elemento, scrivendola in un file temporaneo nella stessa cartella, che poi
+ * sostituisce quello originale con uno spostamento atomico; la memoria delle
+ * vecchie mappature viene rilasciata dal garbage collector. Se il raddoppio
+ * non riesce il file temporaneo viene cancellato, il file originale viene
+ * riaperto e l'insieme resta com'era prima della chiamata ad add. Java non
+ * permette di eliminare una mappatura esplicitamente, per cui sui sistemi che
+ * non consentono di sostituire un file ancora mappato, come Windows, lo
+ * spostamento può fallire finché il garbage collector non ha rilasciato le
+ * vecchie mappature: in questo caso add lancia UncheckedIOException e
+ * l'inserimento può essere ritentato. Raggiunta la capacità massima la
+ * tabella non viene più raddoppiata e, quando resterebbe senza celle vuote,
+ * add lancia IllegalStateException.
+ *
+ * Le modifiche sono scritte direttamente nella memoria mappata e arrivano sul
+ * disco al più tardi con force o close; se il processo termina senza averli
+ * chiamati il contenuto del file è quello scritto dal sistema operativo fino a
+ * quel momento. L'insieme non è thread-safe e il file non deve essere aperto
+ * contemporaneamente da più oggetti.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public class MappedLongHashSet implements Closeable {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final double LOAD_FACTOR = 0.75;
+
+	// capacità massima, la più grande potenza di due rappresentabile
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	// il valore che indica una cella vuota
+	private static final long FREE = 0;
+
+	// "ASDLHSET", identifica i file scritti da questa classe
+	private static final long MAGIC = 0x4153444c48534554L;
+
+	private static final int VERSION = 1;
+
+	// posizioni dei campi dell'intestazione
+	private static final int MAGIC_OFFSET = 0;
+
+	private static final int VERSION_OFFSET = 8;
+
+	private static final int CAPACITY_OFFSET = 12;
+
+	private static final int SIZE_OFFSET = 16;
+
+	private static final int CONTAINS_FREE_OFFSET = 24;
+
+	// l'intestazione occupa una pagina, per cui le celle sono allineate
+	private static final int HEADER_SIZE = 4096;
+
+	// ogni segmento mappato contiene 2^SEGMENT_SHIFT celle
+	private static final int SEGMENT_SHIFT = 27;
+
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+	private final Path file;
+
+	private final PrimaryHashFunction phf;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer header;
+
+	// le celle della tabella, divise in segmenti
+	private MappedByteBuffer[] segments;
+
+	private int capacity;
+
+	/*
+	 * Numero di elementi presenti, compreso l'eventuale elemento 0 che non è
+	 * memorizzato nella tabella; è anche scritto nell'intestazione
+	 */
+	private int size;
+
+	// indica se l'elemento 0 appartiene all'insieme
+	private boolean containsFree;
+
+	/*
+	 * Contatore del numero di modifiche. Serve per rendere l'iterator fail-fast.
+	 */
+	private int modCount;
+
+	/**
+	 * Apre l'insieme memorizzato nel file dato, oppure lo crea vuoto con
+	 * capacità iniziale di default se il file non esiste.
+	 *
+	 * @param file il file dell'insieme
+	 * @param phf  la funzione di hash primario
+	 * @throws NullPointerException     se il file o la funzione passati sono
+	 *                                  nulli
+	 * @throws IllegalArgumentException se il file esiste ma non contiene un
+	 *                                  insieme valido
+	 * @throws IOException              se si verifica un errore di
+	 *                                  input/output
+	 */
+	public MappedLongHashSet(Path file, PrimaryHashFunction phf) throws IOException {
+		this(file, phf, 0);
+	}
+
+	/**
+	 * Apre l'insieme memorizzato nel file dato, oppure lo crea vuoto con
+	 * capacità sufficiente a contenere il numero di elementi indicato senza
+	 * raddoppi se il file non esiste.
+	 *
+	 * @param file         il file dell'insieme
+	 * @param phf          la funzione di hash primario
+	 * @param expectedSize il numero di elementi previsto, usato solo se il
+	 *                     file viene creato
+	 * @throws NullPointerException     se il file o la funzione passati sono
+	 *                                  nulli
+	 * @throws IllegalArgumentException se il numero di elementi previsto è
+	 *                                  negativo o se il file esiste ma non
+	 *                                  contiene un insieme valido
+	 * @throws IOException              se si verifica un errore di
+	 *                                  input/output
+	 */
+	public MappedLongHashSet(Path file, PrimaryHashFunction phf, int expectedSize) throws IOException {
+		if (file == null || phf == null)
+			throw new NullPointerException("File o funzione di hash nulli");
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Numero di elementi previsto negativo");
+		this.file = file;
+		this.phf = phf;
+		if (Files.exists(file))
+			this.open();
+		else {
+			create(file, capacityFor(expectedSize)).close();
+			this.open();
+		}
+	}
+
+	/*
+	 * La più piccola potenza di due, non minore della capacità iniziale, che
+	 * contiene n elementi senza superare il fattore di caricamento
+	 */
+	private static int capacityFor(int n) {
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < MAXIMUM_CAPACITY && n > (int) (capacity * LOAD_FACTOR))
+			capacity <<= 1;
+		return capacity;
+	}
+
+	/*
+	 * Crea un file con un insieme vuoto della capacità data e restituisce il
+	 * canale aperto; le celle valgono FREE perché il file viene esteso con zeri
+	 */
+	private static FileChannel create(Path file, int capacity) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.putLong(MAGIC_OFFSET, MAGIC);
+			header.putInt(VERSION_OFFSET, VERSION);
+			header.putInt(CAPACITY_OFFSET, capacity);
+			header.putLong(SIZE_OFFSET, 0);
+			header.putInt(CONTAINS_FREE_OFFSET, 0);
+			// scrivo l'ultimo byte per estendere il file fino alla fine delle celle
+			channel.write(ByteBuffer.wrap(new byte[1]), HEADER_SIZE + (long) capacity * Long.BYTES - 1);
+			header.force();
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Apre il file, ne controlla l'intestazione e mappa le celle
+	 */
+	private void open() throws IOException {
+		FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (channel.size() < HEADER_SIZE)
+				throw new IllegalArgumentException("File troppo corto: " + this.file);
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			if (header.getLong(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION)
+				throw new IllegalArgumentException("Il file non contiene un insieme: " + this.file);
+			int capacity = header.getInt(CAPACITY_OFFSET);
+			long size = header.getLong(SIZE_OFFSET);
+			if (capacity < INITIAL_CAPACITY || Integer.bitCount(capacity) != 1
+					|| channel.size() < HEADER_SIZE + (long) capacity * Long.BYTES || size < 0 || size > capacity)
+				throw new IllegalArgumentException("Intestazione non valida: " + this.file);
+			this.segments = map(channel, capacity);
+			this.channel = channel;
+			this.header = header;
+			this.capacity = capacity;
+			this.size = (int) size;
+			this.containsFree = header.getInt(CONTAINS_FREE_OFFSET) != 0;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Mappa le celle di una tabella della capacità data in segmenti di
+	 * 2^SEGMENT_SHIFT celle
+	 */
+	private static MappedByteBuffer[] map(FileChannel channel, int capacity) throws IOException {
+		int n = ((capacity - 1) >>> SEGMENT_SHIFT) + 1;
+		MappedByteBuffer[] segments = new MappedByteBuffer[n];
+		for (int s = 0; s < n; s++) {
+			long first = (long) s << SEGMENT_SHIFT;
+			long cells = Math.min(1L << SEGMENT_SHIFT, capacity - first);
+			segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + first * Long.BYTES,
+					cells * Long.BYTES);
+		}
+		return segments;
+	}
+
+	private static long get(MappedByteBuffer[] segments, int i) {
+		return segments[i >>> SEGMENT_SHIFT].getLong((i & SEGMENT_MASK) << 3);
+	}
+
+	private static void set(MappedByteBuffer[] segments, int i, long k) {
+		segments[i >>> SEGMENT_SHIFT].putLong((i & SEGMENT_MASK) << 3, k);
+	}
+
+	private void ensureOpen() {
+		if (this.channel == null)
+			throw new IllegalStateException("Insieme chiuso");
+	}
+
+	/* Valore corrente soglia oltre la quale si deve fare la resize */
+	private int getCurrentThreshold() {
+		return (int) (this.capacity * LOAD_FACTOR);
+	}
+
+	// posizione iniziale dell'elemento k in una tabella della capacità data
+	private int home(long k, int capacity) {
+		return this.phf.hash(Long.hashCode(k), capacity);
+	}
+
+	/**
+	 * @return il file dell'insieme
+	 */
+	public Path getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @return il numero di celle della tabella
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * @return il numero di elementi dell'insieme
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return true se l'insieme è vuoto
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Determina se un valore appartiene all'insieme.
+	 *
+	 * @param k il valore da cercare
+	 * @return true se il valore appartiene all'insieme
+	 * @throws IllegalStateException se l'insieme è stato chiuso
+	 */
+	public boolean contains(long k) {
+		this.ensureOpen();
+		if (k == FREE)
+			return this.containsFree;
+		int mask = this.capacity - 1;
+		for (int i = this.home(k, this.capacity); get(this.segments, i) != FREE; i = (i + 1) & mask)
+			if (get(this.segments, i) == k)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Aggiunge un valore all'insieme.
+	 *
+	 * @param k il valore da aggiungere
+	 * @return true se il valore è stato aggiunto, false se era già presente
+	 * @throws IllegalStateException se l'insieme è stato chiuso o se la
+	 *                               tabella ha raggiunto la capacità massima
+	 *                               e resterebbe senza celle vuote
+	 * @throws UncheckedIOException  se il raddoppio della tabella non riesce;
+	 *                               in questo caso il valore non viene
+	 *                               aggiunto
+	 */
+	public boolean add(long k) {
+		this.ensureOpen();
+		int i = -1;
+		if (k == FREE) {
+			if (this.containsFree)
+				return false;
+		} else {
+			// una sola scansione: se trovo k mi fermo, altrimenti ricordo la
+			// cella vuota che chiude il gruppo
+			int mask = this.capacity - 1;
+			i = this.home(k, this.capacity);
+			long current;
+			while ((current = get(this.segments, i)) != FREE) {
+				if (current == k)
+					return false;
+				i = (i + 1) & mask;
+			}
+		}
+		// raddoppio prima di inserire, così se non riesce l'insieme è invariato
+		if (this.size + 1 > this.getCurrentThreshold() && this.capacity < MAXIMUM_CAPACITY) {
+			try {
+				this.resize(this.capacity * 2);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Raddoppio della tabella non riuscito", e);
+			}
+			if (k != FREE)
+				i = this.freeCellFor(k);
+		}
+		if (k == FREE) {
+			this.containsFree = true;
+			this.header.putInt(CONTAINS_FREE_OFFSET, 1);
+		} else {
+			// deve restare almeno una cella vuota, altrimenti la ricerca di un
+			// valore assente non terminerebbe
+			int cells = this.containsFree ? this.size - 1 : this.size;
+			if (cells + 1 >= this.capacity)
+				throw new IllegalStateException("Tabella piena, capacità massima raggiunta");
+			set(this.segments, i, k);
+		}
+		this.size++;
+		this.header.putLong(SIZE_OFFSET, this.size);
+		this.modCount++;
+		return true;
+	}
+
+	/*
+	 * Restituisce la cella vuota che chiude il gruppo di k, che non deve
+	 * appartenere all'insieme
+	 */
+	private int freeCellFor(long k) {
+		int mask = this.capacity - 1;
+		int i = this.home(k, this.capacity);
+		while (get(this.segments, i) != FREE)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/**
+	 * Rimuove un valore dall'insieme.
+	 *
+	 * @param k il valore da rimuovere
+	 * @return true se il valore è stato rimosso, false se non era presente
+	 * @throws IllegalStateException se l'insieme è stato chiuso
+	 */
+	public boolean remove(long k) {
+		this.ensureOpen();
+		if (k == FREE) {
+			if (!this.containsFree)
+				return false;
+			this.containsFree = false;
+			this.header.putInt(CONTAINS_FREE_OFFSET, 0);
+		} else {
+			int mask = this.capacity - 1;
+			int i = this.home(k, this.capacity);
+			long current;
+			while ((current = get(this.segments, i)) != k) {
+				if (current == FREE)
+					return false;
+				i = (i + 1) & mask;
+			}
+			this.shiftBack(i);
+		}
+		this.size--;
+		this.header.putLong(SIZE_OFFSET, this.size);
+		this.modCount++;
+		return true;
+	}
+
+	/*
+	 * Libera la cella hole spostando all'indietro gli elementi successivi del
+	 * gruppo che possono occuparla, cioè quelli la cui posizione iniziale non
+	 * cade ciclicamente fra la cella liberata e la loro posizione
+	 */
+	private void shiftBack(int hole) {
+		int mask = this.capacity - 1;
+		int j = hole;
+		while (true) {
+			j = (j + 1) & mask;
+			long k = get(this.segments, j);
+			if (k == FREE)
+				break;
+			int h = this.home(k, this.capacity);
+			boolean movable = j > hole ? (h <= hole || h > j) : (h <= hole && h > j);
+			if (movable) {
+				set(this.segments, hole, k);
+				hole = j;
+			}
+		}
+		set(this.segments, hole, FREE);
+	}
+
+	/*
+	 * Scrive in un file temporaneo una tabella della capacità data con tutti
+	 * gli elementi, lo sostituisce al file dell'insieme e lo riapre. Se
+	 * qualcosa non riesce il file temporaneo viene cancellato e l'insieme
+	 * resta aperto sul file originale, che è intatto
+	 */
+	private void resize(int capacity) throws IOException {
+		Path temporary = this.file.resolveSibling(this.file.getFileName() + ".resize");
+		Files.deleteIfExists(temporary);
+		boolean moved = false;
+		try {
+			this.writeResized(temporary, capacity);
+			this.channel.close();
+			this.channel = null;
+			// lascio al garbage collector le vecchie mappature
+			this.segments = null;
+			this.header = null;
+			try {
+				Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+				moved = true;
+			} finally {
+				this.open();
+			}
+		} finally {
+			if (!moved) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException e) {
+					// l'errore originale è più utile; il file verrà
+					// cancellato dal prossimo raddoppio
+				}
+			}
+		}
+	}
+
+	/*
+	 * Scrive nel file dato una tabella della capacità data con tutti gli
+	 * elementi
+	 */
+	private void writeResized(Path temporary, int capacity) throws IOException {
+		try (FileChannel target = create(temporary, capacity)) {
+			MappedByteBuffer[] cells = map(target, capacity);
+			int mask = capacity - 1;
+			for (int j = 0; j < this.capacity; j++) {
+				long k = get(this.segments, j);
+				if (k == FREE)
+					continue;
+				int i = this.home(k, capacity);
+				while (get(cells, i) != FREE)
+					i = (i + 1) & mask;
+				set(cells, i, k);
+			}
+			MappedByteBuffer header = target.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.putLong(SIZE_OFFSET, this.size);
+			header.putInt(CONTAINS_FREE_OFFSET, this.containsFree ? 1 : 0);
+			for (MappedByteBuffer segment : cells)
+				segment.force();
+			header.force();
+		}
+	}
+
+	/**
+	 * Svuota l'insieme, mantenendo la capacità della tabella.
+	 *
+	 * @throws IllegalStateException se l'insieme è stato chiuso
+	 */
+	public void clear() {
+		this.ensureOpen();
+		for (int i = 0; i < this.capacity; i++)
+			set(this.segments, i, FREE);
+		this.containsFree = false;
+		this.size = 0;
+		this.header.putInt(CONTAINS_FREE_OFFSET, 0);
+		this.header.putLong(SIZE_OFFSET, 0);
+		this.modCount++;
+	}
+
+	/**
+	 * Scrive sul disco le modifiche fatte finora.
+	 *
+	 * @throws IllegalStateException se l'insieme è stato chiuso
+	 * @throws IOException           se si verifica un errore di input/output
+	 */
+	public void force() throws IOException {
+		this.ensureOpen();
+		for (MappedByteBuffer segment : this.segments)
+			segment.force();
+		this.header.force();
+	}
+
+	/**
+	 * Scrive sul disco le modifiche e chiude il file; le operazioni
+	 * successive lanciano IllegalStateException. Chiudere un insieme già
+	 * chiuso non ha effetto.
+	 *
+	 * @throws IOException se si verifica un errore di input/output
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.channel == null)
+			return;
+		try {
+			this.force();
+		} finally {
+			this.channel.close();
+			this.channel = null;
+			this.segments = null;
+			this.header = null;
+		}
+	}
+
+	/**
+	 * Restituisce un iteratore fail-fast sugli elementi dell'insieme, in un
+	 * ordine qualsiasi. L'iteratore non supporta la rimozione.
+	 *
+	 * @return un iteratore sugli elementi dell'insieme
+	 * @throws IllegalStateException se l'insieme è stato chiuso
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		this.ensureOpen();
+		return new Itr();
+	}
+
+	/*
+	 * Iteratore che restituisce prima l'eventuale elemento 0 e poi le celle
+	 * piene della tabella in ordine di posizione.
+	 */
+	private class Itr implements PrimitiveIterator.OfLong {
+		// prossima cella da esaminare, -1 se l'elemento 0 non è ancora stato
+		// restituito
+		private int position;
+		private final int numeroModificheAtteso;
+
+		private Itr() {
+			this.numeroModificheAtteso = modCount;
+			this.position = containsFree ? -1 : 0;
+			this.skipFree();
+		}
+
+		private void skipFree() {
+			while (this.position >= 0 && this.position < capacity && get(segments, this.position) == FREE)
+				this.position++;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < capacity;
+		}
+
+		@Override
+		public long nextLong() {
+			if (this.numeroModificheAtteso != modCount)
+				throw new ConcurrentModificationException("Insieme modificato durante l'iterazione");
+			if (!this.hasNext())
+				throw new NoSuchElementException("Richiesta di next quando hasNext è falso");
+			ensureOpen();
+			long k = this.position == -1 ? FREE : get(segments, this.position);
+			this.position++;
+			this.skipFree();
+			return k;
+		}
+	}
+}
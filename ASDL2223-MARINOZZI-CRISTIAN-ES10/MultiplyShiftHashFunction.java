@@ -0,0 +1,57 @@
+package it.unicam.cs.asdl2223.es10;
+
+/**
+ * Funzione di hash primario moltiplica-somma-sposta di Dietzfelbinger: il
+ * codice hash k, visto come intero senza segno a 32 bit, viene trasformato in
+ * (a * k + b) mod 2^64 e ne vengono presi i 32 bit alti, con il moltiplicatore
+ * dispari a e l'addendo b ricavati dal seme. È la funzione più economica fra
+ * quelle con seme, una sola moltiplicazione, e con a e b casuali la
+ * probabilità che due codici hash diversi collidano è circa 1/m; i bit bassi
+ * del risultato dipendono però poco dai bit alti di k.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public class MultiplyShiftHashFunction extends SeededPrimaryHashFunction {
+
+	private final long multiplier;
+
+	private final long addend;
+
+	/**
+	 * Crea una funzione con un seme casuale.
+	 */
+	public MultiplyShiftHashFunction() {
+		super();
+		this.multiplier = multiplierOf(this.getSeed());
+		this.addend = addendOf(this.getSeed());
+	}
+
+	/**
+	 * Crea una funzione con il seme dato.
+	 *
+	 * @param seed il seme
+	 */
+	public MultiplyShiftHashFunction(long seed) {
+		super(seed);
+		this.multiplier = multiplierOf(seed);
+		this.addend = addendOf(seed);
+	}
+
+	/*
+	 * Il moltiplicatore e l'addendo sono due valori del generatore SplitMix64
+	 * partendo dal seme; il moltiplicatore deve essere dispari
+	 */
+	private static long multiplierOf(long seed) {
+		return Murmur3HashFunction.fmix64(seed + 0x9e3779b97f4a7c15L) | 1L;
+	}
+
+	private static long addendOf(long seed) {
+		return Murmur3HashFunction.fmix64(seed + 2 * 0x9e3779b97f4a7c15L);
+	}
+
+	@Override
+	protected int mix(int k) {
+		return (int) ((this.multiplier * (k & 0xffffffffL) + this.addend) >>> 32);
+	}
+}
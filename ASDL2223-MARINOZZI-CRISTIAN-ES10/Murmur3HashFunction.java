@@ -0,0 +1,82 @@
+package it.unicam.cs.asdl2223.es10;
+
+/**
+ * Funzione di hash primario che applica al codice hash, come sequenza di 4
+ * byte, la funzione MurmurHash3 a 32 bit di Austin Appleby con il seme dato:
+ * il codice hash viene moltiplicato, ruotato e combinato con il seme, e il
+ * risultato passa per il mescolamento finale fmix32, in cui ogni bit di
+ * ingresso cambia in media metà dei bit di uscita.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public class Murmur3HashFunction extends SeededPrimaryHashFunction {
+
+	private static final int C1 = 0xcc9e2d51;
+
+	private static final int C2 = 0x1b873593;
+
+	// i 32 bit del seme usati come valore iniziale
+	private final int seed32;
+
+	/**
+	 * Crea una funzione con un seme casuale.
+	 */
+	public Murmur3HashFunction() {
+		super();
+		this.seed32 = (int) (this.getSeed() ^ (this.getSeed() >>> 32));
+	}
+
+	/**
+	 * Crea una funzione con il seme dato.
+	 *
+	 * @param seed il seme
+	 */
+	public Murmur3HashFunction(long seed) {
+		super(seed);
+		this.seed32 = (int) (seed ^ (seed >>> 32));
+	}
+
+	@Override
+	protected int mix(int k) {
+		int k1 = k * C1;
+		k1 = Integer.rotateLeft(k1, 15);
+		k1 *= C2;
+		int h1 = this.seed32 ^ k1;
+		h1 = Integer.rotateLeft(h1, 13);
+		h1 = h1 * 5 + 0xe6546b64;
+		// lunghezza in byte dell'ingresso
+		h1 ^= 4;
+		return fmix32(h1);
+	}
+
+	/**
+	 * Mescolamento finale a 32 bit di MurmurHash3; è una biiezione.
+	 *
+	 * @param h il valore da mescolare
+	 * @return il valore mescolato
+	 */
+	public static int fmix32(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Mescolamento finale a 64 bit di MurmurHash3; è una biiezione.
+	 *
+	 * @param h il valore da mescolare
+	 * @return il valore mescolato
+	 */
+	public static long fmix64(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
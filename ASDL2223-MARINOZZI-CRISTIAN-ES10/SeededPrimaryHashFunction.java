@@ -0,0 +1,76 @@
+package it.unicam.cs.asdl2223.es10;
+
+import java.security.SecureRandom;
+
+/**
+ * Base delle funzioni di hash primario che, invece del metodo della divisione,
+ * mescolano tutti i bit del codice hash con una funzione dipendente da un seme
+ * e poi riducono il risultato all'intervallo [0, m - 1] con una
+ * moltiplicazione, (x * m) >>> 32, valida per qualsiasi m e più veloce di
+ * una divisione.
+ *
+ * Con il metodo della divisione codici hash con regolarità, per esempio
+ * multipli di una potenza di due o valori consecutivi con i bit bassi uguali,
+ * finiscono in pochi bucket e formano liste di collisione lunghe; una buona
+ * funzione di mescolamento fa dipendere ogni bit del risultato da tutti i bit
+ * del codice hash. Il seme, scelto a caso per ogni istanza se non viene
+ * indicato, rende imprevedibili le collisioni, per cui chi conosce la
+ * funzione non può costruire elementi che finiscano tutti nello stesso bucket
+ * (HashDoS). Due istanze con lo stesso seme sono equivalenti.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public abstract class SeededPrimaryHashFunction implements PrimaryHashFunction {
+
+	// generatore dei semi casuali, non prevedibile
+	private static final SecureRandom SEEDS = new SecureRandom();
+
+	private final long seed;
+
+	/**
+	 * Crea una funzione con un seme casuale.
+	 */
+	protected SeededPrimaryHashFunction() {
+		this(SEEDS.nextLong());
+	}
+
+	/**
+	 * Crea una funzione con il seme dato.
+	 *
+	 * @param seed il seme
+	 */
+	protected SeededPrimaryHashFunction(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @return il seme della funzione
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * Mescola i bit di un codice hash in funzione del seme.
+	 *
+	 * @param k il codice hash
+	 * @return un valore a 32 bit i cui bit dipendono da tutti i bit di k
+	 */
+	protected abstract int mix(int k);
+
+	/**
+	 * @throws IllegalArgumentException se m non è positivo
+	 */
+	@Override
+	public final int hash(int k, int m) {
+		if (m <= 0)
+			throw new IllegalArgumentException("Numero di bucket non positivo: " + m);
+		return (int) (((this.mix(k) & 0xffffffffL) * m) >>> 32);
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[seed=" + this.seed + "]";
+	}
+}
@@ -0,0 +1,68 @@
+package it.unicam.cs.asdl2223.es10;
+
+/**
+ * Funzione di hash primario che mescola il codice hash come fa wyhash di Wang
+ * Yi per un ingresso di 4 byte, con le sue costanti e il seme dato. Il
+ * mescolamento si basa sul prodotto a 128 bit di due valori a 64 bit, di cui
+ * vengono combinate con uno xor la metà alta e quella bassa: con una sola
+ * moltiplicazione ogni bit del risultato dipende da tutti i bit di ingresso.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ */
+public class WyHashFunction extends SeededPrimaryHashFunction {
+
+	// le costanti segrete di default di wyhash
+	private static final long SECRET0 = 0xa0761d6478bd642fL;
+
+	private static final long SECRET1 = 0xe7037ed1a0b428dbL;
+
+	// il seme dopo il mescolamento iniziale previsto da wyhash
+	private final long mixedSeed;
+
+	/**
+	 * Crea una funzione con un seme casuale.
+	 */
+	public WyHashFunction() {
+		super();
+		this.mixedSeed = this.getSeed() ^ wymix(this.getSeed() ^ SECRET0, SECRET1);
+	}
+
+	/**
+	 * Crea una funzione con il seme dato.
+	 *
+	 * @param seed il seme
+	 */
+	public WyHashFunction(long seed) {
+		super(seed);
+		this.mixedSeed = seed ^ wymix(seed ^ SECRET0, SECRET1);
+	}
+
+	@Override
+	protected int mix(int k) {
+		// per un ingresso di 4 byte wyhash legge due volte gli stessi byte
+		long word = k & 0xffffffffL;
+		long a = ((word << 32) | word) ^ SECRET1;
+		long b = ((word << 32) | word) ^ this.mixedSeed;
+		long low = a * b;
+		long high = unsignedMultiplyHigh(a, b);
+		long r = wymix(low ^ SECRET0 ^ 4, high ^ SECRET1);
+		return (int) (r ^ (r >>> 32));
+	}
+
+	/*
+	 * Prodotto a 128 bit senza segno di a e b, con le due metà combinate con
+	 * uno xor
+	 */
+	private static long wymix(long a, long b) {
+		return (a * b) ^ unsignedMultiplyHigh(a, b);
+	}
+
+	/*
+	 * I 64 bit alti del prodotto senza segno di a e b, ricavati da quelli del
+	 * prodotto con segno
+	 */
+	private static long unsignedMultiplyHigh(long a, long b) {
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+}
@@ -1,6 +1,10 @@
 package it.unicam.cs.asdl2223.es12;
 
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Classe singoletto che fornisce lo schema generico di visita Breadth-First di
@@ -73,6 +77,369 @@ public class BFSVisitor<L> {
 		// la visita è finita
 	}
 
+	/**
+	 * Esegue la visita in ampiezza di una fotografia CSR di un grafo a partire da
+	 * un nodo sorgente. Il risultato è lo stesso di
+	 * {@link #BFSVisit(Graph, GraphNode)}: vengono settati nei nodi colore,
+	 * distanza intera e predecessore e il metodo visitNode viene chiamato su ogni
+	 * nodo quando passa da grigio a nero. La coda è un array di indici e i nodi
+	 * adiacenti vengono letti direttamente dagli array della fotografia, per cui
+	 * la visita non crea nessun insieme di nodi.
+	 * 
+	 * @param g      la fotografia del grafo da visitare.
+	 * @param source il nodo sorgente.
+	 * @throws NullPointerException     se almeno un valore passato è null
+	 * @throws IllegalArgumentException se il nodo sorgente non appartiene al grafo
+	 *                                  dato
+	 */
+	public void BFSVisit(CsrGraph<L> g, GraphNode<L> source) {
+		if (g == null)
+			throw new NullPointerException("BFS ERROR: Grafo nullo");
+		this.BFSVisit(g, source, new TraversalContext<L>(g, true));
+	}
+
+	/**
+	 * Esegue la visita in ampiezza di una fotografia CSR di un grafo a partire da
+	 * un nodo sorgente come {@link #BFSVisit(CsrGraph, GraphNode)}, ma scrive
+	 * colori, distanze intere e predecessori solo nel contesto passato, senza
+	 * modificare i nodi. Più visite dello stesso grafo possono quindi essere
+	 * eseguite contemporaneamente, ognuna con il proprio contesto. Il metodo
+	 * visitNode viene chiamato come nelle altre visite.
+	 * 
+	 * @param g       la fotografia del grafo da visitare.
+	 * @param source  il nodo sorgente.
+	 * @param context il contesto in cui scrivere i risultati della visita
+	 * @throws NullPointerException     se almeno un valore passato è null
+	 * @throws IllegalArgumentException se il nodo sorgente non appartiene al grafo
+	 *                                  dato o se il contesto non si riferisce al
+	 *                                  grafo dato
+	 */
+	public void BFSVisit(CsrGraph<L> g, GraphNode<L> source, TraversalContext<L> context) {
+		int s = checkArguments(g, source, context);
+		int n = g.nodeCount();
+		// Inizializziamo il grafo: la distanza -1 indica un nodo bianco
+		for (int i = 0; i < n; i++) {
+			context.setColor(i, GraphNode.COLOR_WHITE);
+			context.setIntegerDistance(i, -1);
+			context.setPrevious(i, -1);
+		}
+		// Ogni nodo entra in coda al più una volta, quindi basta un array di n
+		// posizioni con un indice di testa e uno di coda
+		int[] queue = new int[n];
+		int testa = 0;
+		int coda = 0;
+		context.setColor(s, GraphNode.COLOR_GREY);
+		context.setIntegerDistance(s, 0);
+		queue[coda++] = s;
+		// Ciclo Principale
+		while (testa < coda) {
+			int u = queue[testa++];
+			for (int k = g.firstEdgeOf(u); k < g.endEdgeOf(u); k++) {
+				int v = g.getEdgeTarget(k);
+				// Scopro tutti i nodi bianchi adiacenti al nodo corrente
+				if (context.getIntegerDistance(v) == -1) {
+					context.setColor(v, GraphNode.COLOR_GREY);
+					context.setIntegerDistance(v, context.getIntegerDistance(u) + 1);
+					context.setPrevious(v, u);
+					queue[coda++] = v;
+				}
+			}
+			// Il nodo corrente diventa nero
+			context.setColor(u, GraphNode.COLOR_BLACK);
+			this.visitNode(g.getNodeAtIndex(u));
+		}
+	}
+
+	/**
+	 * Esegue in parallelo la visita in ampiezza di una fotografia CSR di un grafo
+	 * a partire da un nodo sorgente. La visita procede per livelli: i nodi a
+	 * distanza d (la frontiera) vengono espansi da più task del pool, che
+	 * scoprono i nodi a distanza d + 1. Ogni livello viene espanso "dall'alto"
+	 * (scorrendo gli archi uscenti dai nodi della frontiera) oppure "dal basso"
+	 * (cercando per ogni nodo non ancora scoperto un arco entrante da un nodo
+	 * della frontiera, rappresentata come un insieme di bit), scegliendo la
+	 * direzione che esamina meno archi secondo l'euristica di Beamer et al.
+	 * 
+	 * Le distanze settate nei nodi sono le stesse di
+	 * {@link #BFSVisit(Graph, GraphNode)} e il predecessore di ogni nodo è un
+	 * nodo a distanza minore di uno collegato da un arco; fra i possibili
+	 * predecessori viene scelto sempre quello di indice minimo, per cui il
+	 * risultato non dipende dall'ordine di esecuzione dei task. I nodi sono
+	 * modificati e il metodo visitNode viene chiamato solo dal thread chiamante,
+	 * fra un livello e l'altro: prima diventano grigi i nodi del livello
+	 * successivo e poi diventano neri e vengono visitati i nodi della frontiera,
+	 * in ordine di indice.
+	 * 
+	 * @param g      la fotografia del grafo da visitare.
+	 * @param source il nodo sorgente.
+	 * @param pool   il pool su cui espandere le frontiere.
+	 * @throws NullPointerException     se almeno un valore passato è null
+	 * @throws IllegalArgumentException se il nodo sorgente non appartiene al grafo
+	 *                                  dato
+	 */
+	public void BFSVisit(CsrGraph<L> g, GraphNode<L> source, ForkJoinPool pool) {
+		if (g == null)
+			throw new NullPointerException("BFS ERROR: Grafo nullo");
+		this.BFSVisit(g, source, pool, new TraversalContext<L>(g, true));
+	}
+
+	/**
+	 * Esegue in parallelo la visita in ampiezza di una fotografia CSR di un grafo
+	 * come {@link #BFSVisit(CsrGraph, GraphNode, ForkJoinPool)}, ma scrive
+	 * colori, distanze intere e predecessori solo nel contesto passato, senza
+	 * modificare i nodi.
+	 * 
+	 * @param g       la fotografia del grafo da visitare.
+	 * @param source  il nodo sorgente.
+	 * @param pool    il pool su cui espandere le frontiere.
+	 * @param context il contesto in cui scrivere i risultati della visita
+	 * @throws NullPointerException     se almeno un valore passato è null
+	 * @throws IllegalArgumentException se il nodo sorgente non appartiene al grafo
+	 *                                  dato o se il contesto non si riferisce al
+	 *                                  grafo dato
+	 */
+	public void BFSVisit(CsrGraph<L> g, GraphNode<L> source, ForkJoinPool pool, TraversalContext<L> context) {
+		int s = checkArguments(g, source, context);
+		if (pool == null)
+			throw new NullPointerException("BFS ERROR: Pool nullo");
+		// Inizializziamo il grafo
+		for (int i = 0; i < g.nodeCount(); i++) {
+			context.setColor(i, GraphNode.COLOR_WHITE);
+			context.setIntegerDistance(i, -1);
+			context.setPrevious(i, -1);
+		}
+		ParallelBFS<L> visita = new ParallelBFS<L>(g, s);
+		context.setColor(s, GraphNode.COLOR_GREY);
+		context.setIntegerDistance(s, 0);
+		int[] frontiera = { s };
+		int livello = 0;
+		while (frontiera.length > 0) {
+			int[] prossima = visita.espandi(frontiera, pool);
+			// Scopro i nodi del livello successivo
+			for (int v : prossima) {
+				visita.distanza[v] = livello + 1;
+				context.setColor(v, GraphNode.COLOR_GREY);
+				context.setIntegerDistance(v, livello + 1);
+				context.setPrevious(v, visita.padre.get(v));
+			}
+			// I nodi della frontiera diventano neri
+			for (int u : frontiera) {
+				context.setColor(u, GraphNode.COLOR_BLACK);
+				this.visitNode(g.getNodeAtIndex(u));
+			}
+			frontiera = prossima;
+			livello++;
+		}
+	}
+
+	/*
+	 * Controlla i parametri delle visite su una fotografia e restituisce
+	 * l'indice della sorgente
+	 */
+	private static <L> int checkArguments(CsrGraph<L> g, GraphNode<L> source, TraversalContext<L> context) {
+		if (g == null)
+			throw new NullPointerException("BFS ERROR: Grafo nullo");
+		if (source == null)
+			throw new NullPointerException("BFS ERROR: Sorgente nulla");
+		if (context == null)
+			throw new NullPointerException("BFS ERROR: Contesto nullo");
+		int s = g.getNodeIndexOf(source);
+		if (s == -1)
+			throw new IllegalArgumentException("BFS ERROR: La sorgente non è un nodo del grafo");
+		if (context.getGraph() != g)
+			throw new IllegalArgumentException("BFS ERROR: Il contesto non si riferisce al grafo");
+		return s;
+	}
+
+	/*
+	 * Stato della visita in ampiezza parallela. Durante l'espansione di un
+	 * livello le distanze sono solo lette; i predecessori dei nodi scoperti
+	 * sono scritti in un array atomico, tenendo per ogni nodo l'indice minimo
+	 * proposto. Le distanze dei nodi scoperti vengono scritte dal thread
+	 * chiamante dopo la terminazione dei task.
+	 */
+	private static class ParallelBFS<L> {
+
+		// parametri dell'euristica di cambio di direzione di Beamer et al.
+		private static final int ALFA = 14;
+
+		private static final int BETA = 24;
+
+		// dimensione sotto la quale un intervallo non viene più diviso
+		private static final int SOGLIA_FRONTIERA = 256;
+
+		private static final int SOGLIA_NODI = 4096;
+
+		// predecessore di un nodo non ancora scoperto
+		private static final int NESSUNO = Integer.MAX_VALUE;
+
+		private final CsrGraph<L> g;
+
+		// distanza dalla sorgente, -1 se il nodo non è ancora stato scoperto
+		private final int[] distanza;
+
+		private final AtomicIntegerArray padre;
+
+		// numero di archi uscenti dai nodi non ancora scoperti
+		private long archiInesplorati;
+
+		// direzione in cui è stato espanso l'ultimo livello
+		private boolean dalBasso;
+
+		ParallelBFS(CsrGraph<L> g, int s) {
+			int n = g.nodeCount();
+			this.g = g;
+			this.distanza = new int[n];
+			Arrays.fill(this.distanza, -1);
+			this.distanza[s] = 0;
+			this.padre = new AtomicIntegerArray(n);
+			for (int i = 0; i < n; i++)
+				this.padre.set(i, NESSUNO);
+			this.archiInesplorati = g.edgeCount() - grado(s);
+			this.dalBasso = false;
+		}
+
+		private int grado(int u) {
+			return this.g.endEdgeOf(u) - this.g.firstEdgeOf(u);
+		}
+
+		/*
+		 * Espande una frontiera e restituisce i nodi scoperti in ordine di
+		 * indice, con il predecessore già assegnato
+		 */
+		int[] espandi(int[] frontiera, ForkJoinPool pool) {
+			long archiFrontiera = 0;
+			for (int u : frontiera)
+				archiFrontiera += grado(u);
+			if (!this.dalBasso && archiFrontiera > this.archiInesplorati / ALFA)
+				this.dalBasso = true;
+			else if (this.dalBasso && frontiera.length < this.g.nodeCount() / BETA)
+				this.dalBasso = false;
+			int[] prossima;
+			if (this.dalBasso) {
+				long[] bit = new long[(this.g.nodeCount() + 63) >>> 6];
+				for (int u : frontiera)
+					bit[u >>> 6] |= 1L << u;
+				prossima = pool.invoke(new BottomUpTask(bit, 0, this.g.nodeCount()));
+			} else {
+				prossima = pool.invoke(new TopDownTask(frontiera, 0, frontiera.length));
+				Arrays.sort(prossima);
+			}
+			for (int v : prossima)
+				this.archiInesplorati -= grado(v);
+			return prossima;
+		}
+
+		/*
+		 * Espansione dall'alto delle posizioni da primo a ultimo della frontiera:
+		 * ogni nodo bianco adiacente riceve come predecessore il minimo fra
+		 * quello già proposto e il nodo corrente; il task che lo propone per
+		 * primo lo aggiunge ai nodi scoperti
+		 */
+		private class TopDownTask extends RecursiveTask<int[]> {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int[] frontiera;
+
+			private final int primo;
+
+			private final int ultimo;
+
+			TopDownTask(int[] frontiera, int primo, int ultimo) {
+				this.frontiera = frontiera;
+				this.primo = primo;
+				this.ultimo = ultimo;
+			}
+
+			@Override
+			protected int[] compute() {
+				if (this.ultimo - this.primo > SOGLIA_FRONTIERA) {
+					int medio = (this.primo + this.ultimo) >>> 1;
+					TopDownTask sinistra = new TopDownTask(this.frontiera, this.primo, medio);
+					sinistra.fork();
+					int[] destra = new TopDownTask(this.frontiera, medio, this.ultimo).compute();
+					return concatena(sinistra.join(), destra);
+				}
+				int[] scoperti = new int[16];
+				int quanti = 0;
+				for (int i = this.primo; i < this.ultimo; i++) {
+					int u = this.frontiera[i];
+					for (int k = g.firstEdgeOf(u); k < g.endEdgeOf(u); k++) {
+						int v = g.getEdgeTarget(k);
+						if (distanza[v] != -1)
+							continue;
+						int p = padre.get(v);
+						while (u < p && !padre.compareAndSet(v, p, u))
+							p = padre.get(v);
+						if (p == NESSUNO) {
+							if (quanti == scoperti.length)
+								scoperti = Arrays.copyOf(scoperti, 2 * quanti);
+							scoperti[quanti++] = v;
+						}
+					}
+				}
+				return Arrays.copyOf(scoperti, quanti);
+			}
+		}
+
+		/*
+		 * Espansione dal basso dei nodi di indice da primo a ultimo: ogni nodo
+		 * bianco cerca fra i nodi di partenza dei suoi archi entranti, che sono
+		 * in ordine crescente, il primo che appartiene alla frontiera
+		 */
+		private class BottomUpTask extends RecursiveTask<int[]> {
+
+			private static final long serialVersionUID = 1L;
+
+			private final long[] frontiera;
+
+			private final int primo;
+
+			private final int ultimo;
+
+			BottomUpTask(long[] frontiera, int primo, int ultimo) {
+				this.frontiera = frontiera;
+				this.primo = primo;
+				this.ultimo = ultimo;
+			}
+
+			@Override
+			protected int[] compute() {
+				if (this.ultimo - this.primo > SOGLIA_NODI) {
+					int medio = (this.primo + this.ultimo) >>> 1;
+					BottomUpTask sinistra = new BottomUpTask(this.frontiera, this.primo, medio);
+					sinistra.fork();
+					int[] destra = new BottomUpTask(this.frontiera, medio, this.ultimo).compute();
+					return concatena(sinistra.join(), destra);
+				}
+				int[] scoperti = new int[16];
+				int quanti = 0;
+				for (int v = this.primo; v < this.ultimo; v++) {
+					if (distanza[v] != -1)
+						continue;
+					for (int j = g.firstIngoingEdgeOf(v); j < g.endIngoingEdgeOf(v); j++) {
+						int u = g.getIngoingEdgeSource(j);
+						if ((this.frontiera[u >>> 6] & (1L << u)) != 0) {
+							padre.set(v, u);
+							if (quanti == scoperti.length)
+								scoperti = Arrays.copyOf(scoperti, 2 * quanti);
+							scoperti[quanti++] = v;
+							break;
+						}
+					}
+				}
+				return Arrays.copyOf(scoperti, quanti);
+			}
+		}
+
+		private static int[] concatena(int[] a, int[] b) {
+			int[] risultato = Arrays.copyOf(a, a.length + b.length);
+			System.arraycopy(b, 0, risultato, a.length, b.length);
+			return risultato;
+		}
+	}
+
 	/**
 	 * Questo metodo, che di default non fa niente, viene chiamato su tutti i nodi
 	 * visitati durante la BFS quando i nodi passano da grigio a nero. Ridefinire il
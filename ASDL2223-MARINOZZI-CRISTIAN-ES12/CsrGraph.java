@@ -0,0 +1,254 @@
+package it.unicam.cs.asdl2223.es12;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fotografia immutabile di un grafo in formato CSR (compressed sparse row). I
+ * nodi sono indicizzati da 0 a nodeCount() - 1 e gli archi uscenti dal nodo di
+ * indice u occupano le posizioni da {@code firstEdgeOf(u)} (inclusa) a
+ * {@code endEdgeOf(u)} (esclusa) dell'array dei target. Se il grafo non è
+ * orientato ogni arco compare sia fra quelli del primo nodo che fra quelli del
+ * secondo, con il target pari all'altro estremo (un cappio compare una volta
+ * sola).
+ *
+ * I pesi sono memorizzati in un array parallelo a quello dei target solo se
+ * almeno un arco del grafo è pesato. Gli oggetti GraphEdge originali sono
+ * conservati per gli algoritmi che devono restituire archi del grafo. Viene
+ * mantenuto anche l'indice inverso degli archi entranti in ogni nodo, ordinati
+ * per indice del nodo di partenza, per le visite che procedono all'indietro.
+ *
+ * Le visite su questa rappresentazione scorrono array di interi contigui e
+ * non creano nessun insieme di nodi adiacenti. Poiché la fotografia non viene
+ * mai modificata può essere letta contemporaneamente da più thread; le
+ * modifiche al grafo originale successive alla creazione non si riflettono
+ * sulla fotografia.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L> le etichette dei nodi del grafo
+ */
+public class CsrGraph<L> {
+
+	// indica se il grafo fotografato è orientato
+	private final boolean directed;
+
+	// nodi del grafo, il nodo di indice i è in posizione i
+	private final List<GraphNode<L>> nodes;
+
+	// associa ad ogni nodo il suo indice
+	private final Map<GraphNode<L>, Integer> indices;
+
+	/*
+	 * offsets[u] è la posizione del primo arco uscente dal nodo u, offsets[n] è
+	 * il numero totale di archi memorizzati
+	 */
+	private final int[] offsets;
+
+	// targets[k] è l'indice del nodo di arrivo dell'arco k
+	private final int[] targets;
+
+	// weights[k] è il peso dell'arco k, null se nessun arco è pesato
+	private final double[] weights;
+
+	/*
+	 * Indice inverso: le posizioni da reverseOffsets[v] a reverseOffsets[v + 1]
+	 * di reverseSources contengono gli indici dei nodi di partenza degli archi
+	 * entranti in v, in ordine crescente
+	 */
+	private final int[] reverseOffsets;
+
+	private final int[] reverseSources;
+
+	// edges.get(k) è l'arco originale in posizione k
+	private final List<GraphEdge<L>> edges;
+
+	/**
+	 * Crea la fotografia CSR di un grafo.
+	 *
+	 * @param graph il grafo da fotografare
+	 * @throws NullPointerException se il grafo passato è nullo
+	 */
+	public CsrGraph(Graph<L> graph) {
+		if (graph == null)
+			throw new NullPointerException("Grafo nullo");
+		this.directed = graph.isDirected();
+		int n = graph.nodeCount();
+		List<GraphNode<L>> nodi = new ArrayList<GraphNode<L>>(n);
+		this.indices = new HashMap<GraphNode<L>, Integer>();
+		for (GraphNode<L> nodo : graph.getNodes()) {
+			this.indices.put(nodo, nodi.size());
+			nodi.add(nodo);
+		}
+		this.nodes = Collections.unmodifiableList(nodi);
+		// prima passata: conto gli archi di ogni nodo e controllo se ci sono
+		// archi pesati
+		this.offsets = new int[n + 1];
+		boolean pesato = false;
+		for (int u = 0; u < n; u++) {
+			int grado = 0;
+			for (GraphEdge<L> arco : graph.getEdgesOf(nodi.get(u))) {
+				grado++;
+				pesato = pesato || arco.hasWeight();
+			}
+			this.offsets[u + 1] = this.offsets[u] + grado;
+		}
+		int m = this.offsets[n];
+		this.targets = new int[m];
+		this.weights = pesato ? new double[m] : null;
+		List<GraphEdge<L>> archi = new ArrayList<GraphEdge<L>>(m);
+		// seconda passata: riempio gli array nell'ordine dei nodi
+		for (int u = 0; u < n; u++) {
+			GraphNode<L> nodo = nodi.get(u);
+			for (GraphEdge<L> arco : graph.getEdgesOf(nodo)) {
+				int k = archi.size();
+				// in un grafo non orientato il target è l'altro estremo
+				GraphNode<L> target = this.directed || !arco.getNode2().equals(nodo) ? arco.getNode2()
+						: arco.getNode1();
+				this.targets[k] = this.indices.get(target);
+				if (pesato)
+					this.weights[k] = arco.getWeight();
+				archi.add(arco);
+			}
+		}
+		this.edges = Collections.unmodifiableList(archi);
+		// indice inverso calcolato con un counting sort sui nodi di arrivo;
+		// scorrendo i nodi di partenza in ordine crescente ogni lista risulta
+		// ordinata
+		this.reverseOffsets = new int[n + 1];
+		for (int k = 0; k < m; k++)
+			this.reverseOffsets[this.targets[k] + 1]++;
+		for (int v = 0; v < n; v++)
+			this.reverseOffsets[v + 1] += this.reverseOffsets[v];
+		this.reverseSources = new int[m];
+		int[] prossimo = Arrays.copyOf(this.reverseOffsets, n);
+		for (int u = 0; u < n; u++)
+			for (int k = this.offsets[u]; k < this.offsets[u + 1]; k++)
+				this.reverseSources[prossimo[this.targets[k]]++] = u;
+	}
+
+	/**
+	 * @return true se il grafo fotografato è orientato
+	 */
+	public boolean isDirected() {
+		return this.directed;
+	}
+
+	/**
+	 * @return il numero di nodi
+	 */
+	public int nodeCount() {
+		return this.nodes.size();
+	}
+
+	/**
+	 * Restituisce il numero di archi memorizzati. In un grafo non orientato ogni
+	 * arco che non è un cappio viene contato due volte, una per estremo.
+	 *
+	 * @return il numero di archi memorizzati
+	 */
+	public int edgeCount() {
+		return this.targets.length;
+	}
+
+	/**
+	 * Restituisce l'indice di un nodo.
+	 *
+	 * @param node il nodo
+	 * @return l'indice del nodo, oppure -1 se il nodo non appartiene al grafo
+	 * @throws NullPointerException se il nodo passato è nullo
+	 */
+	public int getNodeIndexOf(GraphNode<L> node) {
+		if (node == null)
+			throw new NullPointerException("Nodo nullo");
+		Integer i = this.indices.get(node);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Restituisce il nodo con un certo indice.
+	 *
+	 * @param i l'indice del nodo
+	 * @return il nodo di indice i
+	 * @throws IndexOutOfBoundsException se l'indice non è valido
+	 */
+	public GraphNode<L> getNodeAtIndex(int i) {
+		return this.nodes.get(i);
+	}
+
+	/**
+	 * @param u l'indice di un nodo
+	 * @return la posizione del primo arco uscente da u
+	 */
+	public int firstEdgeOf(int u) {
+		return this.offsets[u];
+	}
+
+	/**
+	 * @param u l'indice di un nodo
+	 * @return la posizione successiva all'ultimo arco uscente da u
+	 */
+	public int endEdgeOf(int u) {
+		return this.offsets[u + 1];
+	}
+
+	/**
+	 * @param k la posizione di un arco
+	 * @return l'indice del nodo di arrivo dell'arco
+	 */
+	public int getEdgeTarget(int k) {
+		return this.targets[k];
+	}
+
+	/**
+	 * @param v l'indice di un nodo
+	 * @return la posizione nell'indice inverso del primo arco entrante in v
+	 */
+	public int firstIngoingEdgeOf(int v) {
+		return this.reverseOffsets[v];
+	}
+
+	/**
+	 * @param v l'indice di un nodo
+	 * @return la posizione nell'indice inverso successiva all'ultimo arco
+	 *         entrante in v
+	 */
+	public int endIngoingEdgeOf(int v) {
+		return this.reverseOffsets[v + 1];
+	}
+
+	/**
+	 * @param j una posizione nell'indice inverso
+	 * @return l'indice del nodo di partenza dell'arco entrante corrispondente
+	 */
+	public int getIngoingEdgeSource(int j) {
+		return this.reverseSources[j];
+	}
+
+	/**
+	 * @return true se almeno un arco del grafo è pesato
+	 */
+	public boolean hasWeights() {
+		return this.weights != null;
+	}
+
+	/**
+	 * @param k la posizione di un arco
+	 * @return il peso dell'arco, {@code Double.NaN} se l'arco non è pesato
+	 */
+	public double getEdgeWeight(int k) {
+		return this.weights == null ? Double.NaN : this.weights[k];
+	}
+
+	/**
+	 * @param k la posizione di un arco
+	 * @return l'arco originale del grafo
+	 */
+	public GraphEdge<L> getEdge(int k) {
+		return this.edges.get(k);
+	}
+}
@@ -1,9 +1,20 @@
 package it.unicam.cs.asdl2223.es12;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Classe singoletto che fornisce lo schema generico di visita Depth-First di un
  * grafo rappresentato da un oggetto di tipo Graph<L>.
  * 
+ * Le visite sono iterative, con una pila esplicita al posto della ricorsione,
+ * per cui possono attraversare cammini di qualsiasi lunghezza. Su una
+ * fotografia CSR del grafo le componenti debolmente connesse possono essere
+ * visitate in parallelo ottenendo gli stessi tempi della visita sequenziale.
+ * 
  * @author Template: Luca Tesei, Implementazione: collettiva
  *
  * @param <L> le etichette dei nodi del grafo
@@ -42,14 +53,20 @@ public class DFSVisitor<L> {
 		// ciclo esterno
 		for (GraphNode<L> n : g.getNodes()) {
 			if (n.getColor() == GraphNode.COLOR_WHITE)
-				// chiamo la DFS ricorsiva su n
+				// chiamo la DFS su n
 				recDFS(g, n);
 		}
 		// Fine della visita DFS "esterna"
 	}
 
 	/*
-	 * Esegue la DFS ricorsivamente sul nodo passato.
+	 * Esegue la DFS a partire dal nodo passato. Il nome è quello del template,
+	 * ma la visita non è ricorsiva: i nodi grigi sono su una pila esplicita,
+	 * ognuno con l'iteratore sui suoi nodi adiacenti, per cui la profondità
+	 * della visita non è limitata dalla dimensione dello stack del thread. I
+	 * tempi assegnati sono gli stessi della versione ricorsiva, perché i nodi
+	 * adiacenti vengono esaminati nello stesso ordine e il colore di ognuno
+	 * viene controllato nello stesso momento.
 	 * 
 	 * @param g il grafo
 	 * 
@@ -57,28 +74,381 @@ public class DFSVisitor<L> {
 	 */
 	protected void recDFS(Graph<L> g, GraphNode<L> u) {
 		// NOTA: chiamare il metodo visitNode alla "scoperta" di un nuovo nodo
+		ArrayDeque<GraphNode<L>> grigi = new ArrayDeque<GraphNode<L>>();
+		ArrayDeque<Iterator<GraphNode<L>>> adiacenti = new ArrayDeque<Iterator<GraphNode<L>>>();
 		// Scopro il nodo u
+		this.discover(u);
+		grigi.push(u);
+		adiacenti.push(g.getAdjacentNodesOf(u).iterator());
+		while (!grigi.isEmpty()) {
+			Iterator<GraphNode<L>> it = adiacenti.peek();
+			// cerco il prossimo nodo bianco adiacente al nodo in cima alla pila
+			GraphNode<L> v = null;
+			while (v == null && it.hasNext()) {
+				GraphNode<L> w = it.next();
+				if (w.getColor() == GraphNode.COLOR_WHITE)
+					v = w;
+			}
+			if (v != null) {
+				// assegno il puntatore per l'albero di copertura e vado in
+				// profondità
+				v.setPrevious(grigi.peek());
+				this.discover(v);
+				grigi.push(v);
+				adiacenti.push(g.getAdjacentNodesOf(v).iterator());
+			} else {
+				// tutti i nodi adiacenti sono diventati neri
+				adiacenti.pop();
+				this.finish(grigi.pop());
+			}
+		}
+	}
+
+	/**
+	 * Esegue la visita in profondità di una fotografia CSR di un grafo. Il
+	 * risultato è lo stesso di {@link #DFSVisit(Graph)}, con i nodi considerati
+	 * nell'ordine dei loro indici: vengono settati nei nodi colore, tempi di
+	 * scoperta e di fine visita e predecessore e il metodo visitNode viene
+	 * chiamato su ogni nodo quando passa da grigio a nero. I nodi adiacenti
+	 * vengono letti direttamente dagli array della fotografia e la pila della
+	 * visita è un array di indici, per cui la visita non crea nessun insieme di
+	 * nodi e non è limitata dalla dimensione dello stack del thread.
+	 * 
+	 * @param g la fotografia del grafo da visitare.
+	 * @throws NullPointerException se il grafo passato è null
+	 */
+	public void DFSVisit(CsrGraph<L> g) {
+		if (g == null)
+			throw new NullPointerException("DFS ERROR: Grafo nullo");
+		this.time = this.csrDFS(g, new TraversalContext<L>(g, true));
+	}
+
+	/**
+	 * Esegue la visita in profondità di una fotografia CSR di un grafo come
+	 * {@link #DFSVisit(CsrGraph)}, ma scrive colori, tempi e predecessori solo
+	 * nel contesto passato, senza modificare i nodi né la variabile time. Più
+	 * visite dello stesso grafo possono quindi essere eseguite
+	 * contemporaneamente, ognuna con il proprio contesto, anche dallo stesso
+	 * oggetto DFSVisitor se visitNode non usa altro stato.
+	 * 
+	 * @param g       la fotografia del grafo da visitare.
+	 * @param context il contesto in cui scrivere i risultati della visita
+	 * @throws NullPointerException     se almeno un valore passato è null
+	 * @throws IllegalArgumentException se il contesto non si riferisce al grafo
+	 *                                  dato
+	 */
+	public void DFSVisit(CsrGraph<L> g, TraversalContext<L> context) {
+		checkArguments(g, context);
+		this.csrDFS(g, context);
+	}
+
+	/*
+	 * Visita sequenziale di una fotografia, restituisce il tempo finale
+	 */
+	private int csrDFS(CsrGraph<L> g, TraversalContext<L> context) {
+		int n = g.nodeCount();
+		// inizializziamo i nodi del grafo
+		for (int i = 0; i < n; i++) {
+			context.setColor(i, GraphNode.COLOR_WHITE);
+			context.setPrevious(i, -1);
+			context.setEnteringTime(i, -1);
+			context.setExitingTime(i, -1);
+		}
+		// prossimo[i] è la posizione del prossimo arco di i da esaminare
+		int[] pila = new int[n];
+		int[] prossimo = new int[n];
+		int tempo = 0;
+		// ciclo esterno
+		for (int r = 0; r < n; r++) {
+			if (context.getColor(r) != GraphNode.COLOR_WHITE)
+				continue;
+			int cima = 0;
+			pila[cima] = r;
+			prossimo[r] = g.firstEdgeOf(r);
+			context.setColor(r, GraphNode.COLOR_GREY);
+			context.setEnteringTime(r, ++tempo);
+			while (cima >= 0) {
+				int u = pila[cima];
+				// cerco il prossimo nodo bianco adiacente a u
+				while (prossimo[u] < g.endEdgeOf(u)
+						&& context.getColor(g.getEdgeTarget(prossimo[u])) != GraphNode.COLOR_WHITE)
+					prossimo[u]++;
+				if (prossimo[u] < g.endEdgeOf(u)) {
+					int v = g.getEdgeTarget(prossimo[u]++);
+					prossimo[v] = g.firstEdgeOf(v);
+					pila[++cima] = v;
+					context.setPrevious(v, u);
+					context.setColor(v, GraphNode.COLOR_GREY);
+					context.setEnteringTime(v, ++tempo);
+				} else {
+					cima--;
+					context.setColor(u, GraphNode.COLOR_BLACK);
+					context.setExitingTime(u, ++tempo);
+					visitNode(g.getNodeAtIndex(u));
+				}
+			}
+		}
+		return tempo;
+	}
+
+	/**
+	 * Esegue la visita in profondità di una fotografia CSR di un grafo
+	 * esplorando in parallelo le sue componenti debolmente connesse, cioè le
+	 * componenti connesse del grafo ottenuto ignorando l'orientamento degli
+	 * archi. Una visita non esce mai dalla componente da cui parte, per cui le
+	 * componenti vengono assegnate ai thread del pool e visitate con tempi
+	 * relativi all'albero DFS corrente; alla fine ogni albero viene spostato
+	 * in avanti del numero di tempi usati dagli alberi con radice di indice
+	 * minore. In questo modo i tempi, i predecessori e i colori settati nei nodi
+	 * sono esattamente quelli di {@link #DFSVisit(CsrGraph)}.
+	 * 
+	 * Il metodo visitNode viene chiamato alla fine, sul thread chiamante, su
+	 * tutti i nodi in ordine di tempo di fine visita, cioè nello stesso ordine
+	 * della visita sequenziale.
+	 * 
+	 * @param g    la fotografia del grafo da visitare.
+	 * @param pool il pool su cui visitare le componenti
+	 * @throws NullPointerException se il grafo o il pool passati sono null
+	 */
+	public void DFSVisit(CsrGraph<L> g, ForkJoinPool pool) {
+		if (g == null)
+			throw new NullPointerException("DFS ERROR: Grafo nullo");
+		this.DFSVisit(g, pool, new TraversalContext<L>(g, true));
+		this.time = 2 * g.nodeCount();
+	}
+
+	/**
+	 * Esegue la visita in profondità parallela di una fotografia CSR di un grafo
+	 * come {@link #DFSVisit(CsrGraph, ForkJoinPool)}, ma scrive colori, tempi e
+	 * predecessori solo nel contesto passato, senza modificare i nodi né la
+	 * variabile time.
+	 * 
+	 * @param g       la fotografia del grafo da visitare.
+	 * @param pool    il pool su cui visitare le componenti
+	 * @param context il contesto in cui scrivere i risultati della visita
+	 * @throws NullPointerException     se almeno un valore passato è null
+	 * @throws IllegalArgumentException se il contesto non si riferisce al grafo
+	 *                                  dato
+	 */
+	public void DFSVisit(CsrGraph<L> g, ForkJoinPool pool, TraversalContext<L> context) {
+		checkArguments(g, context);
+		if (pool == null)
+			throw new NullPointerException("DFS ERROR: Pool nullo");
+		int n = g.nodeCount();
+		ParallelDFS<L> visita = new ParallelDFS<L>(g);
+		pool.invoke(visita.new ComponentsTask(0, visita.numeroComponenti()));
+		// calcolo il tempo di partenza di ogni albero nell'ordine delle radici
+		int[] inizio = new int[n];
+		int tempo = 0;
+		for (int r = 0; r < n; r++) {
+			if (visita.radice[r] == r) {
+				inizio[r] = tempo;
+				tempo += 2 * visita.dimensione[r];
+			}
+		}
+		// riporto i risultati nel contesto e ordino i nodi per tempo di fine
+		// visita
+		int[] perUscita = new int[2 * n + 1];
+		Arrays.fill(perUscita, -1);
+		for (int i = 0; i < n; i++) {
+			int spostamento = inizio[visita.radice[i]];
+			context.setColor(i, GraphNode.COLOR_BLACK);
+			context.setPrevious(i, visita.padre[i]);
+			context.setEnteringTime(i, visita.entrata[i] + spostamento);
+			context.setExitingTime(i, visita.uscita[i] + spostamento);
+			perUscita[visita.uscita[i] + spostamento] = i;
+		}
+		for (int i : perUscita)
+			if (i != -1)
+				visitNode(g.getNodeAtIndex(i));
+	}
+
+	private static <L> void checkArguments(CsrGraph<L> g, TraversalContext<L> context) {
+		if (g == null)
+			throw new NullPointerException("DFS ERROR: Grafo nullo");
+		if (context == null)
+			throw new NullPointerException("DFS ERROR: Contesto nullo");
+		if (context.getGraph() != g)
+			throw new IllegalArgumentException("DFS ERROR: Il contesto non si riferisce al grafo");
+	}
+
+	// Scopre un nodo: diventa grigio e riceve il tempo di scoperta
+	private void discover(GraphNode<L> u) {
 		u.setColor(GraphNode.COLOR_GREY);
-		// Incremento il tempo globale
 		this.time++;
-		// Assegno ad n il tempo di scoperta
 		u.setEnteringTime(this.time);
-		for (GraphNode<L> v : g.getAdjacentNodesOf(u)) {
-			if (v.getColor() == GraphNode.COLOR_WHITE) {
-				// assegno il puntatore per l'albero di copertura
-				v.setPrevious(u);
-				// vado in profondità
-				recDFS(g, v);
-			}
-		}
-		// tutti i nodi adiacenti a u sono diventati neri
-		// u diventa nero e assegno a u il tempo di uscita
+	}
+
+	// Termina un nodo: diventa nero, riceve il tempo di uscita e viene visitato
+	private void finish(GraphNode<L> u) {
 		u.setColor(GraphNode.COLOR_BLACK);
 		this.time++;
 		u.setExitingTime(this.time);
 		visitNode(u);
 	}
 
+	/*
+	 * Stato della visita parallela. Ogni nodo appartiene a una sola componente
+	 * e ogni componente è visitata da un solo task, per cui i task scrivono in
+	 * posizioni disgiunte degli stessi array; i valori sono letti dal thread
+	 * chiamante solo dopo la terminazione di tutti i task.
+	 */
+	private static class ParallelDFS<L> {
+
+		// numero di nodi sotto il quale un gruppo di componenti non viene diviso
+		private static final int SOGLIA = 1 << 12;
+
+		private final CsrGraph<L> g;
+
+		/*
+		 * nodi raggruppati per componente, in ordine crescente di indice dentro
+		 * ogni componente: la componente c occupa le posizioni da inizioComponente[c]
+		 * a inizioComponente[c + 1]
+		 */
+		private final int[] nodiComponenti;
+
+		private final int[] inizioComponente;
+
+		private final boolean[] scoperti;
+
+		// tempi relativi all'albero DFS del nodo
+		private final int[] entrata;
+
+		private final int[] uscita;
+
+		private final int[] padre;
+
+		// radice dell'albero DFS del nodo
+		private final int[] radice;
+
+		// numero di nodi dell'albero, significativo solo per le radici
+		private final int[] dimensione;
+
+		private final int[] prossimo;
+
+		ParallelDFS(CsrGraph<L> g) {
+			int n = g.nodeCount();
+			this.g = g;
+			this.scoperti = new boolean[n];
+			this.entrata = new int[n];
+			this.uscita = new int[n];
+			this.padre = new int[n];
+			this.radice = new int[n];
+			this.dimensione = new int[n];
+			this.prossimo = new int[n];
+			// componenti debolmente connesse con una foresta di insiemi
+			// disgiunti, usando radice come array dei padri
+			for (int i = 0; i < n; i++)
+				this.radice[i] = i;
+			for (int u = 0; u < n; u++)
+				for (int k = g.firstEdgeOf(u); k < g.endEdgeOf(u); k++) {
+					int a = this.find(u);
+					int b = this.find(g.getEdgeTarget(k));
+					if (a != b)
+						this.radice[Math.max(a, b)] = Math.min(a, b);
+				}
+			// raggruppo i nodi per componente con un counting sort stabile sul
+			// rappresentante
+			int[] componente = new int[n];
+			int componenti = 0;
+			for (int i = 0; i < n; i++) {
+				int r = this.find(i);
+				componente[i] = r == i ? componenti++ : componente[r];
+			}
+			this.inizioComponente = new int[componenti + 1];
+			for (int i = 0; i < n; i++)
+				this.inizioComponente[componente[i] + 1]++;
+			for (int c = 0; c < componenti; c++)
+				this.inizioComponente[c + 1] += this.inizioComponente[c];
+			this.nodiComponenti = new int[n];
+			int[] libero = Arrays.copyOf(this.inizioComponente, componenti);
+			for (int i = 0; i < n; i++)
+				this.nodiComponenti[libero[componente[i]]++] = i;
+		}
+
+		int numeroComponenti() {
+			return this.inizioComponente.length - 1;
+		}
+
+		// rappresentante dell'insieme di i con dimezzamento dei cammini
+		private int find(int i) {
+			while (this.radice[i] != i) {
+				this.radice[i] = this.radice[this.radice[i]];
+				i = this.radice[i];
+			}
+			return i;
+		}
+
+		/*
+		 * Visita le componenti da primo (incluso) a ultimo (escluso) con lo
+		 * stesso ciclo esterno della visita sequenziale ristretto ai loro nodi
+		 */
+		void visitaComponenti(int primo, int ultimo) {
+			int[] pila = new int[this.inizioComponente[ultimo] - this.inizioComponente[primo]];
+			for (int j = this.inizioComponente[primo]; j < this.inizioComponente[ultimo]; j++) {
+				int r = this.nodiComponenti[j];
+				if (this.scoperti[r])
+					continue;
+				int tempo = 0;
+				int cima = 0;
+				pila[cima] = r;
+				this.scopri(r, -1, r, ++tempo);
+				while (cima >= 0) {
+					int u = pila[cima];
+					while (this.prossimo[u] < this.g.endEdgeOf(u)
+							&& this.scoperti[this.g.getEdgeTarget(this.prossimo[u])])
+						this.prossimo[u]++;
+					if (this.prossimo[u] < this.g.endEdgeOf(u)) {
+						int v = this.g.getEdgeTarget(this.prossimo[u]++);
+						pila[++cima] = v;
+						this.scopri(v, u, r, ++tempo);
+					} else {
+						cima--;
+						this.uscita[u] = ++tempo;
+					}
+				}
+				this.dimensione[r] = tempo / 2;
+			}
+		}
+
+		private void scopri(int v, int u, int r, int tempo) {
+			this.scoperti[v] = true;
+			this.prossimo[v] = this.g.firstEdgeOf(v);
+			this.padre[v] = u;
+			this.radice[v] = r;
+			this.entrata[v] = tempo;
+		}
+
+		/*
+		 * Task che divide a metà un intervallo di componenti finché contiene
+		 * una sola componente o pochi nodi, poi lo visita
+		 */
+		private class ComponentsTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int primo;
+
+			private final int ultimo;
+
+			ComponentsTask(int primo, int ultimo) {
+				this.primo = primo;
+				this.ultimo = ultimo;
+			}
+
+			@Override
+			protected void compute() {
+				int nodi = inizioComponente[this.ultimo] - inizioComponente[this.primo];
+				if (this.ultimo - this.primo <= 1 || nodi <= SOGLIA) {
+					visitaComponenti(this.primo, this.ultimo);
+				} else {
+					int medio = (this.primo + this.ultimo) >>> 1;
+					invokeAll(new ComponentsTask(this.primo, medio), new ComponentsTask(medio, this.ultimo));
+				}
+			}
+		}
+	}
+
 	/**
 	 * Questo metodo, che di default non fa niente, viene chiamato su tutti i nodi
 	 * visitati durante la DFS nel momento in cui il colore passa da grigio a nero.
@@ -3,8 +3,11 @@
  */
 package it.unicam.cs.asdl2223.es12;
 
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.HashSet;
 
@@ -31,8 +34,18 @@ import java.util.HashSet;
  * questo set. I test di presenza si basano sui metodi equals ridefiniti per
  * nodi e archi nelle classi GraphNode<L> e GraphEdge<L>.
  * 
- * Questa classe non supporta le operazioni di rimozione di nodi e archi e le
- * operazioni indicizzate di ricerca di nodi e archi.
+ * Per trovare un nodo a partire dalla sua etichetta in tempo pseudocostante
+ * viene mantenuta anche una seconda mappa che associa ad ogni etichetta il
+ * nodo corrispondente.
+ * 
+ * Il numero di archi è mantenuto in un contatore aggiornato ad ogni
+ * inserimento e ad ogni rimozione di un arco, mentre l'insieme di tutti gli
+ * archi è una vista che scorre le liste di adiacenza senza copiarne il
+ * contenuto.
+ * 
+ * Questa classe non supporta la rimozione dei nodi e le operazioni
+ * indicizzate di ricerca di nodi e archi; la rimozione degli archi è invece
+ * supportata.
  * 
  * @author Template: Luca Tesei, Implementazione: collettiva
  *
@@ -47,12 +60,25 @@ public class MapAdjacentListDirectedGraph<L> extends Graph<L> {
 	 */
 	private final Map<GraphNode<L>, Set<GraphEdge<L>>> adjacentLists;
 
+	/*
+	 * Associa ad ogni etichetta il nodo del grafo che la contiene. Il dominio
+	 * di questa mappa è sempre l'insieme delle etichette dei nodi presenti in
+	 * adjacentLists.
+	 */
+	private final Map<L, GraphNode<L>> nodesByLabel;
+
+	// numero di archi del grafo, cioè la somma delle dimensioni degli insiemi
+	// associati ai nodi in adjacentLists
+	private int edgeCount;
+
 	/**
 	 * Crea un grafo vuoto.
 	 */
 	public MapAdjacentListDirectedGraph() {
 		// Inizializza la mappa con la mappa vuota
 		this.adjacentLists = new HashMap<GraphNode<L>, Set<GraphEdge<L>>>();
+		this.nodesByLabel = new HashMap<L, GraphNode<L>>();
+		this.edgeCount = 0;
 	}
 
 	@Override
@@ -62,17 +88,15 @@ public class MapAdjacentListDirectedGraph<L> extends Graph<L> {
 
 	@Override
 	public int edgeCount() {
-		int result = 0;
-		// Prendo tutti i nodi e conto il numero di archi per ognuno
-		Set<GraphNode<L>> nodes = this.adjacentLists.keySet();
-		for (GraphNode<L> n : nodes)
-			result += this.adjacentLists.get(n).size();
-		return result;
+		// il contatore è aggiornato ad ogni inserimento e rimozione di un arco
+		return this.edgeCount;
 	}
 
 	@Override
 	public void clear() {
 		this.adjacentLists.clear();
+		this.nodesByLabel.clear();
+		this.edgeCount = 0;
 	}
 
 	@Override
@@ -95,6 +119,7 @@ public class MapAdjacentListDirectedGraph<L> extends Graph<L> {
 			return false;
 		// inserisco il nodo associando un insieme vuoto di archi uscenti
 		this.adjacentLists.put(node, new HashSet<GraphEdge<L>>());
+		this.nodesByLabel.put(node.getLabel(), node);
 		return true;
 	}
 
@@ -116,12 +141,9 @@ public class MapAdjacentListDirectedGraph<L> extends Graph<L> {
 	public GraphNode<L> getNodeOf(L label) {
 		if (label == null)
 			throw new NullPointerException("Tentativo di cercare un nodo con etichetta null");
-		Set<GraphNode<L>> nodes = this.adjacentLists.keySet();
-		for (GraphNode<L> n : nodes)
-			if (n.getLabel().equals(label))
-				return n;
-		// non esiste nessun nodo con etichetta uguale a label
-		return null;
+		// se non esiste nessun nodo con etichetta uguale a label la mappa
+		// restituisce null
+		return this.nodesByLabel.get(label);
 	}
 
 	@Override
@@ -169,15 +191,70 @@ public class MapAdjacentListDirectedGraph<L> extends Graph<L> {
 		return result;
 	}
 
+	/*
+	 * Restituisce una vista non modificabile dell'insieme degli archi, che
+	 * scorre gli insiemi degli archi uscenti di tutti i nodi ad ogni
+	 * iterazione. La vista riflette gli inserimenti successivi, ma non deve
+	 * essere scandita mentre il grafo viene modificato.
+	 */
 	@Override
 	public Set<GraphEdge<L>> getEdges() {
-		// Scorro tutti i nodi e aggiungo nell'insieme risultato i relativi
-		// archi
-		Set<GraphEdge<L>> result = new HashSet<GraphEdge<L>>();
-		Set<GraphNode<L>> nodes = this.adjacentLists.keySet();
-		for (GraphNode<L> n : nodes)
-			result.addAll(this.adjacentLists.get(n));
-		return result;
+		return new AbstractSet<GraphEdge<L>>() {
+
+			@Override
+			public int size() {
+				return edgeCount;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof GraphEdge))
+					return false;
+				// cerco l'arco solo fra quelli uscenti dal suo nodo sorgente
+				Set<GraphEdge<L>> edges = adjacentLists.get(((GraphEdge<?>) o).getNode1());
+				return edges != null && edges.contains(o);
+			}
+
+			@Override
+			public Iterator<GraphEdge<L>> iterator() {
+				return new EdgesIterator();
+			}
+		};
+	}
+
+	/*
+	 * Iteratore che concatena gli iteratori degli insiemi degli archi uscenti
+	 * dei nodi, saltando quelli vuoti.
+	 */
+	private class EdgesIterator implements Iterator<GraphEdge<L>> {
+
+		// iteratore sugli insiemi degli archi uscenti
+		private final Iterator<Set<GraphEdge<L>>> lists;
+
+		// iteratore sull'insieme corrente
+		private Iterator<GraphEdge<L>> current;
+
+		EdgesIterator() {
+			this.lists = adjacentLists.values().iterator();
+			this.current = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.current == null || !this.current.hasNext()) {
+				if (!this.lists.hasNext())
+					return false;
+				this.current = this.lists.next().iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public GraphEdge<L> next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException("Non ci sono altri archi");
+			return this.current.next();
+		}
 	}
 
 	@Override
@@ -191,12 +268,25 @@ public class MapAdjacentListDirectedGraph<L> extends Graph<L> {
 			throw new IllegalArgumentException(
 					"Inserimento di un arco con almeno uno dei due nodi collegati non esistente");
 		// Inserisco l'arco nella lista di adiacenza del nodo sorgente
-		return this.adjacentLists.get(edge.getNode1()).add(edge);
+		if (!this.adjacentLists.get(edge.getNode1()).add(edge))
+			return false;
+		this.edgeCount++;
+		return true;
 	}
 
 	@Override
 	public boolean removeEdge(GraphEdge<L> edge) {
-		throw new UnsupportedOperationException("Rimozione degli archi non supportata");
+		if (edge == null)
+			throw new NullPointerException("Tentativo di rimuovere arco nullo");
+		// Controllo se i nodi esistono
+		if (!this.adjacentLists.containsKey(edge.getNode1()) || !this.adjacentLists.containsKey(edge.getNode2()))
+			throw new IllegalArgumentException(
+					"Rimozione di un arco con almeno uno dei due nodi collegati non esistente");
+		// Rimuovo l'arco dalla lista di adiacenza del nodo sorgente
+		if (!this.adjacentLists.get(edge.getNode1()).remove(edge))
+			return false;
+		this.edgeCount--;
+		return true;
 	}
 
 	@Override
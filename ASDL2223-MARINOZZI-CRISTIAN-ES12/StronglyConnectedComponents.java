@@ -0,0 +1,487 @@
+package it.unicam.cs.asdl2223.es12;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Calcola le componenti fortemente connesse di una fotografia CSR di un grafo.
+ * Ogni nodo riceve l'identificatore intero della sua componente; le componenti
+ * sono numerate da 0 a getComponentCount() - 1 in ordine crescente del più
+ * piccolo indice dei loro nodi, per cui il risultato non dipende
+ * dall'algoritmo usato né dal numero di thread.
+ *
+ * Il calcolo sequenziale usa l'algoritmo di Tarjan in versione iterativa, con
+ * pile di indici al posto della ricorsione, e costa O(n + m). Il calcolo
+ * parallelo usa lo schema forward-backward con potatura: i nodi senza archi
+ * entranti o senza archi uscenti nella parte di grafo considerata vengono
+ * rimossi come componenti di un solo nodo, poi i nodi raggiungibili da un
+ * perno scelto a caso e quelli che raggiungono il perno vengono calcolati con
+ * visite in ampiezza parallele; la loro intersezione è la componente del
+ * perno e le tre parti rimanenti vengono risolte indipendentemente. Le parti
+ * piccole vengono risolte con l'algoritmo di Tarjan. Gli archi entranti, cioè gli archi del
+ * grafo trasposto, sono letti dall'indice inverso della fotografia.
+ *
+ * In un grafo non orientato le componenti fortemente connesse coincidono con
+ * le componenti connesse.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L> le etichette dei nodi del grafo
+ */
+public class StronglyConnectedComponents<L> {
+
+	// la fotografia su cui sono state calcolate le componenti
+	private final CsrGraph<L> graph;
+
+	// componenti[i] è l'identificatore della componente del nodo di indice i
+	private final int[] componenti;
+
+	private final int numeroComponenti;
+
+	/**
+	 * Calcola le componenti fortemente connesse di un grafo con l'algoritmo di
+	 * Tarjan sul thread chiamante.
+	 *
+	 * @param g la fotografia del grafo
+	 * @throws NullPointerException se la fotografia passata è null
+	 */
+	public StronglyConnectedComponents(CsrGraph<L> g) {
+		if (g == null)
+			throw new NullPointerException("SCC ERROR: Grafo nullo");
+		this.graph = g;
+		Calcolo<L> calcolo = new Calcolo<L>(g, false);
+		int[] tutti = new int[g.nodeCount()];
+		for (int i = 0; i < tutti.length; i++)
+			tutti[i] = i;
+		calcolo.tarjan(tutti, 0);
+		this.componenti = calcolo.componenti;
+		this.numeroComponenti = normalizza(this.componenti);
+	}
+
+	/**
+	 * Calcola le componenti fortemente connesse di un grafo in parallelo sul
+	 * pool dato. Il risultato è lo stesso del calcolo sequenziale.
+	 *
+	 * @param g    la fotografia del grafo
+	 * @param pool il pool su cui eseguire il calcolo
+	 * @throws NullPointerException se la fotografia o il pool passati sono null
+	 */
+	public StronglyConnectedComponents(CsrGraph<L> g, ForkJoinPool pool) {
+		if (g == null)
+			throw new NullPointerException("SCC ERROR: Grafo nullo");
+		if (pool == null)
+			throw new NullPointerException("SCC ERROR: Pool nullo");
+		this.graph = g;
+		Calcolo<L> calcolo = new Calcolo<L>(g, true);
+		int[] tutti = new int[g.nodeCount()];
+		for (int i = 0; i < tutti.length; i++)
+			tutti[i] = i;
+		pool.invoke(calcolo.new PartitionTask(tutti, 0));
+		this.componenti = calcolo.componenti;
+		this.numeroComponenti = normalizza(this.componenti);
+	}
+
+	/**
+	 * @return la fotografia su cui sono state calcolate le componenti
+	 */
+	public CsrGraph<L> getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return il numero di componenti fortemente connesse
+	 */
+	public int getComponentCount() {
+		return this.numeroComponenti;
+	}
+
+	/**
+	 * @param i l'indice di un nodo
+	 * @return l'identificatore della componente del nodo
+	 * @throws IndexOutOfBoundsException se l'indice non è valido
+	 */
+	public int getComponentOf(int i) {
+		return this.componenti[i];
+	}
+
+	/**
+	 * @param node un nodo del grafo
+	 * @return l'identificatore della componente del nodo
+	 * @throws NullPointerException     se il nodo passato è null
+	 * @throws IllegalArgumentException se il nodo non appartiene al grafo
+	 */
+	public int getComponentOf(GraphNode<L> node) {
+		int i = this.graph.getNodeIndexOf(node);
+		if (i == -1)
+			throw new IllegalArgumentException("SCC ERROR: Il nodo non appartiene al grafo");
+		return this.componenti[i];
+	}
+
+	/**
+	 * @return una copia dell'array che associa ad ogni indice di nodo
+	 *         l'identificatore della sua componente
+	 */
+	public int[] getComponentIds() {
+		return Arrays.copyOf(this.componenti, this.componenti.length);
+	}
+
+	/*
+	 * Rinumera le componenti in ordine di primo nodo e restituisce il loro
+	 * numero
+	 */
+	private static int normalizza(int[] componenti) {
+		int[] nuovo = new int[componenti.length];
+		Arrays.fill(nuovo, -1);
+		int numero = 0;
+		for (int i = 0; i < componenti.length; i++) {
+			if (nuovo[componenti[i]] == -1)
+				nuovo[componenti[i]] = numero++;
+			componenti[i] = nuovo[componenti[i]];
+		}
+		return numero;
+	}
+
+	/*
+	 * Stato di un calcolo delle componenti. Durante il calcolo parallelo i nodi
+	 * sono divisi in parti disgiunte, ognuna con un identificatore unico
+	 * memorizzato in partizione; ogni parte è risolta da un solo task, che è
+	 * l'unico a scrivere negli array le posizioni dei suoi nodi. Un task legge
+	 * la partizione dei nodi adiacenti di altre parti senza sincronizzazione,
+	 * ma qualsiasi valore letto è diverso dal proprio identificatore, che non è
+	 * mai assegnato a nodi di altre parti.
+	 */
+	private static final class Calcolo<L> {
+
+		// sotto questa dimensione una parte viene risolta con Tarjan
+		private static final int SOGLIA_PARTE = 1 << 12;
+
+		// sotto questa dimensione una frontiera viene espansa sequenzialmente
+		private static final int SOGLIA_FRONTIERA = 256;
+
+		// partizione dei nodi già assegnati a una componente
+		private static final int RIMOSSO = -1;
+
+		private final CsrGraph<L> g;
+
+		private final int[] componenti;
+
+		private final int[] partizione;
+
+		// campi dell'algoritmo di Tarjan, indice -1 indica un nodo non visitato
+		private final int[] indice;
+
+		private final int[] minimo;
+
+		private final boolean[] inPila;
+
+		// gradi entranti e uscenti dei nodi nella propria parte, per la
+		// potatura; questo array e i seguenti servono solo al calcolo parallelo
+		private final int[] entranti;
+
+		private final int[] uscenti;
+
+		// segni delle visite in avanti e all'indietro, contengono
+		// l'identificatore della parte dell'ultima visita che ha raggiunto il
+		// nodo
+		private final AtomicIntegerArray segniAvanti;
+
+		private final AtomicIntegerArray segniIndietro;
+
+		private final AtomicInteger prossimaParte = new AtomicInteger(1);
+
+		private final AtomicInteger prossimaComponente = new AtomicInteger();
+
+		Calcolo(CsrGraph<L> g, boolean parallelo) {
+			int n = g.nodeCount();
+			this.g = g;
+			this.componenti = new int[n];
+			this.partizione = new int[n];
+			this.indice = new int[n];
+			Arrays.fill(this.indice, -1);
+			this.minimo = new int[n];
+			this.inPila = new boolean[n];
+			if (!parallelo) {
+				this.entranti = this.uscenti = null;
+				this.segniAvanti = this.segniIndietro = null;
+				return;
+			}
+			this.entranti = new int[n];
+			this.uscenti = new int[n];
+			this.segniAvanti = new AtomicIntegerArray(n);
+			this.segniIndietro = new AtomicIntegerArray(n);
+			// nessun nodo è stato raggiunto da una visita della parte 0
+			for (int i = 0; i < n; i++) {
+				this.segniAvanti.set(i, -1);
+				this.segniIndietro.set(i, -1);
+			}
+		}
+
+		/*
+		 * Algoritmo di Tarjan iterativo ristretto ai nodi della parte id
+		 */
+		void tarjan(int[] nodi, int id) {
+			int[] pilaVisita = new int[nodi.length];
+			int[] prossimo = new int[nodi.length];
+			int[] pilaComponente = new int[nodi.length];
+			int cimaComponente = -1;
+			int contatore = 0;
+			for (int r : nodi) {
+				if (this.partizione[r] != id || this.indice[r] != -1)
+					continue;
+				int cima = 0;
+				pilaVisita[0] = r;
+				prossimo[0] = this.g.firstEdgeOf(r);
+				this.indice[r] = this.minimo[r] = contatore++;
+				pilaComponente[++cimaComponente] = r;
+				this.inPila[r] = true;
+				while (cima >= 0) {
+					int u = pilaVisita[cima];
+					if (prossimo[cima] < this.g.endEdgeOf(u)) {
+						int w = this.g.getEdgeTarget(prossimo[cima]++);
+						if (this.partizione[w] != id)
+							continue;
+						if (this.indice[w] == -1) {
+							// scendo in w
+							this.indice[w] = this.minimo[w] = contatore++;
+							pilaComponente[++cimaComponente] = w;
+							this.inPila[w] = true;
+							pilaVisita[++cima] = w;
+							prossimo[cima] = this.g.firstEdgeOf(w);
+						} else if (this.inPila[w]) {
+							this.minimo[u] = Math.min(this.minimo[u], this.indice[w]);
+						}
+					} else {
+						// u è completato, se è la radice di una componente la
+						// estraggo dalla pila
+						cima--;
+						if (cima >= 0) {
+							int padre = pilaVisita[cima];
+							this.minimo[padre] = Math.min(this.minimo[padre], this.minimo[u]);
+						}
+						if (this.minimo[u] == this.indice[u]) {
+							int c = this.prossimaComponente.getAndIncrement();
+							int w;
+							do {
+								w = pilaComponente[cimaComponente--];
+								this.inPila[w] = false;
+								this.componenti[w] = c;
+								this.partizione[w] = RIMOSSO;
+							} while (w != u);
+						}
+					}
+				}
+			}
+		}
+
+		/*
+		 * Rimuove ripetutamente dalla parte id i nodi senza archi entranti o
+		 * senza archi uscenti verso la parte, che sono componenti di un solo
+		 * nodo, e restituisce i nodi rimasti
+		 */
+		int[] pota(int[] nodi, int id) {
+			int[] coda = new int[nodi.length];
+			int testa = 0;
+			int fine = 0;
+			for (int v : nodi) {
+				int e = 0;
+				for (int j = this.g.firstIngoingEdgeOf(v); j < this.g.endIngoingEdgeOf(v); j++) {
+					int w = this.g.getIngoingEdgeSource(j);
+					if (w != v && this.partizione[w] == id)
+						e++;
+				}
+				int u = 0;
+				for (int k = this.g.firstEdgeOf(v); k < this.g.endEdgeOf(v); k++) {
+					int w = this.g.getEdgeTarget(k);
+					if (w != v && this.partizione[w] == id)
+						u++;
+				}
+				this.entranti[v] = e;
+				this.uscenti[v] = u;
+				if (e == 0 || u == 0)
+					coda[fine++] = v;
+			}
+			while (testa < fine) {
+				int v = coda[testa++];
+				this.componenti[v] = this.prossimaComponente.getAndIncrement();
+				this.partizione[v] = RIMOSSO;
+				// un nodo entra in coda quando il primo dei suoi due gradi
+				// diventa 0
+				for (int k = this.g.firstEdgeOf(v); k < this.g.endEdgeOf(v); k++) {
+					int w = this.g.getEdgeTarget(k);
+					if (w != v && this.partizione[w] == id && --this.entranti[w] == 0 && this.uscenti[w] > 0)
+						coda[fine++] = w;
+				}
+				for (int j = this.g.firstIngoingEdgeOf(v); j < this.g.endIngoingEdgeOf(v); j++) {
+					int w = this.g.getIngoingEdgeSource(j);
+					if (w != v && this.partizione[w] == id && --this.uscenti[w] == 0 && this.entranti[w] > 0)
+						coda[fine++] = w;
+				}
+			}
+			if (fine == 0)
+				return nodi;
+			int[] rimasti = new int[nodi.length - fine];
+			int r = 0;
+			for (int v : nodi)
+				if (this.partizione[v] == id)
+					rimasti[r++] = v;
+			return rimasti;
+		}
+
+		/*
+		 * Segna con id i nodi della parte id raggiungibili dal perno, in avanti
+		 * o all'indietro, con una visita in ampiezza che espande in parallelo
+		 * le frontiere grandi
+		 */
+		void raggiungi(int perno, int id, boolean avanti) {
+			AtomicIntegerArray segni = avanti ? this.segniAvanti : this.segniIndietro;
+			segni.set(perno, id);
+			int[] frontiera = { perno };
+			while (frontiera.length > 0)
+				frontiera = new FrontierTask(frontiera, 0, frontiera.length, id, avanti).invoke();
+		}
+
+		/*
+		 * Espande una porzione di frontiera restituendo i nodi scoperti; un
+		 * nodo viene scoperto dal thread che riesce a segnarlo con id
+		 */
+		private final class FrontierTask extends RecursiveTask<int[]> {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int[] frontiera;
+
+			private final int da;
+
+			private final int a;
+
+			private final int id;
+
+			private final boolean avanti;
+
+			FrontierTask(int[] frontiera, int da, int a, int id, boolean avanti) {
+				this.frontiera = frontiera;
+				this.da = da;
+				this.a = a;
+				this.id = id;
+				this.avanti = avanti;
+			}
+
+			@Override
+			protected int[] compute() {
+				if (this.a - this.da > SOGLIA_FRONTIERA) {
+					int m = (this.da + this.a) >>> 1;
+					FrontierTask sinistra = new FrontierTask(this.frontiera, this.da, m, this.id, this.avanti);
+					sinistra.fork();
+					int[] destra = new FrontierTask(this.frontiera, m, this.a, this.id, this.avanti).compute();
+					int[] primi = sinistra.join();
+					int[] tutti = Arrays.copyOf(primi, primi.length + destra.length);
+					System.arraycopy(destra, 0, tutti, primi.length, destra.length);
+					return tutti;
+				}
+				AtomicIntegerArray segni = this.avanti ? segniAvanti : segniIndietro;
+				int[] scoperti = new int[16];
+				int numero = 0;
+				for (int i = this.da; i < this.a; i++) {
+					int u = this.frontiera[i];
+					int inizio = this.avanti ? g.firstEdgeOf(u) : g.firstIngoingEdgeOf(u);
+					int fine = this.avanti ? g.endEdgeOf(u) : g.endIngoingEdgeOf(u);
+					for (int k = inizio; k < fine; k++) {
+						int w = this.avanti ? g.getEdgeTarget(k) : g.getIngoingEdgeSource(k);
+						if (partizione[w] != this.id)
+							continue;
+						int vecchio = segni.get(w);
+						if (vecchio != this.id && segni.compareAndSet(w, vecchio, this.id)) {
+							if (numero == scoperti.length)
+								scoperti = Arrays.copyOf(scoperti, 2 * numero);
+							scoperti[numero++] = w;
+						}
+					}
+				}
+				return Arrays.copyOf(scoperti, numero);
+			}
+		}
+
+		/*
+		 * Risolve una parte: dopo la potatura sceglie un perno, calcola in
+		 * parallelo i nodi raggiungibili in avanti e all'indietro e divide i
+		 * nodi rimasti in tre nuove parti. Le due più piccole vengono risolte
+		 * da nuovi task, la più grande da questo stesso task, per cui la
+		 * profondità dei task resta logaritmica.
+		 */
+		private final class PartitionTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private int[] nodi;
+
+			private int id;
+
+			PartitionTask(int[] nodi, int id) {
+				this.nodi = nodi;
+				this.id = id;
+			}
+
+			@Override
+			protected void compute() {
+				List<ForkJoinTask<?>> avviati = new ArrayList<ForkJoinTask<?>>();
+				while (this.nodi.length > 0) {
+					if (this.nodi.length <= SOGLIA_PARTE) {
+						tarjan(this.nodi, this.id);
+						break;
+					}
+					this.nodi = pota(this.nodi, this.id);
+					if (this.nodi.length == 0)
+						break;
+					// un perno casuale divide in media i cammini in parti
+					// bilanciate, mentre il primo nodo di una catena
+					// staccherebbe una sola componente alla volta
+					int perno = this.nodi[ThreadLocalRandom.current().nextInt(this.nodi.length)];
+					final int parte = this.id;
+					ForkJoinTask<?> indietro = ForkJoinTask.adapt(() -> raggiungi(perno, parte, false)).fork();
+					raggiungi(perno, parte, true);
+					indietro.join();
+					// la componente del perno è l'intersezione delle due visite
+					int c = prossimaComponente.getAndIncrement();
+					int[][] parti = new int[3][this.nodi.length];
+					int[] dimensioni = new int[3];
+					for (int v : this.nodi) {
+						boolean f = segniAvanti.get(v) == parte;
+						boolean b = segniIndietro.get(v) == parte;
+						if (f && b) {
+							componenti[v] = c;
+							partizione[v] = RIMOSSO;
+						} else {
+							int p = f ? 0 : b ? 1 : 2;
+							parti[p][dimensioni[p]++] = v;
+						}
+					}
+					// assegno un nuovo identificatore a ogni parte
+					int maggiore = 0;
+					int[] nuoviId = new int[3];
+					for (int p = 0; p < 3; p++) {
+						nuoviId[p] = prossimaParte.getAndIncrement();
+						for (int i = 0; i < dimensioni[p]; i++)
+							partizione[parti[p][i]] = nuoviId[p];
+						if (dimensioni[p] > dimensioni[maggiore])
+							maggiore = p;
+					}
+					for (int p = 0; p < 3; p++)
+						if (p != maggiore && dimensioni[p] > 0)
+							avviati.add(new PartitionTask(Arrays.copyOf(parti[p], dimensioni[p]), nuoviId[p]).fork());
+					this.nodi = Arrays.copyOf(parti[maggiore], dimensioni[maggiore]);
+					this.id = nuoviId[maggiore];
+				}
+				for (ForkJoinTask<?> t : avviati)
+					t.join();
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package it.unicam.cs.asdl2223.es12;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calcola un ordinamento topologico dei nodi di una fotografia CSR di un grafo
+ * orientato, cioè un ordine in cui ogni arco va da un nodo a uno successivo.
+ * L'ordinamento si ottiene con una sola visita in profondità (DFSVisitor) in
+ * un contesto separato, per cui i nodi del grafo non vengono modificati: i
+ * nodi ordinati per tempo di fine visita decrescente formano un ordinamento
+ * topologico se e solo se nessun arco entra in un nodo con tempo di fine
+ * visita non minore di quello del nodo di partenza, cioè se la visita non ha
+ * trovato archi all'indietro. Il costo totale è O(n + m).
+ *
+ * La versione parallela usa la visita in profondità parallela e controlla gli
+ * archi in parallelo; il risultato è lo stesso della versione sequenziale.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L> le etichette dei nodi del grafo
+ */
+public class TopologicalSort<L> {
+
+	// porzione di nodi i cui archi vengono controllati da un solo task
+	private static final int SOGLIA = 4096;
+
+	private final CsrGraph<L> graph;
+
+	// gli indici dei nodi in ordine topologico, null se il grafo ha un ciclo
+	private final int[] ordine;
+
+	/**
+	 * Ordina topologicamente un grafo sul thread chiamante.
+	 *
+	 * @param g la fotografia di un grafo orientato
+	 * @throws NullPointerException     se la fotografia passata è null
+	 * @throws IllegalArgumentException se il grafo non è orientato
+	 */
+	public TopologicalSort(CsrGraph<L> g) {
+		checkGraph(g);
+		this.graph = g;
+		TraversalContext<L> context = new TraversalContext<L>(g);
+		new DFSVisitor<L>().DFSVisit(g, context);
+		this.ordine = ordina(g, context, conCiclo(g, context, 0, g.nodeCount()));
+	}
+
+	/**
+	 * Ordina topologicamente un grafo in parallelo sul pool dato.
+	 *
+	 * @param g    la fotografia di un grafo orientato
+	 * @param pool il pool su cui eseguire la visita e i controlli
+	 * @throws NullPointerException     se la fotografia o il pool passati sono
+	 *                                  null
+	 * @throws IllegalArgumentException se il grafo non è orientato
+	 */
+	public TopologicalSort(CsrGraph<L> g, ForkJoinPool pool) {
+		checkGraph(g);
+		if (pool == null)
+			throw new NullPointerException("TOPOLOGICAL SORT ERROR: Pool nullo");
+		this.graph = g;
+		TraversalContext<L> context = new TraversalContext<L>(g);
+		new DFSVisitor<L>().DFSVisit(g, pool, context);
+		this.ordine = ordina(g, context, pool.invoke(new CycleTask<L>(g, context, 0, g.nodeCount())));
+	}
+
+	/**
+	 * @return la fotografia ordinata
+	 */
+	public CsrGraph<L> getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return true se il grafo non contiene cicli e quindi ammette un
+	 *         ordinamento topologico
+	 */
+	public boolean isAcyclic() {
+		return this.ordine != null;
+	}
+
+	/**
+	 * @return una copia dell'array degli indici dei nodi in ordine topologico
+	 * @throws IllegalStateException se il grafo contiene un ciclo
+	 */
+	public int[] getOrder() {
+		if (this.ordine == null)
+			throw new IllegalStateException("TOPOLOGICAL SORT ERROR: Il grafo contiene un ciclo");
+		return Arrays.copyOf(this.ordine, this.ordine.length);
+	}
+
+	/**
+	 * @return la lista non modificabile dei nodi in ordine topologico
+	 * @throws IllegalStateException se il grafo contiene un ciclo
+	 */
+	public List<GraphNode<L>> getNodes() {
+		if (this.ordine == null)
+			throw new IllegalStateException("TOPOLOGICAL SORT ERROR: Il grafo contiene un ciclo");
+		return new AbstractList<GraphNode<L>>() {
+
+			@Override
+			public GraphNode<L> get(int i) {
+				return graph.getNodeAtIndex(ordine[i]);
+			}
+
+			@Override
+			public int size() {
+				return ordine.length;
+			}
+		};
+	}
+
+	private static <L> void checkGraph(CsrGraph<L> g) {
+		if (g == null)
+			throw new NullPointerException("TOPOLOGICAL SORT ERROR: Grafo nullo");
+		if (!g.isDirected())
+			throw new IllegalArgumentException("TOPOLOGICAL SORT ERROR: Grafo non orientato");
+	}
+
+	/*
+	 * Ordina i nodi per tempo di fine visita decrescente con un counting sort
+	 * sui tempi, che vanno da 1 a 2n; restituisce null se c'è un ciclo
+	 */
+	private static <L> int[] ordina(CsrGraph<L> g, TraversalContext<L> context, boolean ciclo) {
+		if (ciclo)
+			return null;
+		int n = g.nodeCount();
+		int[] perUscita = new int[2 * n + 1];
+		Arrays.fill(perUscita, -1);
+		for (int i = 0; i < n; i++)
+			perUscita[context.getExitingTime(i)] = i;
+		int[] ordine = new int[n];
+		int k = 0;
+		for (int t = 2 * n; t > 0; t--)
+			if (perUscita[t] != -1)
+				ordine[k++] = perUscita[t];
+		return ordine;
+	}
+
+	/*
+	 * Restituisce true se uno degli archi uscenti dai nodi di indice da da
+	 * (incluso) ad a (escluso) è un arco all'indietro
+	 */
+	private static <L> boolean conCiclo(CsrGraph<L> g, TraversalContext<L> context, int da, int a) {
+		for (int u = da; u < a; u++)
+			for (int k = g.firstEdgeOf(u); k < g.endEdgeOf(u); k++)
+				if (context.getExitingTime(g.getEdgeTarget(k)) >= context.getExitingTime(u))
+					return true;
+		return false;
+	}
+
+	/*
+	 * Controlla gli archi di una porzione di nodi dividendola a metà finché
+	 * non è abbastanza piccola
+	 */
+	private static final class CycleTask<L> extends RecursiveTask<Boolean> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CsrGraph<L> g;
+
+		private final TraversalContext<L> context;
+
+		private final int da;
+
+		private final int a;
+
+		CycleTask(CsrGraph<L> g, TraversalContext<L> context, int da, int a) {
+			this.g = g;
+			this.context = context;
+			this.da = da;
+			this.a = a;
+		}
+
+		@Override
+		protected Boolean compute() {
+			if (this.a - this.da <= SOGLIA)
+				return conCiclo(this.g, this.context, this.da, this.a);
+			int m = (this.da + this.a) >>> 1;
+			CycleTask<L> sinistra = new CycleTask<L>(this.g, this.context, this.da, m);
+			sinistra.fork();
+			boolean destra = new CycleTask<L>(this.g, this.context, m, this.a).compute();
+			return sinistra.join() || destra;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package it.unicam.cs.asdl2223.es12;
+
+import java.util.Arrays;
+
+/**
+ * Stato di una singola esecuzione di una visita su una fotografia CSR di un
+ * grafo: colore, distanza intera e in virgola mobile, predecessore e tempi di
+ * scoperta e di fine visita di ogni nodo. I valori sono memorizzati in array
+ * di tipi primitivi indicizzati dagli indici dei nodi nella fotografia, invece
+ * che nei campi degli oggetti GraphNode, per cui più visite dello stesso grafo,
+ * ognuna con il proprio contesto, possono essere eseguite contemporaneamente
+ * da thread diversi senza copiare il grafo e senza sincronizzazione.
+ *
+ * Ogni array viene creato solo quando la visita scrive per la prima volta il
+ * valore corrispondente; finché non è stato scritto un valore vale il default
+ * indicato nel relativo metodo get.
+ *
+ * Un contesto creato dalle visite che per contratto modificano i nodi del
+ * grafo scrive ogni valore anche nel nodo corrispondente, in modo che i nodi
+ * contengano gli stessi risultati delle versioni che non usano il contesto.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L> le etichette dei nodi del grafo
+ */
+public class TraversalContext<L> {
+
+	// la fotografia a cui si riferiscono gli indici
+	private final CsrGraph<L> graph;
+
+	// se true ogni valore viene scritto anche nel nodo corrispondente
+	private final boolean writeNodes;
+
+	private int[] colors;
+
+	private int[] integerDistances;
+
+	private double[] floatingPointDistances;
+
+	// indice del predecessore, -1 se il nodo non ha predecessore
+	private int[] previous;
+
+	private int[] enteringTimes;
+
+	private int[] exitingTimes;
+
+	/**
+	 * Crea un contesto vuoto che non modifica i nodi del grafo.
+	 *
+	 * @param graph la fotografia del grafo su cui verrà eseguita la visita
+	 * @throws NullPointerException se la fotografia passata è nulla
+	 */
+	public TraversalContext(CsrGraph<L> graph) {
+		this(graph, false);
+	}
+
+	/*
+	 * Crea un contesto vuoto che, se writeNodes è true, scrive ogni valore
+	 * anche nei nodi del grafo
+	 */
+	TraversalContext(CsrGraph<L> graph, boolean writeNodes) {
+		if (graph == null)
+			throw new NullPointerException("Grafo nullo");
+		this.graph = graph;
+		this.writeNodes = writeNodes;
+	}
+
+	/**
+	 * @return la fotografia a cui si riferisce il contesto
+	 */
+	public CsrGraph<L> getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @param i l'indice di un nodo
+	 * @return il colore del nodo, {@code GraphNode.COLOR_WHITE} se non è mai
+	 *         stato assegnato
+	 */
+	public int getColor(int i) {
+		return this.colors == null ? GraphNode.COLOR_WHITE : this.colors[i];
+	}
+
+	/**
+	 * @param i l'indice di un nodo
+	 * @return la distanza intera del nodo, -1 se non è mai stata assegnata
+	 */
+	public int getIntegerDistance(int i) {
+		return this.integerDistances == null ? -1 : this.integerDistances[i];
+	}
+
+	/**
+	 * @param i l'indice di un nodo
+	 * @return la distanza in virgola mobile del nodo,
+	 *         {@code Double.POSITIVE_INFINITY} se non è mai stata assegnata
+	 */
+	public double getFloatingPointDistance(int i) {
+		return this.floatingPointDistances == null ? Double.POSITIVE_INFINITY : this.floatingPointDistances[i];
+	}
+
+	/**
+	 * @param i l'indice di un nodo
+	 * @return l'indice del predecessore del nodo, -1 se il nodo non ha
+	 *         predecessore
+	 */
+	public int getPreviousIndex(int i) {
+		return this.previous == null ? -1 : this.previous[i];
+	}
+
+	/**
+	 * @param i l'indice di un nodo
+	 * @return il tempo di scoperta del nodo, -1 se non è mai stato assegnato
+	 */
+	public int getEnteringTime(int i) {
+		return this.enteringTimes == null ? -1 : this.enteringTimes[i];
+	}
+
+	/**
+	 * @param i l'indice di un nodo
+	 * @return il tempo di fine visita del nodo, -1 se non è mai stato assegnato
+	 */
+	public int getExitingTime(int i) {
+		return this.exitingTimes == null ? -1 : this.exitingTimes[i];
+	}
+
+	/**
+	 * @param node un nodo del grafo
+	 * @return il colore del nodo in questo contesto
+	 * @throws NullPointerException     se il nodo passato è nullo
+	 * @throws IllegalArgumentException se il nodo non appartiene al grafo
+	 */
+	public int getColor(GraphNode<L> node) {
+		return this.getColor(this.indexOf(node));
+	}
+
+	/**
+	 * @param node un nodo del grafo
+	 * @return la distanza intera del nodo in questo contesto
+	 * @throws NullPointerException     se il nodo passato è nullo
+	 * @throws IllegalArgumentException se il nodo non appartiene al grafo
+	 */
+	public int getIntegerDistance(GraphNode<L> node) {
+		return this.getIntegerDistance(this.indexOf(node));
+	}
+
+	/**
+	 * @param node un nodo del grafo
+	 * @return la distanza in virgola mobile del nodo in questo contesto
+	 * @throws NullPointerException     se il nodo passato è nullo
+	 * @throws IllegalArgumentException se il nodo non appartiene al grafo
+	 */
+	public double getFloatingPointDistance(GraphNode<L> node) {
+		return this.getFloatingPointDistance(this.indexOf(node));
+	}
+
+	/**
+	 * @param node un nodo del grafo
+	 * @return il predecessore del nodo in questo contesto, null se il nodo non
+	 *         ha predecessore
+	 * @throws NullPointerException     se il nodo passato è nullo
+	 * @throws IllegalArgumentException se il nodo non appartiene al grafo
+	 */
+	public GraphNode<L> getPrevious(GraphNode<L> node) {
+		int p = this.getPreviousIndex(this.indexOf(node));
+		return p == -1 ? null : this.graph.getNodeAtIndex(p);
+	}
+
+	/**
+	 * @param node un nodo del grafo
+	 * @return il tempo di scoperta del nodo in questo contesto
+	 * @throws NullPointerException     se il nodo passato è nullo
+	 * @throws IllegalArgumentException se il nodo non appartiene al grafo
+	 */
+	public int getEnteringTime(GraphNode<L> node) {
+		return this.getEnteringTime(this.indexOf(node));
+	}
+
+	/**
+	 * @param node un nodo del grafo
+	 * @return il tempo di fine visita del nodo in questo contesto
+	 * @throws NullPointerException     se il nodo passato è nullo
+	 * @throws IllegalArgumentException se il nodo non appartiene al grafo
+	 */
+	public int getExitingTime(GraphNode<L> node) {
+		return this.getExitingTime(this.indexOf(node));
+	}
+
+	void setColor(int i, int color) {
+		if (this.colors == null) {
+			this.colors = new int[this.graph.nodeCount()];
+			Arrays.fill(this.colors, GraphNode.COLOR_WHITE);
+		}
+		this.colors[i] = color;
+		if (this.writeNodes)
+			this.graph.getNodeAtIndex(i).setColor(color);
+	}
+
+	void setIntegerDistance(int i, int distance) {
+		if (this.integerDistances == null) {
+			this.integerDistances = new int[this.graph.nodeCount()];
+			Arrays.fill(this.integerDistances, -1);
+		}
+		this.integerDistances[i] = distance;
+		if (this.writeNodes)
+			this.graph.getNodeAtIndex(i).setIntegerDistance(distance);
+	}
+
+	void setFloatingPointDistance(int i, double distance) {
+		if (this.floatingPointDistances == null) {
+			this.floatingPointDistances = new double[this.graph.nodeCount()];
+			Arrays.fill(this.floatingPointDistances, Double.POSITIVE_INFINITY);
+		}
+		this.floatingPointDistances[i] = distance;
+		if (this.writeNodes)
+			this.graph.getNodeAtIndex(i).setFloatingPointDistance(distance);
+	}
+
+	void setPrevious(int i, int p) {
+		if (this.previous == null) {
+			this.previous = new int[this.graph.nodeCount()];
+			Arrays.fill(this.previous, -1);
+		}
+		this.previous[i] = p;
+		if (this.writeNodes)
+			this.graph.getNodeAtIndex(i).setPrevious(p == -1 ? null : this.graph.getNodeAtIndex(p));
+	}
+
+	void setEnteringTime(int i, int time) {
+		if (this.enteringTimes == null) {
+			this.enteringTimes = new int[this.graph.nodeCount()];
+			Arrays.fill(this.enteringTimes, -1);
+		}
+		this.enteringTimes[i] = time;
+		if (this.writeNodes)
+			this.graph.getNodeAtIndex(i).setEnteringTime(time);
+	}
+
+	void setExitingTime(int i, int time) {
+		if (this.exitingTimes == null) {
+			this.exitingTimes = new int[this.graph.nodeCount()];
+			Arrays.fill(this.exitingTimes, -1);
+		}
+		this.exitingTimes[i] = time;
+		if (this.writeNodes)
+			this.graph.getNodeAtIndex(i).setExitingTime(time);
+	}
+
+	private int indexOf(GraphNode<L> node) {
+		int i = this.graph.getNodeIndexOf(node);
+		if (i == -1)
+			throw new IllegalArgumentException("Il nodo non appartiene al grafo");
+		return i;
+	}
+}
@@ -0,0 +1,252 @@
+package it.unicam.cs.asdl2223.es13;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fotografia immutabile di un grafo orientato e pesato in formato CSR
+ * (compressed sparse row). I nodi sono indicizzati da 0 a nodeCount() - 1 e
+ * gli archi uscenti dal nodo di indice u occupano le posizioni da
+ * {@code firstEdgeOf(u)} (inclusa) a {@code endEdgeOf(u)} (esclusa) degli
+ * array dei target e dei pesi. Gli oggetti GraphEdge originali sono
+ * conservati solo per poter restituire i cammini calcolati. Viene mantenuto
+ * anche l'indice inverso degli archi entranti in ogni nodo, per le visite
+ * all'indietro.
+ *
+ * Poiché non viene mai modificata, una stessa fotografia può essere letta
+ * contemporaneamente da più thread senza sincronizzazione. Le modifiche al
+ * grafo originale successive alla creazione non si riflettono sulla
+ * fotografia.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L>
+ *            le etichette dei nodi del grafo
+ */
+public class CsrGraph<L> {
+
+    // nodi del grafo, il nodo di indice i è in posizione i
+    private final List<GraphNode<L>> nodes;
+
+    // associa a ogni nodo il suo indice
+    private final Map<GraphNode<L>, Integer> indices;
+
+    /*
+     * offsets[u] è la posizione del primo arco uscente dal nodo u, offsets[n]
+     * è il numero totale di archi
+     */
+    private final int[] offsets;
+
+    // sources[k] è l'indice del nodo di partenza dell'arco k
+    private final int[] sources;
+
+    // targets[k] è l'indice del nodo di arrivo dell'arco k
+    private final int[] targets;
+
+    // weights[k] è il peso dell'arco k
+    private final double[] weights;
+
+    /*
+     * Indice inverso: le posizioni da reverseOffsets[v] a reverseOffsets[v + 1]
+     * di reverseEdges contengono le posizioni degli archi entranti in v
+     */
+    private final int[] reverseOffsets;
+
+    private final int[] reverseEdges;
+
+    // edges.get(k) è l'arco originale in posizione k
+    private final List<GraphEdge<L>> edges;
+
+    /**
+     * Crea la fotografia CSR di un grafo orientato e pesato privo di pesi
+     * negativi.
+     *
+     * @param graph
+     *                  il grafo da fotografare
+     * @throws NullPointerException
+     *                                      se il grafo passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se il grafo passato non è
+     *                                      orientato, non è pesato o contiene
+     *                                      almeno un peso negativo
+     */
+    public CsrGraph(Graph<L> graph) {
+        if (graph == null)
+            throw new NullPointerException("Grafo nullo");
+        if (!graph.isDirected())
+            throw new IllegalArgumentException("Il grafo non è orientato");
+        int n = graph.nodeCount();
+        List<GraphNode<L>> nodi = new ArrayList<>(n);
+        this.indices = new HashMap<>();
+        for (GraphNode<L> nodo : graph.getNodes()) {
+            this.indices.put(nodo, nodi.size());
+            nodi.add(nodo);
+        }
+        this.nodes = Collections.unmodifiableList(nodi);
+        // prima passata: conto gli archi uscenti di ogni nodo
+        this.offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            this.offsets[u + 1] = this.offsets[u]
+                    + graph.getEdgesOf(nodi.get(u)).size();
+        }
+        int m = this.offsets[n];
+        this.sources = new int[m];
+        this.targets = new int[m];
+        this.weights = new double[m];
+        List<GraphEdge<L>> archi = new ArrayList<>(m);
+        // seconda passata: riempio gli array nell'ordine dei nodi sorgente
+        for (int u = 0; u < n; u++) {
+            for (GraphEdge<L> arco : graph.getEdgesOf(nodi.get(u))) {
+                double peso = arco.getWeight();
+                if (Double.isNaN(peso) || peso < 0)
+                    throw new IllegalArgumentException(
+                            "Arco non pesato o con peso negativo: " + arco);
+                int k = archi.size();
+                this.sources[k] = u;
+                this.targets[k] = this.indices.get(arco.getNode2());
+                this.weights[k] = peso;
+                archi.add(arco);
+            }
+        }
+        this.edges = Collections.unmodifiableList(archi);
+        // indice inverso calcolato con un counting sort sui nodi di arrivo
+        this.reverseOffsets = new int[n + 1];
+        for (int k = 0; k < m; k++)
+            this.reverseOffsets[this.targets[k] + 1]++;
+        for (int v = 0; v < n; v++)
+            this.reverseOffsets[v + 1] += this.reverseOffsets[v];
+        this.reverseEdges = new int[m];
+        int[] prossimo = Arrays.copyOf(this.reverseOffsets, n);
+        for (int k = 0; k < m; k++)
+            this.reverseEdges[prossimo[this.targets[k]]++] = k;
+    }
+
+    /**
+     * @return il numero di nodi
+     */
+    public int nodeCount() {
+        return this.nodes.size();
+    }
+
+    /**
+     * @return il numero di archi
+     */
+    public int edgeCount() {
+        return this.targets.length;
+    }
+
+    /**
+     * Restituisce l'indice di un nodo.
+     *
+     * @param node
+     *                 il nodo
+     * @return l'indice del nodo, oppure -1 se il nodo non appartiene al grafo
+     * @throws NullPointerException
+     *                                  se il nodo passato è nullo
+     */
+    public int getNodeIndexOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo");
+        Integer i = this.indices.get(node);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Restituisce il nodo con un certo indice.
+     *
+     * @param i
+     *              l'indice del nodo
+     * @return il nodo di indice i
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non è valido
+     */
+    public GraphNode<L> getNodeAtIndex(int i) {
+        return this.nodes.get(i);
+    }
+
+    /**
+     * @param u
+     *              l'indice di un nodo
+     * @return la posizione del primo arco uscente da u
+     */
+    public int firstEdgeOf(int u) {
+        return this.offsets[u];
+    }
+
+    /**
+     * @param u
+     *              l'indice di un nodo
+     * @return la posizione successiva all'ultimo arco uscente da u
+     */
+    public int endEdgeOf(int u) {
+        return this.offsets[u + 1];
+    }
+
+    /**
+     * @param v
+     *              l'indice di un nodo
+     * @return la posizione nell'indice inverso del primo arco entrante in v
+     */
+    public int firstIngoingEdgeOf(int v) {
+        return this.reverseOffsets[v];
+    }
+
+    /**
+     * @param v
+     *              l'indice di un nodo
+     * @return la posizione nell'indice inverso successiva all'ultimo arco
+     *         entrante in v
+     */
+    public int endIngoingEdgeOf(int v) {
+        return this.reverseOffsets[v + 1];
+    }
+
+    /**
+     * @param j
+     *              una posizione nell'indice inverso
+     * @return la posizione dell'arco entrante corrispondente
+     */
+    public int getIngoingEdge(int j) {
+        return this.reverseEdges[j];
+    }
+
+    /**
+     * @param k
+     *              la posizione di un arco
+     * @return l'indice del nodo di partenza dell'arco
+     */
+    public int getEdgeSource(int k) {
+        return this.sources[k];
+    }
+
+    /**
+     * @param k
+     *              la posizione di un arco
+     * @return l'indice del nodo di arrivo dell'arco
+     */
+    public int getEdgeTarget(int k) {
+        return this.targets[k];
+    }
+
+    /**
+     * @param k
+     *              la posizione di un arco
+     * @return il peso dell'arco
+     */
+    public double getEdgeWeight(int k) {
+        return this.weights[k];
+    }
+
+    /**
+     * @param k
+     *              la posizione di un arco
+     * @return l'arco originale del grafo
+     */
+    public GraphEdge<L> getEdge(int k) {
+        return this.edges.get(k);
+    }
+}
@@ -3,8 +3,10 @@ package it.unicam.cs.asdl2223.es13;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 // TODO completare gli import con eventuali classi della Java SE
@@ -12,8 +14,41 @@ import java.util.Set;
 /**
  * Classe che implementa l'algoritmo di Dijkstra per il calcolo dei cammini
  * minimi da una sorgente singola. L'algoritmo usa una coda con priorità
- * inefficiente (implementata con una List) che per estrarre il minimo impiega
- * O(n).
+ * indicizzata realizzata con uno heap binario (IndexedMinPriorityQueue), che
+ * permette di estrarre il minimo e di diminuire la distanza di un nodo in
+ * O(log n). I pesi degli archi sono letti direttamente dagli archi uscenti del
+ * nodo estratto, per cui il calcolo da una sorgente costa O((n + m) log n).
+ * 
+ * Le distanze possono essere memorizzate nei nodi come distanze intere (il
+ * default, i valori vengono troncati) oppure come distanze in virgola mobile,
+ * scegliendo la modalità nel costruttore. Per ogni nodo viene inoltre
+ * memorizzato l'arco con cui è stato raggiunto nell'albero dei cammini minimi,
+ * per cui la ricostruzione di un cammino costa O(lunghezza del cammino).
+ * 
+ * Quando serve un solo cammino fra due nodi si possono usare le interrogazioni
+ * punto-punto (Dijkstra bidirezionale o A*), che si fermano appena il target è
+ * raggiunto invece di calcolare i cammini verso tutti i nodi. Le
+ * interrogazioni lavorano su una fotografia CSR del grafo, creata alla prima
+ * interrogazione in tempo O(n + m) e poi riusata, insieme agli array della
+ * ricerca, finché il grafo non viene modificato con addEdge, removeEdge o
+ * changeEdgeWeight oppure non viene chiamato invalidate: ogni interrogazione
+ * successiva costa quindi solo la visita dei nodi vicini ai cammini cercati.
+ * 
+ * Dopo un calcolo completo gli archi possono essere aggiunti, rimossi o
+ * ripesati attraverso i metodi addEdge, removeEdge e changeEdgeWeight di
+ * questo oggetto, che modificano il grafo e riparano solo la parte dell'albero
+ * dei cammini minimi interessata dalla modifica: una diminuzione di distanza
+ * viene propagata con Dijkstra a partire dal nodo di arrivo dell'arco, mentre
+ * quando un arco dell'albero viene rimosso o appesantito si ricalcolano solo
+ * i nodi del suo sottoalbero, ripartendo dai loro archi entranti provenienti
+ * dal resto dell'albero. Il costo dipende quindi dai nodi le cui distanze o
+ * i cui predecessori cambiano e dai loro archi, non dalla dimensione del
+ * grafo. Il grafo non registra le proprie modifiche, per cui questo oggetto
+ * non può accorgersi di quelle fatte senza passare dai suoi metodi (nodi o
+ * archi aggiunti o rimossi direttamente, pesi cambiati con setWeight): dopo
+ * una modifica diretta bisogna chiamare invalidate, altrimenti gli
+ * aggiornamenti incrementali successivi riparano un albero non più valido e
+ * le distanze risultanti sono sbagliate.
  * 
  * @author Template: Luca Tesei, Implementazione: collettiva
  *
@@ -32,10 +67,47 @@ public class DijkstraShortestPathComputer<L>
     private boolean isComputed = false;
 
     /*
-     * Contiene i nodi ancora da analizzare, la coda con priorità viene gestita
-     * tramite lista e l'elemento minimo viene cercato e rimosso con costo O(n)
+     * Contiene gli indici dei nodi scoperti e non ancora analizzati, con
+     * priorità pari alla distanza corrente dalla sorgente
+     */
+    private IndexedMinPriorityQueue queue;
+
+    /*
+     * Nodi del grafo nell'ordine degli indici assegnati all'inizio del calcolo
+     */
+    private List<GraphNode<L>> nodi;
+
+    /*
+     * Associa a ogni nodo del grafo il suo indice nella lista nodi e nella
+     * coda con priorità
      */
-    private List<GraphNode<L>> queue;
+    private Map<GraphNode<L>, Integer> indici;
+
+    /*
+     * Per ogni indice di nodo contiene l'arco entrante nel nodo nell'albero dei
+     * cammini minimi, oppure null se il nodo è la sorgente o non è
+     * raggiungibile
+     */
+    private List<GraphEdge<L>> archiPrecedenti;
+
+    /*
+     * Se true le distanze sono memorizzate con setFloatingPointDistance,
+     * altrimenti con setIntegerDistance
+     */
+    private final boolean floatingPointDistance;
+
+    /*
+     * Ricerca usata dalle interrogazioni punto-punto, con la sua fotografia
+     * CSR del grafo; è null finché non serve o dopo una modifica del grafo
+     */
+    private PointToPointSearch<L> pointToPoint;
+
+    /*
+     * Per ogni indice di nodo contiene gli archi entranti nel nodo, usati per
+     * riparare l'albero dopo una rimozione; viene creato alla prima rimozione
+     * dopo un calcolo completo e poi aggiornato dai metodi incrementali
+     */
+    private List<Set<GraphEdge<L>>> archiEntranti;
 
     /**
      * Crea un calcolatore di cammini minimi a sorgente singola per un grafo
@@ -61,6 +133,36 @@ public class DijkstraShortestPathComputer<L>
      *                                  un peso negativo
      */
     public DijkstraShortestPathComputer(Graph<L> graph) {
+        this(graph, false);
+    }
+
+    /**
+     * Crea un calcolatore di cammini minimi a sorgente singola per un grafo
+     * diretto e pesato privo di pesi negativi, specificando come memorizzare
+     * le distanze nei nodi.
+     * 
+     * @param graph
+     *                                  il grafo su cui opera il calcolatore
+     *                                  di cammini minimi
+     * @param floatingPointDistance
+     *                                  se true le distanze vengono
+     *                                  memorizzate senza troncamento con
+     *                                  {@code setFloatingPointDistance} e i
+     *                                  nodi non raggiungibili hanno distanza
+     *                                  {@code Double.POSITIVE_INFINITY}; se
+     *                                  false vengono memorizzate con
+     *                                  {@code setIntegerDistance} e i nodi
+     *                                  non raggiungibili hanno distanza
+     *                                  {@code Integer.MAX_VALUE}
+     * @throws NullPointerException
+     *                                  se il grafo passato è nullo
+     * @throws IllegalArgumentException
+     *                                  se il grafo passato è vuoto, non è
+     *                                  orientato, non è pesato o contiene
+     *                                  almeno un peso negativo
+     */
+    public DijkstraShortestPathComputer(Graph<L> graph,
+            boolean floatingPointDistance) {
         if (graph == null) {
             throw new NullPointerException();
         }
@@ -68,29 +170,168 @@ public class DijkstraShortestPathComputer<L>
             throw new IllegalArgumentException();
         }
         for (GraphEdge<L> edge : graph.getEdges()) {
-            if (edge.getWeight() == Double.NaN || edge.getWeight() < 0) {
-                throw new IllegalArgumentException();
-            }
+            checkWeight(edge, edge.getWeight());
         }
         this.grafo = graph;
+        this.floatingPointDistance = floatingPointDistance;
+    }
+
+    /**
+     * Indica come vengono memorizzate le distanze nei nodi.
+     * 
+     * @return true se le distanze sono memorizzate in virgola mobile, false
+     *         se sono memorizzate come interi
+     */
+    public boolean isFloatingPointDistance() {
+        return this.floatingPointDistance;
     }
 
     @Override
     public void computeShortestPathsFrom(GraphNode<L> sourceNode) {
+        if (sourceNode == null)
+            throw new NullPointerException("Sorgente nulla");
+        if (!this.grafo.containsNode(sourceNode))
+            throw new IllegalArgumentException(
+                    "La sorgente non è un nodo del grafo");
         this.lastSource = sourceNode;
+        this.indexNodes();
         this.initializeSingleSource(grafo, sourceNode);
-        List<GraphNode<L>> pesi = new ArrayList<>();
-        this.queue = new ArrayList<>(this.grafo.getNodes());
-        while (!this.queue.isEmpty()) {
-            GraphNode<L> u = this.extractMinNode();
-            pesi.add(u);
-            for (GraphNode<L> v : this.grafo.getAdjacentNodesOf(u)) {
-                this.relax(u, v);
-            }
-        }
+        this.queue = new IndexedMinPriorityQueue(this.nodi.size());
+        // Nella coda entrano solo i nodi scoperti, a partire dalla sorgente
+        this.queue.insert(this.indici.get(sourceNode), 0);
+        this.propagate();
+        this.archiEntranti = null;
         this.isComputed = true;
     }
 
+    /**
+     * Aggiunge un arco al grafo e, se i cammini minimi sono stati calcolati,
+     * aggiorna le distanze dei soli nodi che diventano più vicini alla
+     * sorgente passando per il nuovo arco.
+     * 
+     * @param edge
+     *                 l'arco da aggiungere
+     * @return true se l'arco è stato aggiunto, false se era già presente
+     * @throws NullPointerException
+     *                                      se l'arco passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se l'arco non è orientato, non è
+     *                                      pesato, ha peso negativo o collega
+     *                                      nodi che non appartengono al grafo
+     */
+    public boolean addEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo");
+        checkWeight(edge, edge.getWeight());
+        if (!edge.isDirected())
+            throw new IllegalArgumentException("Arco non orientato");
+        boolean aggiunto = this.grafo.addEdge(edge);
+        if (aggiunto)
+            this.pointToPoint = null;
+        if (!this.isComputed || !aggiunto)
+            return aggiunto;
+        int iv = this.indici.get(edge.getNode2());
+        if (this.archiEntranti != null)
+            this.archiEntranti.get(iv).add(edge);
+        this.relax(this.nodi.get(this.indici.get(edge.getNode1())), edge);
+        this.propagate();
+        return true;
+    }
+
+    /**
+     * Rimuove un arco dal grafo e, se i cammini minimi sono stati calcolati e
+     * l'arco fa parte dell'albero dei cammini minimi, ricalcola le distanze
+     * dei soli nodi del sottoalbero raggiunto attraverso l'arco.
+     * 
+     * @param edge
+     *                 l'arco da rimuovere
+     * @return true se l'arco è stato rimosso, false se non era presente
+     * @throws NullPointerException
+     *                                      se l'arco passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se l'arco collega nodi che non
+     *                                      appartengono al grafo
+     */
+    public boolean removeEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo");
+        boolean rimosso = this.grafo.removeEdge(edge);
+        if (rimosso)
+            this.pointToPoint = null;
+        if (!this.isComputed || !rimosso)
+            return rimosso;
+        int iv = this.indici.get(edge.getNode2());
+        if (this.archiEntranti != null)
+            this.archiEntranti.get(iv).remove(edge);
+        if (edge.equals(this.archiPrecedenti.get(iv)))
+            this.repairSubtree(iv);
+        return true;
+    }
+
+    /**
+     * Cambia il peso di un arco del grafo e, se i cammini minimi sono stati
+     * calcolati, aggiorna solo i nodi interessati: se il peso diminuisce si
+     * propagano le nuove distanze a partire dal nodo di arrivo dell'arco, se
+     * aumenta e l'arco fa parte dell'albero dei cammini minimi si ricalcola il
+     * sottoalbero raggiunto attraverso l'arco.
+     * 
+     * @param edge
+     *                      l'arco del grafo da ripesare
+     * @param newWeight
+     *                      il nuovo peso dell'arco
+     * @throws NullPointerException
+     *                                      se l'arco passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se il nuovo peso è negativo o
+     *                                      {@code Double.NaN} o se l'arco non
+     *                                      appartiene al grafo
+     */
+    public void changeEdgeWeight(GraphEdge<L> edge, double newWeight) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo");
+        checkWeight(edge, newWeight);
+        if (!this.grafo.containsNode(edge.getNode1()))
+            throw new IllegalArgumentException(
+                    "L'arco non appartiene al grafo");
+        // cerco l'arco memorizzato nel grafo, che è quello da modificare
+        GraphEdge<L> arco = null;
+        for (GraphEdge<L> e : this.grafo.getEdgesOf(edge.getNode1()))
+            if (e.equals(edge))
+                arco = e;
+        if (arco == null)
+            throw new IllegalArgumentException(
+                    "L'arco non appartiene al grafo");
+        double vecchioPeso = arco.getWeight();
+        arco.setWeight(newWeight);
+        this.pointToPoint = null;
+        if (!this.isComputed)
+            return;
+        int iv = this.indici.get(arco.getNode2());
+        if (newWeight < vecchioPeso) {
+            this.relax(this.nodi.get(this.indici.get(arco.getNode1())), arco);
+            this.propagate();
+        } else if (newWeight > vecchioPeso
+                && arco.equals(this.archiPrecedenti.get(iv))) {
+            this.repairSubtree(iv);
+        }
+    }
+
+    /**
+     * Segnala che il grafo è stato modificato senza passare dai metodi di
+     * questo oggetto. La fotografia usata dalle interrogazioni punto-punto
+     * viene scartata e ricreata alla prossima interrogazione. Se i cammini
+     * minimi sono stati calcolati vengono ricalcolati completamente
+     * dall'ultima sorgente, oppure, se la sorgente non appartiene più al
+     * grafo, vengono considerati non calcolati.
+     */
+    public void invalidate() {
+        this.pointToPoint = null;
+        if (this.isComputed && this.grafo.containsNode(this.lastSource))
+            this.computeShortestPathsFrom(this.lastSource);
+        else
+            this.isComputed = false;
+    }
+
     @Override
     public boolean isComputed() {
         return this.isComputed;
@@ -111,77 +352,251 @@ public class DijkstraShortestPathComputer<L>
 
     @Override
     public List<GraphEdge<L>> getShortestPathTo(GraphNode<L> targetNode) {
-        if (this.lastSource.equals(targetNode)) {
-            return new ArrayList<>();
-        }
+        if (targetNode == null)
+            throw new NullPointerException("Nodo target nullo");
+        if (!this.isComputed)
+            throw new IllegalStateException("Richiesto un cammino, ma non "
+                    + "sono mai stati calcolati i cammini minimi");
+        Integer target = this.indici.get(targetNode);
+        if (target == null)
+            throw new IllegalArgumentException(
+                    "Il nodo target non è un nodo del grafo");
+        int source = this.indici.get(this.lastSource);
         List<GraphEdge<L>> shortestPath = new ArrayList<>();
-        // Mi prendo il nodo precedente del target
-        GraphNode<L> node1 = this.grafo.getNodeOf(targetNode.getLabel()).getPrevious();
-        GraphNode<L> node2 = this.grafo.getNodeOf(targetNode.getLabel());
-        Set<GraphEdge<L>> edges = this.grafo.getEdges();
-        do {
-            GraphEdge<L> edge = this.findEdgeOf(edges, node1, node2);
-            shortestPath.add(edge);
-            node2 = node1;
-            node1 = node2.getPrevious();
-        } while (node1 != null && !node1.equals(this.lastSource));
-        GraphEdge<L> last = this.findEdgeOf(edges, this.lastSource, node2);
-        if(last != null) {
-            shortestPath.add(last);
+        // Risalgo l'albero dei cammini minimi seguendo gli archi precedenti
+        int corrente = target;
+        while (corrente != source) {
+            GraphEdge<L> arco = this.archiPrecedenti.get(corrente);
+            if (arco == null) {
+                // il nodo target non è raggiungibile dalla sorgente
+                return null;
+            }
+            shortestPath.add(arco);
+            corrente = this.indici.get(arco.getNode1());
         }
         Collections.reverse(shortestPath);
         return shortestPath;
     }
 
-    private void initializeSingleSource(Graph<L> grafo, GraphNode<L> source) {
-        for (GraphNode<L> nodo : grafo.getNodes()) {
-            // Uso Integer.MAX_VALUE come +infinito
-            if (nodo.equals(source)) {
-                nodo.setIntegerDistance(0);
-            } else {
-                nodo.setIntegerDistance(Integer.MAX_VALUE);
+    /**
+     * Calcola un cammino minimo fra due nodi con l'algoritmo di Dijkstra
+     * bidirezionale: una visita in avanti dalla sorgente e una all'indietro,
+     * lungo gli archi entranti, dal target, che si fermano appena le due
+     * frontiere garantiscono il cammino minimo. Non modifica i nodi del grafo
+     * né il risultato dell'ultimo computeShortestPathsFrom.
+     * 
+     * @param sourceNode
+     *                       il nodo sorgente
+     * @param targetNode
+     *                       il nodo target
+     * @return la lista degli archi di un cammino minimo, vuota se sorgente e
+     *         target coincidono, oppure null se il target non è raggiungibile
+     * @throws NullPointerException
+     *                                      se uno dei nodi passati è nullo
+     * @throws IllegalArgumentException
+     *                                      se uno dei nodi passati non
+     *                                      appartiene al grafo
+     */
+    public List<GraphEdge<L>> computeBidirectionalShortestPath(
+            GraphNode<L> sourceNode, GraphNode<L> targetNode) {
+        PointToPointSearch<L> search = this.getPointToPointSearch();
+        return search.bidirectional(indexOf(search, sourceNode),
+                indexOf(search, targetNode));
+    }
+
+    /**
+     * Calcola un cammino minimo fra due nodi con l'algoritmo A*, cioè con una
+     * visita in avanti guidata da una stima della distanza residua verso il
+     * target, che si ferma appena il target viene estratto dalla coda. Non
+     * modifica i nodi del grafo né il risultato dell'ultimo
+     * computeShortestPathsFrom.
+     * 
+     * @param sourceNode
+     *                       il nodo sorgente
+     * @param targetNode
+     *                       il nodo target
+     * @param heuristic
+     *                       una stima ammissibile della distanza dal target
+     * @return la lista degli archi di un cammino minimo, vuota se sorgente e
+     *         target coincidono, oppure null se il target non è raggiungibile
+     * @throws NullPointerException
+     *                                      se uno dei parametri passati è
+     *                                      nullo
+     * @throws IllegalArgumentException
+     *                                      se uno dei nodi passati non
+     *                                      appartiene al grafo
+     */
+    public List<GraphEdge<L>> computeAStarShortestPath(GraphNode<L> sourceNode,
+            GraphNode<L> targetNode, ShortestPathHeuristic<L> heuristic) {
+        if (heuristic == null)
+            throw new NullPointerException("Euristica nulla");
+        PointToPointSearch<L> search = this.getPointToPointSearch();
+        return search.aStar(indexOf(search, sourceNode),
+                indexOf(search, targetNode), heuristic);
+    }
+
+    /*
+     * Restituisce la ricerca punto-punto, creando la fotografia del grafo se
+     * è la prima interrogazione dopo una modifica
+     */
+    private PointToPointSearch<L> getPointToPointSearch() {
+        if (this.pointToPoint == null)
+            this.pointToPoint = new PointToPointSearch<>(new CsrGraph<>(this.grafo));
+        return this.pointToPoint;
+    }
+
+    private static <L> int indexOf(PointToPointSearch<L> search,
+            GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo");
+        int i = search.getCsrGraph().getNodeIndexOf(node);
+        if (i == -1)
+            throw new IllegalArgumentException(
+                    "Il nodo " + node + " non appartiene al grafo");
+        return i;
+    }
+
+    private static <L> void checkWeight(GraphEdge<L> edge, double peso) {
+        if (Double.isNaN(peso) || peso < 0)
+            throw new IllegalArgumentException(
+                    "Peso dell'arco " + edge + " non valido");
+    }
+
+
+    /*
+     * Estrae i nodi dalla coda in ordine di distanza rilassando i loro archi
+     * uscenti, finché la coda non è vuota
+     */
+    private void propagate() {
+        while (!this.queue.isEmpty()) {
+            GraphNode<L> u = this.nodi.get(this.queue.extractMinimum());
+            for (GraphEdge<L> arco : this.grafo.getEdgesOf(u)) {
+                this.relax(u, arco);
+            }
+        }
+    }
+
+    /*
+     * Ricalcola le distanze dei nodi del sottoalbero di radice v, che sono le
+     * sole che possono aumentare quando l'arco entrante in v viene rimosso o
+     * appesantito. I nodi del sottoalbero vengono prima scollegati, poi
+     * ognuno riceve la migliore distanza raggiungibile con un arco entrante
+     * da un nodo esterno al sottoalbero e infine Dijkstra propaga le distanze
+     * all'interno del sottoalbero.
+     */
+    private void repairSubtree(int v) {
+        if (this.archiEntranti == null)
+            this.indexIngoingEdges();
+        // raccolgo il sottoalbero: i figli di un nodo sono gli adiacenti il
+        // cui arco precedente è l'arco uscente dal nodo
+        Set<Integer> sottoalbero = new HashSet<>();
+        List<Integer> daVisitare = new ArrayList<>();
+        sottoalbero.add(v);
+        daVisitare.add(v);
+        for (int i = 0; i < daVisitare.size(); i++) {
+            GraphNode<L> u = this.nodi.get(daVisitare.get(i));
+            for (GraphEdge<L> arco : this.grafo.getEdgesOf(u)) {
+                int figlio = this.indici.get(arco.getNode2());
+                if (arco.equals(this.archiPrecedenti.get(figlio))
+                        && sottoalbero.add(figlio))
+                    daVisitare.add(figlio);
             }
+        }
+        for (int i : daVisitare) {
+            GraphNode<L> nodo = this.nodi.get(i);
+            this.setDistance(nodo, Double.POSITIVE_INFINITY);
             nodo.setPrevious(null);
+            this.archiPrecedenti.set(i, null);
+        }
+        for (int i : daVisitare) {
+            for (GraphEdge<L> arco : this.archiEntranti.get(i)) {
+                int iu = this.indici.get(arco.getNode1());
+                if (!sottoalbero.contains(iu))
+                    this.relax(this.nodi.get(iu), arco);
+            }
         }
-        source.setIntegerDistance(0);
+        this.propagate();
     }
 
-    private void relax(GraphNode<L> u, GraphNode<L> v) {
-        double peso = this.getWeightOfEdge(u, v);
-        if (v.getIntegerDistance() > u.getIntegerDistance() + peso) {
-            int newDistance = (int) (u.getIntegerDistance() + peso);
-            v.setIntegerDistance(newDistance);
-            v.setPrevious(u);
+    /*
+     * Costruisce gli insiemi degli archi entranti di tutti i nodi, una sola
+     * volta dopo ogni calcolo completo
+     */
+    private void indexIngoingEdges() {
+        this.archiEntranti = new ArrayList<>(this.nodi.size());
+        for (int i = 0; i < this.nodi.size(); i++)
+            this.archiEntranti.add(new HashSet<>());
+        for (GraphNode<L> u : this.nodi)
+            for (GraphEdge<L> arco : this.grafo.getEdgesOf(u))
+                this.archiEntranti.get(this.indici.get(arco.getNode2()))
+                        .add(arco);
+    }
+
+    /*
+     * Assegna a ogni nodo del grafo un indice da 0 a nodeCount() - 1
+     */
+    private void indexNodes() {
+        this.nodi = new ArrayList<>(this.grafo.nodeCount());
+        this.indici = new HashMap<>();
+        this.archiPrecedenti = new ArrayList<>(this.grafo.nodeCount());
+        for (GraphNode<L> nodo : this.grafo.getNodes()) {
+            this.indici.put(nodo, this.nodi.size());
+            this.nodi.add(nodo);
+            this.archiPrecedenti.add(null);
         }
     }
 
-    private double getWeightOfEdge(GraphNode<L> u, GraphNode<L> v) {
-        for (GraphEdge<L> arco : this.grafo.getEdges()) {
-            if (arco.getNode2().equals(v)
-                    && arco.getNode1().equals(u)) {
-                return arco.getWeight();
+    private void initializeSingleSource(Graph<L> grafo, GraphNode<L> source) {
+        for (GraphNode<L> nodo : grafo.getNodes()) {
+            // Uso Integer.MAX_VALUE o Double.POSITIVE_INFINITY come +infinito
+            if (nodo.equals(source)) {
+                this.setDistance(nodo, 0);
+            } else {
+                this.setDistance(nodo, Double.POSITIVE_INFINITY);
             }
+            nodo.setPrevious(null);
         }
-        return 0;
+        this.setDistance(source, 0);
     }
 
-    private GraphNode<L> extractMinNode() {
-        GraphNode<L> min = this.queue.get(0);
-        for (GraphNode<L> nodo : this.queue) {
-            if (nodo.getIntegerDistance() < min.getIntegerDistance()) {
-                min = nodo;
+    private void relax(GraphNode<L> u, GraphEdge<L> arco) {
+        // uso il nodo memorizzato nel grafo, che è quello su cui scrivo i
+        // risultati, anche se l'arco ne contiene una copia uguale
+        int iv = this.indici.get(arco.getNode2());
+        GraphNode<L> v = this.nodi.get(iv);
+        double newDistance = this.getDistance(u) + arco.getWeight();
+        if (this.getDistance(v) > newDistance) {
+            this.setDistance(v, newDistance);
+            v.setPrevious(u);
+            this.archiPrecedenti.set(iv, arco);
+            // la priorità è la distanza effettivamente memorizzata nel nodo
+            double priorita = this.getDistance(v);
+            if (this.queue.contains(iv)) {
+                this.queue.decreasePriority(iv, priorita);
+            } else {
+                this.queue.insert(iv, priorita);
             }
         }
-        this.queue.remove(min);
-        return min;
     }
 
-    private GraphEdge<L> findEdgeOf(Set<GraphEdge<L>> edges, GraphNode<L> node1, GraphNode<L> node2) {
-        for (GraphEdge<L> edge : edges) {
-            if (edge.getNode1().equals(node1) && edge.getNode2().equals(node2)) {
-                return edge;
-            }
+    private double getDistance(GraphNode<L> nodo) {
+        if (this.floatingPointDistance)
+            return nodo.getFloatingPointDistance();
+        return nodo.getIntegerDistance();
+    }
+
+    /*
+     * Memorizza la distanza nel nodo secondo la modalità scelta; in modalità
+     * intera +infinito diventa Integer.MAX_VALUE e gli altri valori vengono
+     * troncati
+     */
+    private void setDistance(GraphNode<L> nodo, double distanza) {
+        if (this.floatingPointDistance) {
+            nodo.setFloatingPointDistance(distanza);
+        } else if (distanza == Double.POSITIVE_INFINITY) {
+            nodo.setIntegerDistance(Integer.MAX_VALUE);
+        } else {
+            nodo.setIntegerDistance((int) distanza);
         }
-        return null;
     }
 }
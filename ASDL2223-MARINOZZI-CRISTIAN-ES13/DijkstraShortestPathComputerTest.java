@@ -0,0 +1,304 @@
+/**
+ *
+ */
+package it.unicam.cs.asdl2223.es13;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Template: Luca Tesei, Implementation: Collettiva da Esercitazione a
+ *         Casa
+ *
+ */
+class DijkstraShortestPathComputerTest {
+
+    // numero di grafi casuali su cui si provano gli aggiornamenti
+    static final int GRAFI = 100;
+
+    // numero di aggiornamenti eseguiti su ogni grafo
+    static final int OPERAZIONI = 40;
+
+    @Test
+    final void testIncrementalUpdatesFloatingPoint() {
+        checkIncrementalUpdates(true, new Random(1));
+    }
+
+    @Test
+    final void testIncrementalUpdatesInteger() {
+        checkIncrementalUpdates(false, new Random(2));
+    }
+
+    @Test
+    final void testConstructorRejectsInvalidWeights() {
+        MapAdjacentListDirectedGraph<String> g = new MapAdjacentListDirectedGraph<String>();
+        GraphNode<String> a = new GraphNode<String>("a");
+        GraphNode<String> b = new GraphNode<String>("b");
+        g.addNode(a);
+        g.addNode(b);
+        GraphEdge<String> arco = new GraphEdge<String>(a, b, true, 1);
+        g.addEdge(arco);
+        arco.setWeight(Double.NaN);
+        assertThrows(IllegalArgumentException.class, () -> new DijkstraShortestPathComputer<String>(g, true));
+        arco.setWeight(-1);
+        assertThrows(IllegalArgumentException.class, () -> new DijkstraShortestPathComputer<String>(g, true));
+    }
+
+    @Test
+    final void testRemoveTreeEdge() {
+        MapAdjacentListDirectedGraph<String> g = new MapAdjacentListDirectedGraph<String>();
+        GraphNode<String> a = new GraphNode<String>("a");
+        GraphNode<String> b = new GraphNode<String>("b");
+        GraphNode<String> c = new GraphNode<String>("c");
+        g.addNode(a);
+        g.addNode(b);
+        g.addNode(c);
+        g.addEdge(new GraphEdge<String>(a, b, true, 1));
+        g.addEdge(new GraphEdge<String>(b, c, true, 1));
+        g.addEdge(new GraphEdge<String>(a, c, true, 5));
+        DijkstraShortestPathComputer<String> computer = new DijkstraShortestPathComputer<String>(g, true);
+        computer.computeShortestPathsFrom(a);
+        assertEquals(2, c.getFloatingPointDistance());
+        // tolto l'arco dell'albero, c si raggiunge solo con l'arco diretto
+        assertTrue(computer.removeEdge(new GraphEdge<String>(b, c, true)));
+        assertEquals(5, c.getFloatingPointDistance());
+        assertEquals(a, c.getPrevious());
+        assertEquals(1, computer.getShortestPathTo(c).size());
+        // tolto anche l'arco diretto, c non è più raggiungibile
+        assertTrue(computer.removeEdge(new GraphEdge<String>(a, c, true)));
+        assertEquals(Double.POSITIVE_INFINITY, c.getFloatingPointDistance());
+        assertNull(computer.getShortestPathTo(c));
+        assertFalse(computer.removeEdge(new GraphEdge<String>(a, c, true)));
+    }
+
+    @Test
+    final void testAddEdgeAndDecreaseWeight() {
+        MapAdjacentListDirectedGraph<String> g = new MapAdjacentListDirectedGraph<String>();
+        GraphNode<String> a = new GraphNode<String>("a");
+        GraphNode<String> b = new GraphNode<String>("b");
+        GraphNode<String> c = new GraphNode<String>("c");
+        g.addNode(a);
+        g.addNode(b);
+        g.addNode(c);
+        g.addEdge(new GraphEdge<String>(a, b, true, 4));
+        DijkstraShortestPathComputer<String> computer = new DijkstraShortestPathComputer<String>(g, true);
+        computer.computeShortestPathsFrom(a);
+        assertEquals(Double.POSITIVE_INFINITY, c.getFloatingPointDistance());
+        assertTrue(computer.addEdge(new GraphEdge<String>(b, c, true, 3)));
+        assertEquals(7, c.getFloatingPointDistance());
+        assertFalse(computer.addEdge(new GraphEdge<String>(b, c, true, 3)));
+        // diminuendo il peso di a-b si aggiorna anche c
+        computer.changeEdgeWeight(new GraphEdge<String>(a, b, true), 1);
+        assertEquals(1, b.getFloatingPointDistance());
+        assertEquals(4, c.getFloatingPointDistance());
+        assertThrows(IllegalArgumentException.class,
+                () -> computer.changeEdgeWeight(new GraphEdge<String>(a, b, true), -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> computer.changeEdgeWeight(new GraphEdge<String>(c, a, true), 1));
+        assertThrows(NullPointerException.class, () -> computer.addEdge(null));
+        assertThrows(NullPointerException.class, () -> computer.removeEdge(null));
+    }
+
+    @Test
+    final void testInvalidateAfterDirectChanges() {
+        MapAdjacentListDirectedGraph<String> g = new MapAdjacentListDirectedGraph<String>();
+        GraphNode<String> a = new GraphNode<String>("a");
+        GraphNode<String> b = new GraphNode<String>("b");
+        GraphNode<String> c = new GraphNode<String>("c");
+        g.addNode(a);
+        g.addNode(b);
+        g.addNode(c);
+        GraphEdge<String> ab = new GraphEdge<String>(a, b, true, 1);
+        g.addEdge(ab);
+        g.addEdge(new GraphEdge<String>(b, c, true, 1));
+        g.addEdge(new GraphEdge<String>(a, c, true, 5));
+        DijkstraShortestPathComputer<String> computer = new DijkstraShortestPathComputer<String>(g, true);
+        computer.computeShortestPathsFrom(a);
+        assertEquals(2, c.getFloatingPointDistance());
+        // peso cambiato direttamente sul grafo: i conteggi di nodi e archi
+        // non cambiano, per cui serve invalidate
+        ab.setWeight(10);
+        computer.invalidate();
+        assertEquals(10, b.getFloatingPointDistance());
+        assertEquals(5, c.getFloatingPointDistance());
+        assertEquals(a, c.getPrevious());
+        // gli aggiornamenti incrementali successivi partono dall'albero
+        // ricalcolato
+        computer.changeEdgeWeight(new GraphEdge<String>(a, c, true), 20);
+        assertEquals(11, c.getFloatingPointDistance());
+        assertEquals(b, c.getPrevious());
+        // un calcolatore mai usato resta non calcolato
+        DijkstraShortestPathComputer<String> nuovo = new DijkstraShortestPathComputer<String>(g, true);
+        nuovo.invalidate();
+        assertFalse(nuovo.isComputed());
+    }
+
+    @Test
+    final void testPointToPointAfterUpdates() {
+        Random r = new Random(3);
+        for (int t = 0; t < GRAFI; t++) {
+            int n = 2 + r.nextInt(20);
+            MapAdjacentListDirectedGraph<Integer> g = new MapAdjacentListDirectedGraph<Integer>();
+            for (int i = 0; i < n; i++)
+                g.addNode(new GraphNode<Integer>(i));
+            for (int k = 0; k < 3 * n; k++)
+                g.addEdge(randomEdge(r, n));
+            DijkstraShortestPathComputer<Integer> computer = new DijkstraShortestPathComputer<Integer>(g, true);
+            for (int q = 0; q < 10; q++) {
+                // la fotografia viene riusata fra più interrogazioni
+                for (int k = 0; k < 3; k++)
+                    checkPointToPoint(g, computer, r.nextInt(n), r.nextInt(n), n);
+                List<GraphEdge<Integer>> archi = new ArrayList<GraphEdge<Integer>>(g.getEdges());
+                switch (r.nextInt(4)) {
+                case 0:
+                    computer.addEdge(randomEdge(r, n));
+                    break;
+                case 1:
+                    if (!archi.isEmpty())
+                        computer.removeEdge(archi.get(r.nextInt(archi.size())));
+                    break;
+                case 2:
+                    if (!archi.isEmpty()) {
+                        GraphEdge<Integer> x = archi.get(r.nextInt(archi.size()));
+                        computer.changeEdgeWeight(new GraphEdge<Integer>(x.getNode1(), x.getNode2(), true),
+                                r.nextInt(10));
+                    }
+                    break;
+                default:
+                    // modifica diretta del grafo, segnalata con invalidate
+                    if (!archi.isEmpty())
+                        archi.get(r.nextInt(archi.size())).setWeight(r.nextInt(10));
+                    computer.invalidate();
+                }
+            }
+        }
+    }
+
+    /*
+     * Confronta la lunghezza dei cammini trovati da Dijkstra bidirezionale e
+     * da A* con la distanza calcolata da zero con Bellman-Ford
+     */
+    private static void checkPointToPoint(MapAdjacentListDirectedGraph<Integer> g,
+            DijkstraShortestPathComputer<Integer> computer, int s, int t, int n) {
+        double atteso = bellmanFord(g, s, n)[t];
+        List<List<GraphEdge<Integer>>> cammini = new ArrayList<List<GraphEdge<Integer>>>();
+        cammini.add(computer.computeBidirectionalShortestPath(g.getNodeOf(s), g.getNodeOf(t)));
+        cammini.add(computer.computeAStarShortestPath(g.getNodeOf(s), g.getNodeOf(t), (x, y) -> 0));
+        for (List<GraphEdge<Integer>> cammino : cammini) {
+            if (atteso == Double.POSITIVE_INFINITY) {
+                assertNull(cammino);
+                continue;
+            }
+            double somma = 0;
+            int corrente = s;
+            for (GraphEdge<Integer> e : cammino) {
+                assertEquals(corrente, e.getNode1().getLabel());
+                assertTrue(g.containsEdge(e));
+                somma += e.getWeight();
+                corrente = e.getNode2().getLabel();
+            }
+            assertEquals(t, corrente);
+            assertEquals(atteso, somma);
+        }
+    }
+
+    // distanze dal nodo s calcolate con Bellman-Ford
+    private static double[] bellmanFord(MapAdjacentListDirectedGraph<Integer> g, int s, int n) {
+        double[] d = new double[n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        d[s] = 0;
+        for (int it = 0; it < n; it++)
+            for (GraphEdge<Integer> e : g.getEdges()) {
+                int u = e.getNode1().getLabel();
+                int v = e.getNode2().getLabel();
+                if (d[u] + e.getWeight() < d[v])
+                    d[v] = d[u] + e.getWeight();
+            }
+        return d;
+    }
+
+    /*
+     * Esegue inserimenti, rimozioni e cambi di peso casuali tramite il
+     * calcolatore e dopo ogni operazione confronta distanze e cammini con
+     * quelli calcolati da zero con Bellman-Ford
+     */
+    private static void checkIncrementalUpdates(boolean floatingPoint, Random r) {
+        for (int t = 0; t < GRAFI; t++) {
+            int n = 1 + r.nextInt(30);
+            MapAdjacentListDirectedGraph<Integer> g = new MapAdjacentListDirectedGraph<Integer>();
+            for (int i = 0; i < n; i++)
+                g.addNode(new GraphNode<Integer>(i));
+            int m = r.nextInt(n * 3 + 1);
+            for (int k = 0; k < m; k++)
+                g.addEdge(randomEdge(r, n));
+            DijkstraShortestPathComputer<Integer> computer = new DijkstraShortestPathComputer<Integer>(g,
+                    floatingPoint);
+            GraphNode<Integer> s = g.getNodeOf(r.nextInt(n));
+            computer.computeShortestPathsFrom(s);
+            for (int op = 0; op < OPERAZIONI; op++) {
+                List<GraphEdge<Integer>> archi = new ArrayList<GraphEdge<Integer>>(g.getEdges());
+                switch (r.nextInt(4)) {
+                case 0:
+                case 1:
+                    computer.addEdge(randomEdge(r, n));
+                    break;
+                case 2:
+                    if (!archi.isEmpty())
+                        computer.removeEdge(archi.get(r.nextInt(archi.size())));
+                    break;
+                default:
+                    if (!archi.isEmpty()) {
+                        GraphEdge<Integer> x = archi.get(r.nextInt(archi.size()));
+                        computer.changeEdgeWeight(new GraphEdge<Integer>(x.getNode1(), x.getNode2(), true),
+                                r.nextInt(10));
+                    }
+                }
+                checkAgainstBellmanFord(g, computer, s, n, floatingPoint);
+            }
+        }
+    }
+
+    private static GraphEdge<Integer> randomEdge(Random r, int n) {
+        return new GraphEdge<Integer>(new GraphNode<Integer>(r.nextInt(n)), new GraphNode<Integer>(r.nextInt(n)),
+                true, r.nextInt(10));
+    }
+
+    private static void checkAgainstBellmanFord(MapAdjacentListDirectedGraph<Integer> g,
+            DijkstraShortestPathComputer<Integer> computer, GraphNode<Integer> s, int n, boolean floatingPoint) {
+        double[] d = bellmanFord(g, s.getLabel(), n);
+        for (int i = 0; i < n; i++) {
+            GraphNode<Integer> x = g.getNodeOf(i);
+            double distanza;
+            if (floatingPoint)
+                distanza = x.getFloatingPointDistance();
+            else
+                distanza = x.getIntegerDistance() == Integer.MAX_VALUE ? Double.POSITIVE_INFINITY
+                        : x.getIntegerDistance();
+            assertEquals(d[i], distanza);
+            List<GraphEdge<Integer>> cammino = computer.getShortestPathTo(x);
+            if (d[i] == Double.POSITIVE_INFINITY) {
+                assertNull(cammino);
+                continue;
+            }
+            // il cammino deve partire dalla sorgente, usare archi del grafo e
+            // avere la lunghezza minima
+            double somma = 0;
+            int corrente = s.getLabel();
+            for (GraphEdge<Integer> e : cammino) {
+                assertEquals(corrente, e.getNode1().getLabel());
+                assertTrue(g.containsEdge(e));
+                somma += e.getWeight();
+                corrente = e.getNode2().getLabel();
+            }
+            assertEquals(i, corrente);
+            assertEquals(d[i], somma);
+        }
+    }
+
+}
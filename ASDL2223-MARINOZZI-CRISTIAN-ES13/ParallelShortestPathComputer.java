@@ -0,0 +1,241 @@
+package it.unicam.cs.asdl2223.es13;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Classe che calcola i cammini minimi da più sorgenti (fino a tutte le coppie
+ * di nodi) eseguendo in parallelo più istanze dell'algoritmo di Dijkstra su
+ * un ForkJoinPool.
+ *
+ * A differenza di DijkstraShortestPathComputer, che scrive distanze e
+ * predecessori nei nodi del grafo e quindi può calcolare i cammini da una sola
+ * sorgente alla volta, ogni istanza lavora su una fotografia CSR immutabile
+ * del grafo (CsrGraph) e mantiene distanze, archi precedenti e coda con
+ * priorità in array propri. Gli oggetti GraphNode non vengono mai modificati:
+ * l'albero dei cammini minimi restituito (ShortestPathTree) fa da contesto
+ * della singola esecuzione, per cui i metodi di uno stesso calcolatore possono
+ * essere chiamati contemporaneamente da più thread senza sincronizzazione.
+ *
+ * La fotografia viene presa alla creazione dell'oggetto: le modifiche al grafo
+ * successive non sono viste dal calcolatore. Si può anche passare al
+ * costruttore una fotografia già creata, in modo che più calcolatori
+ * condividano la stessa senza ricrearla.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L>
+ *            le etichette dei nodi del grafo
+ */
+public class ParallelShortestPathComputer<L> {
+
+    // la fotografia del grafo su cui operano tutte le istanze
+    private final CsrGraph<L> csr;
+
+    // il pool su cui vengono eseguite le istanze
+    private final ForkJoinPool pool;
+
+    /**
+     * Crea un calcolatore parallelo che usa il pool comune.
+     *
+     * @param graph
+     *                  il grafo su cui calcolare i cammini minimi
+     * @throws NullPointerException
+     *                                      se il grafo passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se il grafo passato è vuoto, non è
+     *                                      orientato, non è pesato o contiene
+     *                                      almeno un peso negativo
+     */
+    public ParallelShortestPathComputer(Graph<L> graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un calcolatore parallelo che usa un pool dato.
+     *
+     * @param graph
+     *                  il grafo su cui calcolare i cammini minimi
+     * @param pool
+     *                  il pool su cui eseguire le istanze di Dijkstra
+     * @throws NullPointerException
+     *                                      se il grafo o il pool passati sono
+     *                                      nulli
+     * @throws IllegalArgumentException
+     *                                      se il grafo passato è vuoto, non è
+     *                                      orientato, non è pesato o contiene
+     *                                      almeno un peso negativo
+     */
+    public ParallelShortestPathComputer(Graph<L> graph, ForkJoinPool pool) {
+        this(new CsrGraph<>(graph), pool);
+    }
+
+    /**
+     * Crea un calcolatore parallelo che opera su una fotografia già creata e
+     * usa il pool comune.
+     *
+     * @param csr
+     *                la fotografia del grafo su cui calcolare i cammini minimi
+     * @throws NullPointerException
+     *                                      se la fotografia passata è nulla
+     * @throws IllegalArgumentException
+     *                                      se la fotografia passata non ha
+     *                                      nodi
+     */
+    public ParallelShortestPathComputer(CsrGraph<L> csr) {
+        this(csr, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un calcolatore parallelo che opera su una fotografia già creata e
+     * usa un pool dato.
+     *
+     * @param csr
+     *                la fotografia del grafo su cui calcolare i cammini minimi
+     * @param pool
+     *                il pool su cui eseguire le istanze di Dijkstra
+     * @throws NullPointerException
+     *                                      se la fotografia o il pool passati
+     *                                      sono nulli
+     * @throws IllegalArgumentException
+     *                                      se la fotografia passata non ha
+     *                                      nodi
+     */
+    public ParallelShortestPathComputer(CsrGraph<L> csr, ForkJoinPool pool) {
+        if (csr == null || pool == null)
+            throw new NullPointerException("Grafo o pool nullo");
+        if (csr.nodeCount() == 0)
+            throw new IllegalArgumentException("Il grafo è vuoto");
+        this.csr = csr;
+        this.pool = pool;
+    }
+
+    /**
+     * Restituisce la fotografia del grafo su cui opera il calcolatore, i cui
+     * indici dei nodi sono quelli usati da {@link #computeAllPairsDistances()}.
+     *
+     * @return la fotografia CSR del grafo
+     */
+    public CsrGraph<L> getCsrGraph() {
+        return this.csr;
+    }
+
+    /**
+     * Calcola i cammini minimi da una sorgente sul thread chiamante.
+     *
+     * @param sourceNode
+     *                       la sorgente
+     * @return l'albero dei cammini minimi dalla sorgente
+     * @throws NullPointerException
+     *                                      se la sorgente è nulla
+     * @throws IllegalArgumentException
+     *                                      se la sorgente non appartiene al
+     *                                      grafo
+     */
+    public ShortestPathTree<L> computeShortestPathsFrom(
+            GraphNode<L> sourceNode) {
+        return this.dijkstra(this.indexOf(sourceNode));
+    }
+
+    /**
+     * Calcola in parallelo i cammini minimi da ognuna delle sorgenti date.
+     *
+     * @param sources
+     *                    le sorgenti
+     * @return una mappa che associa a ogni sorgente il suo albero dei cammini
+     *         minimi, nell'ordine di iterazione della collezione passata
+     * @throws NullPointerException
+     *                                      se la collezione o una delle
+     *                                      sorgenti è nulla
+     * @throws IllegalArgumentException
+     *                                      se una delle sorgenti non
+     *                                      appartiene al grafo
+     */
+    public Map<GraphNode<L>, ShortestPathTree<L>> computeShortestPathsFrom(
+            Collection<GraphNode<L>> sources) {
+        if (sources == null)
+            throw new NullPointerException("Collezione di sorgenti nulla");
+        // controllo tutte le sorgenti prima di lanciare i calcoli
+        List<GraphNode<L>> nodi = new ArrayList<>(sources);
+        int[] indici = new int[nodi.size()];
+        for (int i = 0; i < indici.length; i++)
+            indici[i] = this.indexOf(nodi.get(i));
+        List<ForkJoinTask<ShortestPathTree<L>>> tasks = new ArrayList<>();
+        for (int s : indici)
+            tasks.add(this.pool.submit(() -> this.dijkstra(s)));
+        Map<GraphNode<L>, ShortestPathTree<L>> result = new LinkedHashMap<>();
+        for (int i = 0; i < indici.length; i++)
+            result.put(nodi.get(i), tasks.get(i).join());
+        return result;
+    }
+
+    /**
+     * Calcola in parallelo la matrice delle distanze minime fra tutte le
+     * coppie di nodi.
+     *
+     * @return la matrice d in cui d[u][v] è la distanza minima dal nodo di
+     *         indice u al nodo di indice v nella fotografia restituita da
+     *         {@link #getCsrGraph()}, oppure {@code Double.POSITIVE_INFINITY}
+     *         se v non è raggiungibile da u
+     */
+    public double[][] computeAllPairsDistances() {
+        int n = this.csr.nodeCount();
+        double[][] d = new double[n][];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            final int source = s;
+            tasks.add(this.pool.submit(() -> {
+                d[source] = this.dijkstra(source).getDistances();
+            }));
+        }
+        for (ForkJoinTask<?> t : tasks)
+            t.join();
+        return d;
+    }
+
+    /*
+     * Esegue Dijkstra dalla sorgente di indice s usando solo strutture locali
+     */
+    private ShortestPathTree<L> dijkstra(int s) {
+        int n = this.csr.nodeCount();
+        double[] distanze = new double[n];
+        int[] archiPrecedenti = new int[n];
+        Arrays.fill(distanze, Double.POSITIVE_INFINITY);
+        Arrays.fill(archiPrecedenti, -1);
+        IndexedMinPriorityQueue coda = new IndexedMinPriorityQueue(n);
+        distanze[s] = 0;
+        coda.insert(s, 0);
+        while (!coda.isEmpty()) {
+            int u = coda.extractMinimum();
+            for (int k = this.csr.firstEdgeOf(u); k < this.csr.endEdgeOf(u); k++) {
+                int v = this.csr.getEdgeTarget(k);
+                double nuovaDistanza = distanze[u] + this.csr.getEdgeWeight(k);
+                if (nuovaDistanza < distanze[v]) {
+                    distanze[v] = nuovaDistanza;
+                    archiPrecedenti[v] = k;
+                    if (coda.contains(v))
+                        coda.decreasePriority(v, nuovaDistanza);
+                    else
+                        coda.insert(v, nuovaDistanza);
+                }
+            }
+        }
+        return new ShortestPathTree<>(this.csr, s, distanze, archiPrecedenti);
+    }
+
+    private int indexOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Sorgente nulla");
+        int i = this.csr.getNodeIndexOf(node);
+        if (i == -1)
+            throw new IllegalArgumentException(
+                    "La sorgente " + node + " non è un nodo del grafo");
+        return i;
+    }
+}
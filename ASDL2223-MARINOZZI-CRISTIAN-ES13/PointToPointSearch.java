@@ -0,0 +1,193 @@
+package it.unicam.cs.asdl2223.es13;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Ricerche di un cammino minimo fra due nodi su una fotografia CSR:
+ * Dijkstra bidirezionale e A*. Entrambe si fermano appena il cammino verso il
+ * target è determinato, senza visitare il resto del grafo.
+ *
+ * Gli array delle distanze e dei predecessori sono allocati una sola volta e
+ * riusati fra le ricerche: un valore è valido solo se il corrispondente
+ * timbro è uguale al numero della ricerca corrente, per cui l'inizializzazione
+ * di una ricerca costa O(1) e non O(n). Un oggetto di questa classe non può
+ * essere usato da più thread contemporaneamente.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L> le etichette dei nodi del grafo
+ */
+class PointToPointSearch<L> {
+
+    private final CsrGraph<L> csr;
+
+    // numero della ricerca corrente, usato come timbro
+    private int ricerca;
+
+    // strutture della visita in avanti (usate anche da A*)
+    private final int[] timbriAvanti;
+    private final double[] distanzeAvanti;
+    private final int[] archiAvanti;
+    private final IndexedMinPriorityQueue codaAvanti;
+
+    // strutture della visita all'indietro
+    private final int[] timbriIndietro;
+    private final double[] distanzeIndietro;
+    private final int[] archiIndietro;
+    private final IndexedMinPriorityQueue codaIndietro;
+
+    PointToPointSearch(CsrGraph<L> csr) {
+        int n = csr.nodeCount();
+        this.csr = csr;
+        this.ricerca = 0;
+        this.timbriAvanti = new int[n];
+        this.distanzeAvanti = new double[n];
+        this.archiAvanti = new int[n];
+        this.codaAvanti = new IndexedMinPriorityQueue(n);
+        this.timbriIndietro = new int[n];
+        this.distanzeIndietro = new double[n];
+        this.archiIndietro = new int[n];
+        this.codaIndietro = new IndexedMinPriorityQueue(n);
+    }
+
+    CsrGraph<L> getCsrGraph() {
+        return this.csr;
+    }
+
+    /*
+     * Dijkstra bidirezionale: alterna una visita in avanti dalla sorgente e
+     * una all'indietro dal target, espandendo ogni volta la frontiera con la
+     * distanza minima, e si ferma quando la somma dei due minimi non è
+     * inferiore al miglior cammino già trovato.
+     */
+    List<GraphEdge<L>> bidirectional(int s, int t) {
+        this.nuovaRicerca();
+        if (s == t)
+            return new ArrayList<>();
+        this.raggiungiAvanti(s, 0, -1);
+        this.codaAvanti.insert(s, 0);
+        this.raggiungiIndietro(t, 0, -1);
+        this.codaIndietro.insert(t, 0);
+        double migliore = Double.POSITIVE_INFINITY;
+        int incontro = -1;
+        while (!this.codaAvanti.isEmpty() && !this.codaIndietro.isEmpty()) {
+            double minAvanti = this.codaAvanti.getPriority(this.codaAvanti.minimum());
+            double minIndietro = this.codaIndietro.getPriority(this.codaIndietro.minimum());
+            if (minAvanti + minIndietro >= migliore)
+                break;
+            if (minAvanti <= minIndietro) {
+                int u = this.codaAvanti.extractMinimum();
+                for (int k = this.csr.firstEdgeOf(u); k < this.csr.endEdgeOf(u); k++) {
+                    int v = this.csr.getEdgeTarget(k);
+                    double d = this.distanzeAvanti[u] + this.csr.getEdgeWeight(k);
+                    if (this.timbriAvanti[v] != this.ricerca || d < this.distanzeAvanti[v]) {
+                        this.raggiungiAvanti(v, d, k);
+                        aggiorna(this.codaAvanti, v, d);
+                    }
+                    if (this.timbriIndietro[v] == this.ricerca
+                            && this.distanzeAvanti[v] + this.distanzeIndietro[v] < migliore) {
+                        migliore = this.distanzeAvanti[v] + this.distanzeIndietro[v];
+                        incontro = v;
+                    }
+                }
+            } else {
+                int u = this.codaIndietro.extractMinimum();
+                for (int j = this.csr.firstIngoingEdgeOf(u); j < this.csr.endIngoingEdgeOf(u); j++) {
+                    int k = this.csr.getIngoingEdge(j);
+                    int v = this.csr.getEdgeSource(k);
+                    double d = this.distanzeIndietro[u] + this.csr.getEdgeWeight(k);
+                    if (this.timbriIndietro[v] != this.ricerca || d < this.distanzeIndietro[v]) {
+                        this.raggiungiIndietro(v, d, k);
+                        aggiorna(this.codaIndietro, v, d);
+                    }
+                    if (this.timbriAvanti[v] == this.ricerca
+                            && this.distanzeAvanti[v] + this.distanzeIndietro[v] < migliore) {
+                        migliore = this.distanzeAvanti[v] + this.distanzeIndietro[v];
+                        incontro = v;
+                    }
+                }
+            }
+        }
+        if (incontro == -1)
+            return null;
+        List<GraphEdge<L>> path = this.camminoAvanti(s, incontro);
+        // dal nodo di incontro seguo gli archi della visita all'indietro
+        for (int v = incontro; v != t; v = this.csr.getEdgeTarget(this.archiIndietro[v]))
+            path.add(this.csr.getEdge(this.archiIndietro[v]));
+        return path;
+    }
+
+    /*
+     * A*: Dijkstra in avanti con priorità pari alla distanza dalla sorgente più
+     * la stima euristica della distanza dal target. Un nodo già estratto viene
+     * reinserito se si trova un cammino migliore, per cui il risultato è
+     * corretto anche con euristiche ammissibili ma non consistenti.
+     */
+    List<GraphEdge<L>> aStar(int s, int t, ShortestPathHeuristic<L> h) {
+        this.nuovaRicerca();
+        GraphNode<L> target = this.csr.getNodeAtIndex(t);
+        this.raggiungiAvanti(s, 0, -1);
+        this.codaAvanti.insert(s, h.estimate(this.csr.getNodeAtIndex(s), target));
+        while (!this.codaAvanti.isEmpty()) {
+            int u = this.codaAvanti.extractMinimum();
+            if (u == t)
+                return this.camminoAvanti(s, t);
+            for (int k = this.csr.firstEdgeOf(u); k < this.csr.endEdgeOf(u); k++) {
+                int v = this.csr.getEdgeTarget(k);
+                double d = this.distanzeAvanti[u] + this.csr.getEdgeWeight(k);
+                if (this.timbriAvanti[v] != this.ricerca || d < this.distanzeAvanti[v]) {
+                    this.raggiungiAvanti(v, d, k);
+                    aggiorna(this.codaAvanti, v,
+                            d + h.estimate(this.csr.getNodeAtIndex(v), target));
+                }
+            }
+        }
+        // il target non è raggiungibile
+        return null;
+    }
+
+    // inizia una nuova ricerca invalidando tutti i valori precedenti
+    private void nuovaRicerca() {
+        this.codaAvanti.clear();
+        this.codaIndietro.clear();
+        this.ricerca++;
+        if (this.ricerca == Integer.MAX_VALUE) {
+            // i timbri sono esauriti, li azzero tutti una volta
+            Arrays.fill(this.timbriAvanti, 0);
+            Arrays.fill(this.timbriIndietro, 0);
+            this.ricerca = 1;
+        }
+    }
+
+    private void raggiungiAvanti(int v, double d, int arco) {
+        this.timbriAvanti[v] = this.ricerca;
+        this.distanzeAvanti[v] = d;
+        this.archiAvanti[v] = arco;
+    }
+
+    private void raggiungiIndietro(int v, double d, int arco) {
+        this.timbriIndietro[v] = this.ricerca;
+        this.distanzeIndietro[v] = d;
+        this.archiIndietro[v] = arco;
+    }
+
+    // inserisce v nella coda o ne diminuisce la priorità
+    private static void aggiorna(IndexedMinPriorityQueue coda, int v, double priorita) {
+        if (coda.contains(v))
+            coda.decreasePriority(v, priorita);
+        else
+            coda.insert(v, priorita);
+    }
+
+    // ricostruisce il cammino da s a v seguendo gli archi della visita in avanti
+    private List<GraphEdge<L>> camminoAvanti(int s, int v) {
+        List<GraphEdge<L>> path = new ArrayList<>();
+        for (int u = v; u != s; u = this.csr.getEdgeSource(this.archiAvanti[u]))
+            path.add(this.csr.getEdge(this.archiAvanti[u]));
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,29 @@
+package it.unicam.cs.asdl2223.es13;
+
+/**
+ * Funzione euristica usata dalla ricerca A* per stimare la distanza minima da
+ * un nodo a un nodo target. Perché la ricerca restituisca un cammino minimo la
+ * stima deve essere ammissibile, cioè non deve mai superare la distanza
+ * effettiva, e non negativa. Se è anche consistente (per ogni arco (u, v) di
+ * peso w vale h(u) &lt;= w + h(v)) ogni nodo viene estratto al più una volta.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L>
+ *            le etichette dei nodi del grafo
+ */
+@FunctionalInterface
+public interface ShortestPathHeuristic<L> {
+
+    /**
+     * Stima la distanza minima da un nodo a un target.
+     *
+     * @param node
+     *                   il nodo di partenza della stima
+     * @param target
+     *                   il nodo target della ricerca
+     * @return una stima non negativa e non superiore alla distanza minima da
+     *         node a target
+     */
+    double estimate(GraphNode<L> node, GraphNode<L> target);
+}
@@ -0,0 +1,125 @@
+package it.unicam.cs.asdl2223.es13;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Risultato del calcolo dei cammini minimi da una sorgente su un
+ * {@code CsrGraph}. Distanze e archi precedenti sono memorizzati in array
+ * indicizzati dagli indici dei nodi della fotografia, senza modificare gli
+ * oggetti GraphNode, per cui più alberi possono essere calcolati in parallelo
+ * sullo stesso grafo.
+ *
+ * @author Template: Luca Tesei, Implementazione: collettiva
+ *
+ * @param <L>
+ *            le etichette dei nodi del grafo
+ */
+public class ShortestPathTree<L> {
+
+    // la fotografia del grafo su cui è stato calcolato l'albero
+    private final CsrGraph<L> graph;
+
+    // indice della sorgente
+    private final int source;
+
+    /*
+     * distances[v] è la distanza minima dalla sorgente al nodo v, oppure
+     * Double.POSITIVE_INFINITY se v non è raggiungibile
+     */
+    private final double[] distances;
+
+    /*
+     * predecessorEdges[v] è la posizione nel CsrGraph dell'arco entrante in v
+     * nell'albero dei cammini minimi, oppure -1 se v è la sorgente o non è
+     * raggiungibile
+     */
+    private final int[] predecessorEdges;
+
+    ShortestPathTree(CsrGraph<L> graph, int source, double[] distances,
+            int[] predecessorEdges) {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.predecessorEdges = predecessorEdges;
+    }
+
+    /**
+     * @return il nodo sorgente
+     */
+    public GraphNode<L> getSource() {
+        return this.graph.getNodeAtIndex(this.source);
+    }
+
+    /**
+     * Restituisce la distanza minima dalla sorgente a un nodo.
+     *
+     * @param targetNode
+     *                       il nodo di arrivo
+     * @return la distanza minima, oppure {@code Double.POSITIVE_INFINITY} se il
+     *         nodo non è raggiungibile
+     * @throws NullPointerException
+     *                                      se il nodo passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se il nodo non appartiene al grafo
+     */
+    public double getDistanceTo(GraphNode<L> targetNode) {
+        return this.distances[this.indexOf(targetNode)];
+    }
+
+    /**
+     * Restituisce la distanza minima dalla sorgente al nodo di un certo
+     * indice.
+     *
+     * @param target
+     *                   l'indice del nodo di arrivo nel CsrGraph
+     * @return la distanza minima, oppure {@code Double.POSITIVE_INFINITY} se il
+     *         nodo non è raggiungibile
+     */
+    public double getDistanceTo(int target) {
+        return this.distances[target];
+    }
+
+    /**
+     * Restituisce il cammino minimo dalla sorgente a un nodo.
+     *
+     * @param targetNode
+     *                       il nodo di arrivo
+     * @return la lista degli archi del cammino minimo, vuota se il nodo
+     *         coincide con la sorgente, oppure null se il nodo non è
+     *         raggiungibile
+     * @throws NullPointerException
+     *                                      se il nodo passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se il nodo non appartiene al grafo
+     */
+    public List<GraphEdge<L>> getShortestPathTo(GraphNode<L> targetNode) {
+        int corrente = this.indexOf(targetNode);
+        List<GraphEdge<L>> path = new ArrayList<>();
+        while (corrente != this.source) {
+            int k = this.predecessorEdges[corrente];
+            if (k == -1)
+                return null;
+            path.add(this.graph.getEdge(k));
+            corrente = this.graph.getEdgeSource(k);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /*
+     * Restituisce direttamente l'array delle distanze, senza copiarlo
+     */
+    double[] getDistances() {
+        return this.distances;
+    }
+
+    private int indexOf(GraphNode<L> node) {
+        int i = this.graph.getNodeIndexOf(node);
+        if (i == -1)
+            throw new IllegalArgumentException(
+                    "Il nodo non appartiene al grafo");
+        return i;
+    }
+}
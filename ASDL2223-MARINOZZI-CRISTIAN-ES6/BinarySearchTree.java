@@ -1,8 +1,11 @@
 package it.unicam.cs.asdl2223.es6;
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -18,17 +21,35 @@ import java.util.Set;
  * puntatore all'oggetto RecBST è null, cioè dal fatto che l'oggetto non esiste.
  * <p>
  * La complessità delle operazioni di ricerca, inserimento e cancellazione nel
- * caso pessimo sono O(h) dove h è l'altezza dell'albero. Questa classe non
- * esegue un autobilanciamento dell'altezza, quindi nei casi degeneri la
+ * caso pessimo sono O(h) dove h è l'altezza dell'albero. Di default questa
+ * classe non esegue un autobilanciamento dell'altezza, quindi nei casi
+ * degeneri, per esempio inserendo etichette in ordine crescente, la
  * complessità delle operazioni può diventare O(n) dove n è il numero degli
  * elementi presenti.
+ * <p>
+ * In modalità bilanciata, scelta nel costruttore, l'albero è un albero AVL:
+ * dopo ogni inserimento e cancellazione i nodi sul cammino verso la radice
+ * vengono ribilanciati con rotazioni in modo che in ogni nodo le altezze dei
+ * due sotto-alberi differiscano al più di uno. L'altezza resta quindi minore
+ * di 1.45 log2(n + 2) e tutte le operazioni costano O(log n). Le API
+ * pubbliche sono le stesse nelle due modalità. In entrambe ogni nodo
+ * memorizza l'altezza del proprio sotto-albero, aggiornata risalendo verso la
+ * radice dopo ogni modifica, per cui getHeight costa O(1).
+ * <p>
+ * Nonostante il nome, i metodi di RecBST che scendono o scorrono l'albero
+ * sono iterativi: le ricerche scendono con un ciclo e le visite in-order
+ * passano da un nodo al successivo usando i puntatori al genitore, per cui
+ * nemmeno un albero degenere di milioni di nodi esaurisce lo stack. L'albero
+ * è anche Iterable: l'iteratore restituisce le etichette in ordine senza
+ * copiarle in una lista, costa O(1) ammortizzato per elemento, è fail-fast e
+ * permette la rimozione.
  *
  * @param E il tipo delle etichette dei nodi in questo Binary Search Tree.
  *          La classe {@code E} deve avere un ordinamento naturale definito
  *          tra gli elementi.
  * @author Template: Luca Tesei, Implementazione: collettiva
  */
-public class BinarySearchTree<E extends Comparable<E>> {
+public class BinarySearchTree<E extends Comparable<E>> implements Iterable<E> {
 
     /*
      * Puntatore all'attuale nodo radice dell'albero, se null allora l'albero è
@@ -41,12 +62,32 @@ public class BinarySearchTree<E extends Comparable<E>> {
      */
     private int size;
 
+    // se true l'albero viene bilanciato come un albero AVL
+    private final boolean balanced;
+
+    /*
+     * Contatore del numero di modifiche. Serve per rendere l'iterator
+     * fail-fast.
+     */
+    private int modCount;
+
     /**
      * Crea un albero binario di ricerca vuoto.
      */
     public BinarySearchTree() {
+        this(false);
+    }
+
+    /**
+     * Crea un albero binario di ricerca vuoto, scegliendo se bilanciarlo.
+     *
+     * @param balanced se true l'albero viene mantenuto bilanciato come un
+     *                 albero AVL
+     */
+    public BinarySearchTree(boolean balanced) {
         this.root = null;
         this.size = 0;
+        this.balanced = balanced;
     }
 
     /**
@@ -56,10 +97,33 @@ public class BinarySearchTree<E extends Comparable<E>> {
      * @throws NullPointerException se l'etichetta passata è null
      */
     public BinarySearchTree(E label) {
+        this(label, false);
+    }
+
+    /**
+     * Costruisce un albero contenente solo un nodo radice/foglia, scegliendo
+     * se bilanciarlo.
+     *
+     * @param label    etichetta del nodo radice/foglia
+     * @param balanced se true l'albero viene mantenuto bilanciato come un
+     *                 albero AVL
+     * @throws NullPointerException se l'etichetta passata è null
+     */
+    public BinarySearchTree(E label, boolean balanced) {
         if (label == null)
             throw new NullPointerException("Etichetta della radice null");
         this.root = new RecBST(label);
         this.size = 1;
+        this.balanced = balanced;
+    }
+
+    /**
+     * Determina se questo albero viene mantenuto bilanciato.
+     *
+     * @return true se l'albero viene bilanciato come un albero AVL
+     */
+    public boolean isBalanced() {
+        return this.balanced;
     }
 
     /**
@@ -86,6 +150,7 @@ public class BinarySearchTree<E extends Comparable<E>> {
     public void clear() {
         this.root = null;
         this.size = 0;
+        this.modCount++;
     }
 
     /**
@@ -250,12 +315,15 @@ public class BinarySearchTree<E extends Comparable<E>> {
             // aggiunge la radice
             this.root = new RecBST(label);
             this.size = 1;
+            this.modCount++;
             return true;
         } // chiama il corrispondente metodo sulla radice
         else {
             boolean result = this.root.insert(label);
-            if (result)
+            if (result) {
                 this.size++;
+                this.modCount++;
+            }
             return result;
         }
     }
@@ -281,9 +349,100 @@ public class BinarySearchTree<E extends Comparable<E>> {
             return false;
         n.deleteSelfLabel();
         this.size--;
+        this.modCount++;
         return true;
     }
 
+    /**
+     * Restituisce un iteratore fail-fast che scorre le etichette di questo
+     * albero secondo l'ordinamento naturale della classe {@code E}, passando
+     * da un nodo al successivo senza copiare le etichette. L'iteratore
+     * supporta la rimozione.
+     *
+     * @return un iteratore sulle etichette di questo albero in ordine
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /*
+     * Aggiorna le altezze dei nodi da n fino alla radice e, in modalità
+     * bilanciata, ribilancia ognuno di essi. Si ferma quando il sotto-albero
+     * di un nodo ha la stessa altezza che aveva prima della modifica, perché
+     * allora i nodi superiori non cambiano.
+     */
+    private void fixUpwards(RecBST n) {
+        while (n != null) {
+            int before = n.height;
+            n.updateHeight();
+            if (this.balanced)
+                n = n.rebalance();
+            if (n.height == before)
+                return;
+            n = n.parent;
+        }
+    }
+
+    // altezza di un sotto-albero eventualmente vuoto
+    private int heightOf(RecBST n) {
+        return n == null ? -1 : n.height;
+    }
+
+    /*
+     * Iteratore in-order: parte dal nodo minimo e a ogni next passa al nodo
+     * successore.
+     */
+    private class Itr implements Iterator<E> {
+        // il prossimo nodo da restituire, null se non ce ne sono altri
+        private RecBST nextNode;
+        // l'ultimo nodo restituito, null se non c'è o è stato rimosso
+        private RecBST lastReturned;
+        private int numeroModificheAtteso;
+
+        private Itr() {
+            this.numeroModificheAtteso = modCount;
+            this.nextNode = root == null ? null : root.getMinNode();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.nextNode != null;
+        }
+
+        @Override
+        public E next() {
+            if (this.numeroModificheAtteso != modCount)
+                throw new ConcurrentModificationException(
+                        "Albero modificato durante l'iterazione");
+            if (!this.hasNext())
+                throw new NoSuchElementException(
+                        "Richiesta di next quando hasNext è falso");
+            this.lastReturned = this.nextNode;
+            this.nextNode = this.nextNode.getSuccessorNode();
+            return this.lastReturned.getLabel();
+        }
+
+        @Override
+        public void remove() {
+            if (this.lastReturned == null)
+                throw new IllegalStateException("Nessun elemento da rimuovere");
+            if (this.numeroModificheAtteso != modCount)
+                throw new ConcurrentModificationException(
+                        "Albero modificato durante l'iterazione");
+            // se il nodo ha due figli la cancellazione gli copia l'etichetta
+            // del successore, che quindi è ancora da restituire
+            if (this.lastReturned.getLeft() != null
+                    && this.lastReturned.getRight() != null)
+                this.nextNode = this.lastReturned;
+            this.lastReturned.deleteSelfLabel();
+            size--;
+            modCount++;
+            this.numeroModificheAtteso = modCount;
+            this.lastReturned = null;
+        }
+    }
+
     /**
      * Just for JUnit testing purposes.
      *
@@ -295,9 +454,10 @@ public class BinarySearchTree<E extends Comparable<E>> {
     }
 
     /*
-     * Classe interna che implementa tutti i metodi ricorsivamente e in cui ogni
-     * nodo è un (sotto-)albero. Lo specificatore è protected solamente per
-     * permettere i test JUnit.
+     * Classe interna in cui ogni nodo è un (sotto-)albero. I metodi sono
+     * definiti ricorsivamente sui sotto-alberi ma implementati con cicli, in
+     * modo che la loro profondità non dipenda dall'altezza dell'albero. Lo
+     * specificatore è protected solamente per permettere i test JUnit.
      */
     protected class RecBST {
         /*
@@ -322,6 +482,12 @@ public class BinarySearchTree<E extends Comparable<E>> {
          */
         private RecBST parent;
 
+        /*
+         * Altezza di questo (sotto-)albero, aggiornata dopo ogni modifica dei
+         * sotto-alberi
+         */
+        private int height;
+
         /*
          * Costruisce un (sotto-)albero che contiene solo la radice/foglia.
          *
@@ -332,6 +498,7 @@ public class BinarySearchTree<E extends Comparable<E>> {
             this.left = null;
             this.right = null;
             this.parent = null;
+            this.height = 0;
         }
 
         /*
@@ -351,6 +518,7 @@ public class BinarySearchTree<E extends Comparable<E>> {
             this.left = aLeft;
             this.right = aRight;
             this.parent = aParent;
+            this.updateHeight();
         }
 
         /**
@@ -415,14 +583,91 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * @return la lunghezza del massimo cammino da questo nodo a una foglia.
          */
         protected int computeHeight() {
-            // TODO implementare ricorsivamente
-            /*
-             * Purtroppo non sono riuscito ad implementare nulla in maniera sensata.
-             * Invece di perdere tempo e scrivere metodi a caso sicuramente errati,
-             * preferisco lasciare in bianco questa classe ed aspettare la spiegazione
-             * per comprenderne il funzionamento.
-             */
-            return -1;
+            // l'altezza è mantenuta aggiornata dalle modifiche
+            return this.height;
+        }
+
+        /*
+         * Ricalcola l'altezza di questo nodo da quelle dei figli
+         */
+        private void updateHeight() {
+            this.height = 1 + Math.max(heightOf(this.left), heightOf(this.right));
+        }
+
+        /*
+         * Se le altezze dei sotto-alberi differiscono di più di uno esegue la
+         * rotazione singola o doppia che le riporta a differire al più di uno.
+         *
+         * @return la nuova radice di questo sotto-albero
+         */
+        private RecBST rebalance() {
+            int balance = heightOf(this.left) - heightOf(this.right);
+            if (balance > 1) {
+                // caso sinistra-destra: prima ruoto il figlio sinistro
+                if (heightOf(this.left.left) < heightOf(this.left.right))
+                    this.left.rotateLeft();
+                return this.rotateRight();
+            }
+            if (balance < -1) {
+                // caso destra-sinistra: prima ruoto il figlio destro
+                if (heightOf(this.right.right) < heightOf(this.right.left))
+                    this.right.rotateRight();
+                return this.rotateLeft();
+            }
+            return this;
+        }
+
+        /*
+         * Rotazione a sinistra: il figlio destro prende il posto di questo
+         * nodo, che ne diventa il figlio sinistro.
+         *
+         * @return il figlio destro, nuova radice di questo sotto-albero
+         */
+        private RecBST rotateLeft() {
+            RecBST r = this.right;
+            this.right = r.left;
+            if (r.left != null)
+                r.left.parent = this;
+            this.replaceWith(r);
+            r.left = this;
+            this.parent = r;
+            this.updateHeight();
+            r.updateHeight();
+            return r;
+        }
+
+        /*
+         * Rotazione a destra: il figlio sinistro prende il posto di questo
+         * nodo, che ne diventa il figlio destro.
+         *
+         * @return il figlio sinistro, nuova radice di questo sotto-albero
+         */
+        private RecBST rotateRight() {
+            RecBST l = this.left;
+            this.left = l.right;
+            if (l.right != null)
+                l.right.parent = this;
+            this.replaceWith(l);
+            l.right = this;
+            this.parent = l;
+            this.updateHeight();
+            l.updateHeight();
+            return l;
+        }
+
+        /*
+         * Mette n, che può essere null, al posto di questo nodo come figlio
+         * del genitore, o come radice dell'albero se questo nodo è la radice
+         */
+        private void replaceWith(RecBST n) {
+            if (n != null)
+                n.parent = this.parent;
+            if (this.parent == null)
+                root = n;
+            else if (this.parent.left == this)
+                this.parent.left = n;
+            else
+                this.parent.right = n;
         }
 
         /*
@@ -435,9 +680,29 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * l'etichetta era già presente.
          */
         protected boolean insert(E label) {
-            // TODO implementare ricorsivamente
-
-            return false;
+            // scendo fino al nodo a cui attaccare la nuova foglia
+            RecBST n = this;
+            while (true) {
+                int cmp = label.compareTo(n.label);
+                if (cmp == 0)
+                    return false;
+                if (cmp < 0) {
+                    if (n.left == null) {
+                        n.left = new RecBST(label, null, null, n);
+                        break;
+                    }
+                    n = n.left;
+                } else {
+                    if (n.right == null) {
+                        n.right = new RecBST(label, null, null, n);
+                        break;
+                    }
+                    n = n.right;
+                }
+            }
+            // aggiorno le altezze ed eventualmente ribilancio a partire da lì
+            fixUpwards(n);
+            return true;
         }
 
         /*
@@ -449,7 +714,13 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * null se l'etichetta non è presente
          */
         protected RecBST search(E label) {
-            // TODO implementare ricorsivamente
+            RecBST n = this;
+            while (n != null) {
+                int cmp = label.compareTo(n.label);
+                if (cmp == 0)
+                    return n;
+                n = cmp < 0 ? n.left : n.right;
+            }
             return null;
         }
 
@@ -462,7 +733,16 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * etichette in ordine
          */
         protected void addLabelsInOrder(List<E> l) {
-            // TODO implementare ricorsivamente
+            // scorro i successori dal minimo al massimo di questo sotto-albero:
+            // ogni arco viene percorso al più due volte
+            RecBST last = this.getMaxNode();
+            RecBST n = this.getMinNode();
+            while (true) {
+                l.add(n.label);
+                if (n == last)
+                    return;
+                n = n.getSuccessorNode();
+            }
         }
 
         /*
@@ -474,8 +754,10 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * (sotto-)albero secondo l'ordinamento naturale della classe {@code E}
          */
         protected List<E> inOrderVisit() {
-            // TODO implementare ricorsivamente
-            return null;
+            // un'unica lista riempita da tutta la visita
+            List<E> l = new ArrayList<E>();
+            this.addLabelsInOrder(l);
+            return l;
         }
 
         /*
@@ -486,8 +768,10 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * questo (sotto-)albero
          */
         protected RecBST getMinNode() {
-            // TODO implementare ricorsivamente
-            return null;
+            RecBST n = this;
+            while (n.left != null)
+                n = n.left;
+            return n;
         }
 
         /*
@@ -498,8 +782,10 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * questo (sotto-)albero
          */
         protected RecBST getMaxNode() {
-            // TODO implementare ricorsivamente
-            return null;
+            RecBST n = this;
+            while (n.right != null)
+                n = n.right;
+            return n;
         }
 
         /*
@@ -511,8 +797,13 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * non ha successore
          */
         protected RecBST getSuccessorNode() {
-            // TODO implementare
-            return null;
+            if (this.right != null)
+                return this.right.getMinNode();
+            // risalgo finché vengo da un figlio destro
+            RecBST n = this;
+            while (n.parent != null && n.parent.right == n)
+                n = n.parent;
+            return n.parent;
         }
 
         /*
@@ -524,8 +815,13 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * non ha predecessore
          */
         protected RecBST getPredecessorNode() {
-            // TODO implementare
-            return null;
+            if (this.left != null)
+                return this.left.getMaxNode();
+            // risalgo finché vengo da un figlio sinistro
+            RecBST n = this;
+            while (n.parent != null && n.parent.left == n)
+                n = n.parent;
+            return n.parent;
         }
 
         /*
@@ -535,7 +831,21 @@ public class BinarySearchTree<E extends Comparable<E>> {
          * Cfr. slides di teoria.
          */
         protected void deleteSelfLabel() {
-            // TODO implementare
+            if (this.left != null && this.right != null) {
+                // il successore non ha figlio sinistro: copio la sua
+                // etichetta ed elimino lui
+                RecBST succ = this.right.getMinNode();
+                this.label = succ.label;
+                succ.deleteSelfLabel();
+                return;
+            }
+            // al più un figlio, che prende il posto di questo nodo
+            RecBST p = this.parent;
+            this.replaceWith(this.left != null ? this.left : this.right);
+            this.parent = null;
+            this.left = null;
+            this.right = null;
+            fixUpwards(p);
         }
     }
 }
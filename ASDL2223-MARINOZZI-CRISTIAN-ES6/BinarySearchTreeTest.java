@@ -0,0 +1,183 @@
+/**
+ *
+ */
+package it.unicam.cs.asdl2223.es6;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Template: Luca Tesei, Implementation: Collettiva da Esercitazione a
+ *         Casa
+ *
+ */
+class BinarySearchTreeTest {
+
+    @Test
+    final void testRandomOperationsUnbalanced() {
+        checkRandomOperations(false);
+    }
+
+    @Test
+    final void testRandomOperationsBalanced() {
+        checkRandomOperations(true);
+    }
+
+    @Test
+    final void testAscendingInsertionsBalanced() {
+        // inserendo in ordine crescente l'albero AVL resta logaritmico
+        BinarySearchTree<Integer> t = new BinarySearchTree<Integer>(true);
+        int n = 200000;
+        for (int i = 0; i < n; i++)
+            t.add(i);
+        verify(t.getRoot(), null, true);
+        assertTrue(t.getHeight() <= 1.45 * Math.log(n + 2) / Math.log(2));
+        // la radice iniziale viene spostata dalle rotazioni
+        BinarySearchTree<Integer> u = new BinarySearchTree<Integer>(5, true);
+        u.add(3);
+        u.add(1);
+        assertEquals(3, u.getRoot().getLabel());
+        assertEquals(1, u.getHeight());
+    }
+
+    @Test
+    final void testDegenerateTree() {
+        // un albero non bilanciato degenere non deve esaurire lo stack
+        BinarySearchTree<Integer> t = new BinarySearchTree<Integer>();
+        int n = 50000;
+        for (int i = 0; i < n; i++)
+            t.add(i);
+        assertEquals(n - 1, t.getHeight());
+        assertTrue(t.contains(n - 1));
+        assertFalse(t.contains(n));
+        List<Integer> l = t.getOrderedLabels();
+        assertEquals(n, l.size());
+        assertEquals(n - 1, l.get(n - 1));
+        int atteso = 0;
+        for (int x : t)
+            assertEquals(atteso++, x);
+        assertEquals(n, atteso);
+        assertEquals(n - 1, t.getMax());
+        assertEquals(0, t.getMin());
+        assertEquals(n - 1, t.getSuccessor(n - 2));
+        assertNull(t.getPredecessor(0));
+        List<Integer> sottoalbero = new ArrayList<Integer>();
+        t.getRoot().getRight().addLabelsInOrder(sottoalbero);
+        assertEquals(n - 1, sottoalbero.size());
+        assertEquals(1, sottoalbero.get(0));
+    }
+
+    @Test
+    final void testIteratorRemove() {
+        for (boolean bilanciato : new boolean[] { false, true }) {
+            Random r = new Random(5);
+            BinarySearchTree<Integer> t = new BinarySearchTree<Integer>(bilanciato);
+            TreeSet<Integer> ref = new TreeSet<Integer>();
+            for (int i = 0; i < 5000; i++) {
+                int k = r.nextInt(10000);
+                t.add(k);
+                ref.add(k);
+            }
+            // l'iteratore restituisce le etichette in ordine e rimuove
+            // l'ultima restituita
+            Iterator<Integer> it = t.iterator();
+            Iterator<Integer> ri = ref.iterator();
+            while (it.hasNext()) {
+                int x = it.next();
+                assertEquals(ri.next(), x);
+                if (x % 3 != 0) {
+                    it.remove();
+                    ri.remove();
+                }
+            }
+            assertFalse(ri.hasNext());
+            assertEquals(ref.size(), t.size());
+            assertEquals(new ArrayList<Integer>(ref), t.getOrderedLabels());
+            verify(t.getRoot(), null, bilanciato);
+        }
+    }
+
+    @Test
+    final void testIteratorExceptions() {
+        BinarySearchTree<Integer> t = new BinarySearchTree<Integer>();
+        t.add(1);
+        t.add(2);
+        Iterator<Integer> it = t.iterator();
+        it.next();
+        t.add(-1);
+        assertThrows(ConcurrentModificationException.class, () -> it.next());
+        assertThrows(IllegalStateException.class, () -> t.iterator().remove());
+        assertThrows(IllegalArgumentException.class, () -> t.getSuccessor(-5));
+    }
+
+    /*
+     * Esegue inserimenti, rimozioni e ricerche casuali confrontando i
+     * risultati con quelli di un TreeSet e controllando periodicamente la
+     * struttura dell'albero
+     */
+    private static void checkRandomOperations(boolean bilanciato) {
+        Random r = new Random(3);
+        BinarySearchTree<Integer> t = new BinarySearchTree<Integer>(bilanciato);
+        TreeSet<Integer> ref = new TreeSet<Integer>();
+        for (int i = 0; i < 20000; i++) {
+            int k = r.nextInt(3000);
+            int op = r.nextInt(10);
+            if (op < 5)
+                assertEquals(ref.add(k), t.add(k));
+            else if (op < 8)
+                assertEquals(ref.remove(k), t.remove(k));
+            else
+                assertEquals(ref.contains(k), t.contains(k));
+            if (i % 997 == 0) {
+                verify(t.getRoot(), null, bilanciato);
+                assertEquals(ref.size(), t.size());
+                assertEquals(new ArrayList<Integer>(ref), t.getOrderedLabels());
+                if (!ref.isEmpty()) {
+                    assertEquals(ref.first(), t.getMin());
+                    assertEquals(ref.last(), t.getMax());
+                    for (int x : ref) {
+                        assertEquals(ref.higher(x), t.getSuccessor(x));
+                        assertEquals(ref.lower(x), t.getPredecessor(x));
+                    }
+                }
+            }
+        }
+        while (!ref.isEmpty())
+            assertTrue(t.remove(ref.pollFirst()));
+        assertTrue(t.isEmpty());
+        assertEquals(-1, t.getHeight());
+        assertNull(t.getMin());
+    }
+
+    /*
+     * Controlla ricorsivamente l'ordinamento, i puntatori al padre, le altezze
+     * e, se richiesto, il bilanciamento AVL del sottoalbero di radice n e ne
+     * restituisce l'altezza, -1 se il sottoalbero è vuoto
+     */
+    private static int verify(BinarySearchTree<Integer>.RecBST n, BinarySearchTree<Integer>.RecBST parent,
+            boolean avl) {
+        if (n == null)
+            return -1;
+        assertSame(parent, n.getParent());
+        int hl = verify(n.getLeft(), n, avl);
+        int hr = verify(n.getRight(), n, avl);
+        if (n.getLeft() != null)
+            assertTrue(n.getLeft().getLabel() < n.getLabel());
+        if (n.getRight() != null)
+            assertTrue(n.getRight().getLabel() > n.getLabel());
+        if (avl)
+            assertTrue(Math.abs(hl - hr) <= 1);
+        int h = 1 + Math.max(hl, hr);
+        assertEquals(h, n.computeHeight());
+        return h;
+    }
+
+}
@@ -19,7 +19,14 @@ import java.util.*;
  * <p>
  * Gli oggetti GraphNode<L>, cioè i nodi, sono memorizzati in una mappa che
  * associa ad ogni nodo l'indice assegnato in fase di inserimento. Il dominio
- * della mappa rappresenta quindi l'insieme dei nodi.
+ * della mappa rappresenta quindi l'insieme dei nodi. Per ritrovare un nodo a
+ * partire dalla sua etichetta o dal suo indice in tempo costante sono
+ * mantenute anche una mappa che associa ad ogni etichetta l'indice del nodo e
+ * una lista dei nodi in ordine di indice.
+ * <p>
+ * Il numero di archi è mantenuto in un contatore aggiornato da ogni
+ * inserimento e cancellazione, mentre getEdges() restituisce una vista degli
+ * archi che scorre direttamente la matrice senza copiarli in un nuovo insieme.
  * <p>
  * Gli archi sono memorizzati nella matrice di adiacenza. A differenza della
  * rappresentazione standard con matrice di adiacenza, la posizione i,j della
@@ -32,6 +39,13 @@ import java.util.*;
  * Questa classe non supporta i metodi di cancellazione di nodi e archi, ma
  * supporta tutti i metodi che usano indici, utilizzando l'indice assegnato a
  * ogni nodo in fase di inserimento.
+ * <p>
+ * Normalmente la cancellazione di un nodo decrementa gli indici di tutti i
+ * nodi successivi e sposta gli elementi di ogni riga della matrice, con costo
+ * O(n^2). Creando il grafo in modalità "swap" invece l'ultimo nodo viene
+ * spostato nell'indice lasciato libero dal nodo cancellato, insieme alla sua
+ * riga e alla sua colonna, e gli indici degli altri nodi non cambiano: la
+ * cancellazione costa O(n).
  *
  * @author Luca Tesei (template)
  * Implementation: Marinozzi Cristian - cristian.marinozzi@studenti.unicam.it
@@ -48,6 +62,15 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
      */
     protected Map<GraphNode<L>, Integer> nodesIndex;
 
+    /*
+     * Associazione di ogni etichetta con l'indice del nodo corrispondente,
+     * sempre allineata con nodesIndex
+     */
+    protected Map<L, Integer> labelsIndex;
+
+    // Nodi in ordine di indice, nodes.get(i) è il nodo di indice i
+    protected ArrayList<GraphNode<L>> nodes;
+
     /*
      * Matrice di adiacenza, gli elementi sono null o oggetti della classe
      * GraphEdge<L>. L'uso di ArrayList permette alla matrice di aumentare di
@@ -56,12 +79,47 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
      */
     protected ArrayList<ArrayList<GraphEdge<L>>> matrix;
 
+    /*
+     * Se true la cancellazione di un nodo sposta l'ultimo nodo nell'indice
+     * liberato invece di decrementare gli indici dei nodi successivi
+     */
+    private final boolean swapOnRemove;
+
+    // Numero di archi presenti nel grafo
+    private int edgeCount;
+
     /**
      * Crea un grafo vuoto.
      */
     public AdjacencyMatrixUndirectedGraph() {
+        this(false);
+    }
+
+    /**
+     * Crea un grafo vuoto specificando la modalità di cancellazione dei nodi.
+     *
+     * @param swapOnRemove se true, alla cancellazione di un nodo l'ultimo nodo
+     *                     prende il suo indice (costo O(n)); se false gli
+     *                     indici dei nodi successivi vengono decrementati di
+     *                     uno (costo O(n^2))
+     */
+    public AdjacencyMatrixUndirectedGraph(boolean swapOnRemove) {
         this.matrix = new ArrayList<ArrayList<GraphEdge<L>>>();
         this.nodesIndex = new HashMap<GraphNode<L>, Integer>();
+        this.labelsIndex = new HashMap<L, Integer>();
+        this.nodes = new ArrayList<GraphNode<L>>();
+        this.swapOnRemove = swapOnRemove;
+        this.edgeCount = 0;
+    }
+
+    /**
+     * Indica la modalità di cancellazione dei nodi.
+     *
+     * @return true se alla cancellazione di un nodo l'ultimo nodo prende il
+     * suo indice, false se gli indici dei nodi successivi vengono decrementati
+     */
+    public boolean isSwapOnRemove() {
+        return this.swapOnRemove;
     }
 
     @Override
@@ -72,15 +130,18 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
 
     @Override
     public int edgeCount() {
-        // Restituisco l'insieme di tutti gli archi nel grafo
-        return this.getEdges().size();
+        // Il contatore è aggiornato da ogni inserimento e cancellazione
+        return this.edgeCount;
     }
 
     @Override
     public void clear() {
         // Pulisco completamente sia la matrice che l'HashMap
         nodesIndex.clear();
+        labelsIndex.clear();
+        nodes.clear();
         matrix.clear();
+        edgeCount = 0;
     }
 
     @Override
@@ -101,6 +162,8 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
         // A questo punto il nodo non è presente nel grafo e quindi lo aggiungo all'HashMap nella prima posizione libera
         int firstFreePosition = nodesIndex.size();
         nodesIndex.put(node, firstFreePosition);
+        labelsIndex.put(node.getLabel(), firstFreePosition);
+        nodes.add(node);
         // Ora aggiungo il nodo alla matrice iniziando dall'ultima riga
         matrix.add(new ArrayList<GraphEdge<L>>());
         for (int i = 0; i < nodesIndex.size(); i++) {
@@ -130,7 +193,8 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
     /*
      * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
      * cancellare devono essere decrementati di uno dopo la cancellazione del
-     * nodo
+     * nodo, a meno che il grafo sia in modalità swap: in quel caso l'ultimo
+     * nodo prende l'indice del nodo cancellato
      */
     @Override
     public void removeNode(GraphNode<L> node) {
@@ -138,12 +202,21 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
         if (node == null) throw new NullPointerException("Il nodo da rimuovere non deve essere nullo");
         // Se il nodo non è presente nell'HashMap allora lancio l'IllegalArgument
         if (!nodesIndex.containsKey(node)) throw new IllegalArgumentException("Il nodo da rimuovere non è nel grafo");
+        // Gli archi sulla riga del nodo vengono cancellati insieme al nodo
+        for (GraphEdge<L> edge : matrix.get(nodesIndex.get(node))) {
+            if (edge != null) edgeCount--;
+        }
+        if (swapOnRemove) {
+            swapRemoveNode(node);
+            return;
+        }
         // In tutti gli altri casi prendo l'indice del nodo e lo rimuovo per poi aggiornare gli indici
-        int nodeIndex = nodesIndex.get(node);
-        nodesIndex.remove(node);
-        for (Map.Entry<GraphNode<L>, Integer> entryNode : nodesIndex.entrySet()) {
-            if (entryNode.getValue() > nodeIndex)
-                nodesIndex.put(entryNode.getKey(), entryNode.getValue() - 1);
+        int nodeIndex = nodesIndex.remove(node);
+        labelsIndex.remove(node.getLabel());
+        nodes.remove(nodeIndex);
+        for (int i = nodeIndex; i < nodes.size(); i++) {
+            nodesIndex.put(nodes.get(i), i);
+            labelsIndex.put(nodes.get(i).getLabel(), i);
         }
         // Successivamente rimuovo la riga del nodo e rimuovo anche la colonna
         // corrispondente al nodo rimosso per ogni altra riga rimasta
@@ -153,6 +226,37 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
         }
     }
 
+    /*
+     * Sposta l'ultimo nodo, con la sua riga e la sua colonna, nell'indice del
+     * nodo da cancellare e poi elimina l'ultima riga e l'ultima colonna, che
+     * in un ArrayList costa O(1). Il costo complessivo è O(n).
+     */
+    private void swapRemoveNode(GraphNode<L> node) {
+        int nodeIndex = nodesIndex.remove(node);
+        labelsIndex.remove(node.getLabel());
+        int lastIndex = matrix.size() - 1;
+        if (nodeIndex != lastIndex) {
+            // Copio la colonna dell'ultimo nodo nella colonna liberata...
+            for (ArrayList<GraphEdge<L>> row : matrix) {
+                row.set(nodeIndex, row.get(lastIndex));
+            }
+            // ...e la riga dell'ultimo nodo nella riga liberata; la cella
+            // (nodeIndex, nodeIndex) contiene ora l'eventuale cappio dell'ultimo nodo
+            matrix.set(nodeIndex, matrix.get(lastIndex));
+            // Infine aggiorno l'indice dell'ultimo nodo
+            GraphNode<L> lastNode = nodes.get(lastIndex);
+            nodes.set(nodeIndex, lastNode);
+            nodesIndex.put(lastNode, nodeIndex);
+            labelsIndex.put(lastNode.getLabel(), nodeIndex);
+        }
+        nodes.remove(lastIndex);
+        // Rimuovo l'ultima riga e l'ultima colonna
+        matrix.remove(lastIndex);
+        for (ArrayList<GraphEdge<L>> row : matrix) {
+            row.remove(lastIndex);
+        }
+    }
+
     /*
      * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
      * cancellare devono essere decrementati di uno dopo la cancellazione del
@@ -185,20 +289,17 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
     public GraphNode<L> getNode(GraphNode<L> node) {
         // Verifico che il nodo non sia nullo
         if (node == null) throw new NullPointerException("Il nodo in input non deve essere nullo");
-        // se non lo è scorro ogni elemento dell'HashMap e se trovo il nodo in input lo restituisco
-        for (GraphNode<L> checkNode : nodesIndex.keySet()) {
-            if (node.equals(checkNode)) return checkNode;
-        }
-        // se arriviamo qui siginifica che il nodo non è stato trovato e restituisco null
-        return null;
+        // se non lo è cerco il nodo tramite la sua etichetta
+        return getNode(node.getLabel());
     }
 
     @Override
     public GraphNode<L> getNode(L label) {
         // Modifico solamente l'eccezione
         if (label == null) throw new NullPointerException("Il label non deve essere nullo");
-        // Per il resto si occuperà di tutto il getNode
-        return getNode(new GraphNode<L>(label));
+        // Cerco l'indice dell'etichetta, se non c'è il nodo non è nel grafo
+        Integer index = labelsIndex.get(label);
+        return index == null ? null : nodes.get(index);
     }
 
     @Override
@@ -206,13 +307,8 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
         // verifico che l'indice in input sia nel range giusto altrimenti lancio l'eccezione.
         if (i < 0 || i >= nodeCount())
             throw new IndexOutOfBoundsException("L'indice in input è fuori range");
-        // se non è nullo accedo all'HashMap e vado alla ricerca del nodo in input
-        for (Map.Entry<GraphNode<L>, Integer> entryNode : nodesIndex.entrySet()) {
-            //se lo trovo lo restituisco
-            if (entryNode.getValue() == i) return entryNode.getKey();
-        }
-        //altrimenti restituisco null
-        return null;
+        // se l'indice è nel range il nodo è nella lista in posizione i
+        return nodes.get(i);
     }
 
     @Override
@@ -228,8 +324,9 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
     public int getNodeIndexOf(L label) {
         // Modifico solo le eccezioni
         if (label == null) throw new NullPointerException("il label in input non deve essere null");
-        // Per tutto il resto se ne occuperà il metodo getNodeIndexOf
-        return getNodeIndexOf(new GraphNode<L>(label));
+        Integer index = labelsIndex.get(label);
+        if (index == null) throw new IllegalArgumentException("Il nodo deve essere nel grafo");
+        return index;
     }
 
     @Override
@@ -255,6 +352,7 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
         // Arrivato qui so che questo arco non esiste e lo aggiungo
         matrix.get(indexNode1).set(indexNode2, edge);
         matrix.get(indexNode2).set(indexNode1, edge);
+        edgeCount++;
         return true;
     }
 
@@ -325,6 +423,7 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
         int secondIndex = getNodeIndexOf(edge.getNode2());
         matrix.get(firstIndex).set(secondIndex, null);
         matrix.get(secondIndex).set(firstIndex, null);
+        edgeCount--;
     }
 
     @Override
@@ -498,18 +597,87 @@ public class AdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
                 "Operazione non supportata in un grafo non orientato");
     }
 
+    /*
+     * Restituisce una vista non modificabile degli archi del grafo, che scorre
+     * la parte triangolare superiore della matrice ad ogni iterazione. La vista
+     * riflette le modifiche successive del grafo, ma non deve essere scandita
+     * mentre il grafo viene modificato.
+     */
     @Override
     public Set<GraphEdge<L>> getEdges() {
-        // creo una variabile di appoggio per memorizzare l'arco
-        Set<GraphEdge<L>> tmp = new HashSet<GraphEdge<L>>();
-        for (int j = 0; j < matrix.size(); j++) {
-            // Controllo che ogni arco all'interno della matrice sia diverso da null
-            for (ArrayList<GraphEdge<L>> graphEdges : matrix) {
-                //in caso positivo lo aggiungo alla variabile di appoggio e vado avanti
-                if (graphEdges.get(j) != null) tmp.add(graphEdges.get(j));
+        return new EdgesView();
+    }
+
+    /*
+     * Vista degli archi del grafo: la dimensione è il contatore degli archi e
+     * la ricerca usa la matrice, per cui entrambe costano O(1)
+     */
+    private class EdgesView extends AbstractSet<GraphEdge<L>> {
+
+        @Override
+        public int size() {
+            return edgeCount;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof GraphEdge)) return false;
+            @SuppressWarnings("unchecked")
+            GraphEdge<L> edge = (GraphEdge<L>) o;
+            // Un arco con un nodo non presente non può essere nel grafo
+            if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2())) return false;
+            return getEdge(edge) != null;
+        }
+
+        @Override
+        public Iterator<GraphEdge<L>> iterator() {
+            return new EdgesIterator();
+        }
+    }
+
+    /*
+     * Iteratore sugli archi: scorre le colonne j e, per ognuna, le righe
+     * i <= j, in modo da restituire ogni arco una sola volta
+     */
+    private class EdgesIterator implements Iterator<GraphEdge<L>> {
+
+        // Cella (row, column) del prossimo arco da restituire
+        private int row;
+
+        private int column;
+
+        EdgesIterator() {
+            this.row = 0;
+            this.column = 0;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return column < matrix.size();
+        }
+
+        @Override
+        public GraphEdge<L> next() {
+            if (!hasNext()) throw new NoSuchElementException("Non ci sono altri archi");
+            GraphEdge<L> edge = matrix.get(row).get(column);
+            row++;
+            advance();
+            return edge;
+        }
+
+        // Si sposta sulla prima cella non null a partire da (row, column)
+        private void advance() {
+            while (column < matrix.size()) {
+                if (row > column) {
+                    column++;
+                    row = 0;
+                } else if (matrix.get(row).get(column) != null) {
+                    return;
+                } else {
+                    row++;
+                }
             }
         }
-        //infine restituisco tutti gli archi trovati
-        return tmp;
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,652 @@
+package it.unicam.cs.asdl2223.mp3;
+
+import java.util.*;
+
+/**
+ * Classe che implementa un grafo non orientato tramite una matrice di
+ * adiacenza compatta. Ha la stessa interfaccia e lo stesso comportamento di
+ * AdjacencyMatrixUndirectedGraph, ma occupa molta meno memoria, per cui è
+ * adatta a grafi con decine di migliaia di nodi.
+ * <p>
+ * Poiché il grafo non è orientato la matrice è simmetrica e si memorizza solo
+ * la parte triangolare superiore, diagonale compresa (per i cappi). La
+ * presenza dell'arco tra i nodi di indice i &lt;= j è un bit di un array di
+ * long, in posizione j * (j + 1) / 2 + i: le celle sono quindi ordinate per
+ * colonna e l'inserimento di un nuovo nodo aggiunge solo celle in fondo,
+ * senza spostare quelle esistenti. Le celle (k, i) con k &lt;= i sono
+ * contigue, per cui la scansione dei nodi adiacenti a i procede a blocchi di
+ * 64 bit per quella parte della riga.
+ * <p>
+ * I pesi degli archi sono memorizzati in un array di double parallelo ai bit,
+ * che viene creato solo quando viene inserito il primo arco pesato. Gli
+ * oggetti GraphEdge<L> non sono memorizzati: vengono creati solo quando un
+ * metodo deve restituirli, con node1 il nodo di indice minore. Il numero di
+ * archi è mantenuto in un contatore e getEdges() restituisce una vista che
+ * crea gli archi durante l'iterazione.
+ * <p>
+ * I nodi sono indicizzati da 0 a nodeCount() - 1 seguendo l'ordine del loro
+ * inserimento e, come in AdjacencyMatrixUndirectedGraph, dopo la
+ * cancellazione di un nodo gli indici dei nodi successivi vengono
+ * decrementati di uno, oppure, in modalità "swap", l'ultimo nodo prende
+ * l'indice del nodo cancellato e la cancellazione costa O(n).
+ * <p>
+ * Poiché le celle sono indicizzate dagli indici di array Java, un grafo con
+ * archi pesati può contenere al massimo 65535 nodi (2^16 - 1, le cui
+ * 2147450880 celle sono il massimo che entra in un array di double) e un
+ * grafo senza archi pesati al massimo 524287 nodi (2^19 - 1, per l'array dei
+ * bit). Oltre questi limiti l'inserimento di un nodo o del primo arco pesato
+ * lancia IllegalStateException e il grafo resta invariato.
+ *
+ * @param <L> etichette dei nodi del grafo
+ * @author Marinozzi Cristian - cristian.marinozzi@studenti.unicam.it
+ */
+public class CompactAdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
+    /*
+     * Le seguenti variabili istanza sono protected al solo scopo di agevolare
+     * il JUnit testing
+     */
+
+    // capacità iniziale, in nodi, degli array della matrice
+    private static final int INITIAL_CAPACITY = 16;
+
+    // numero massimo di nodi di un grafo senza archi pesati
+    private static final int MAX_NODES = (1 << 19) - 1;
+
+    // numero massimo di nodi di un grafo con archi pesati
+    private static final int MAX_WEIGHTED_NODES = (1 << 16) - 1;
+
+    /*
+     * Insieme dei nodi e associazione di ogni nodo con il proprio indice nella
+     * matrice di adiacenza
+     */
+    protected Map<GraphNode<L>, Integer> nodesIndex;
+
+    /*
+     * Associazione di ogni etichetta con l'indice del nodo corrispondente,
+     * sempre allineata con nodesIndex
+     */
+    protected Map<L, Integer> labelsIndex;
+
+    // Nodi in ordine di indice, nodes.get(i) è il nodo di indice i
+    protected ArrayList<GraphNode<L>> nodes;
+
+    /*
+     * Bit di presenza degli archi della parte triangolare superiore della
+     * matrice, il bit della cella c è il bit c % 64 del long c / 64
+     */
+    protected long[] presence;
+
+    /*
+     * Pesi degli archi, weights[c] è il peso dell'arco della cella c oppure
+     * Double.NaN se l'arco non è pesato. È null finché non viene inserito un
+     * arco pesato.
+     */
+    protected double[] weights;
+
+    // numero di nodi per cui sono dimensionati gli array della matrice
+    private int capacity;
+
+    /*
+     * Se true la cancellazione di un nodo sposta l'ultimo nodo nell'indice
+     * liberato invece di decrementare gli indici dei nodi successivi
+     */
+    private final boolean swapOnRemove;
+
+    // Numero di archi presenti nel grafo
+    private int edgeCount;
+
+    /**
+     * Crea un grafo vuoto.
+     */
+    public CompactAdjacencyMatrixUndirectedGraph() {
+        this(false);
+    }
+
+    /**
+     * Crea un grafo vuoto specificando la modalità di cancellazione dei nodi.
+     *
+     * @param swapOnRemove se true, alla cancellazione di un nodo l'ultimo nodo
+     *                     prende il suo indice (costo O(n)); se false gli
+     *                     indici dei nodi successivi vengono decrementati di
+     *                     uno (costo O(n^2))
+     */
+    public CompactAdjacencyMatrixUndirectedGraph(boolean swapOnRemove) {
+        this.swapOnRemove = swapOnRemove;
+        this.nodesIndex = new HashMap<GraphNode<L>, Integer>();
+        this.labelsIndex = new HashMap<L, Integer>();
+        this.nodes = new ArrayList<GraphNode<L>>();
+        this.capacity = INITIAL_CAPACITY;
+        this.presence = new long[wordsFor(INITIAL_CAPACITY)];
+        this.weights = null;
+    }
+
+    /**
+     * Indica la modalità di cancellazione dei nodi.
+     *
+     * @return true se alla cancellazione di un nodo l'ultimo nodo prende il
+     * suo indice, false se gli indici dei nodi successivi vengono decrementati
+     */
+    public boolean isSwapOnRemove() {
+        return this.swapOnRemove;
+    }
+
+    @Override
+    public int nodeCount() {
+        return this.nodes.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return this.edgeCount;
+    }
+
+    @Override
+    public void clear() {
+        nodesIndex.clear();
+        labelsIndex.clear();
+        nodes.clear();
+        capacity = INITIAL_CAPACITY;
+        presence = new long[wordsFor(INITIAL_CAPACITY)];
+        weights = null;
+        edgeCount = 0;
+    }
+
+    @Override
+    public boolean isDirected() {
+        // Questo grafo è sempre NON orientato
+        return false;
+    }
+
+    /*
+     * Gli indici dei nodi vanno assegnati nell'ordine di inserimento a partire
+     * da zero. Se il grafo ha già il numero massimo di nodi viene lanciata
+     * IllegalStateException
+     */
+    @Override
+    public boolean addNode(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("Il nodo da aggiungere non deve essere nullo");
+        if (nodesIndex.containsKey(node)) return false;
+        // Se serve raddoppio la capacità; le celle della nuova colonna sono già a zero
+        if (nodes.size() == capacity) grow();
+        nodesIndex.put(node, nodes.size());
+        labelsIndex.put(node.getLabel(), nodes.size());
+        nodes.add(node);
+        return true;
+    }
+
+    @Override
+    public boolean addNode(L label) {
+        if (label == null) throw new NullPointerException("il label non deve essere nullo");
+        return addNode(new GraphNode<>(label));
+    }
+
+    /*
+     * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
+     * cancellare devono essere decrementati di uno dopo la cancellazione del
+     * nodo, a meno che il grafo sia in modalità swap: in quel caso l'ultimo
+     * nodo prende l'indice del nodo cancellato
+     */
+    @Override
+    public void removeNode(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("Il nodo da rimuovere non deve essere nullo");
+        if (!nodesIndex.containsKey(node)) throw new IllegalArgumentException("Il nodo da rimuovere non è nel grafo");
+        int k = nodesIndex.get(node);
+        int n = nodeCount();
+        // Gli archi del nodo vengono cancellati insieme al nodo
+        edgeCount -= adjacentIndexesOf(k).size();
+        if (swapOnRemove) {
+            swapRemoveNode(k);
+            return;
+        }
+        // Sposto all'indietro le celle delle colonne successive a k saltando la
+        // riga k. Ogni cella finisce in una posizione minore di quella da cui
+        // proviene, quindi scorrendo in ordine crescente non si sovrascrivono
+        // celle ancora da spostare.
+        for (int j = k + 1; j < n; j++) {
+            for (int i = 0; i <= j; i++) {
+                if (i == k) continue;
+                moveCell(cell(i, j), cell(i > k ? i - 1 : i, j - 1));
+            }
+        }
+        // Azzero le celle rimaste oltre la nuova dimensione
+        for (long c = cellsFor(n - 1); c < cellsFor(n); c++) setBit(c, false);
+        // Aggiorno gli indici dei nodi successivi
+        nodesIndex.remove(node);
+        labelsIndex.remove(node.getLabel());
+        nodes.remove(k);
+        for (int i = k; i < nodes.size(); i++) {
+            nodesIndex.put(nodes.get(i), i);
+            labelsIndex.put(nodes.get(i).getLabel(), i);
+        }
+    }
+
+    /*
+     * Copia riga e colonna dell'ultimo nodo in quelle del nodo di indice k e
+     * poi elimina l'ultima colonna, che occupa le ultime celle. Costa O(n).
+     */
+    private void swapRemoveNode(int k) {
+        int last = nodeCount() - 1;
+        nodesIndex.remove(nodes.get(k));
+        labelsIndex.remove(nodes.get(k).getLabel());
+        if (k != last) {
+            for (int i = 0; i < last; i++) {
+                if (i == k) continue;
+                moveCell(cell(i, last), cell(i, k));
+            }
+            // il cappio dell'ultimo nodo diventa il cappio del nodo k
+            moveCell(cell(last, last), cell(k, k));
+            nodes.set(k, nodes.get(last));
+            nodesIndex.put(nodes.get(k), k);
+            labelsIndex.put(nodes.get(k).getLabel(), k);
+        }
+        // Azzero la colonna dell'ultimo nodo, che occupa le ultime celle
+        for (long c = cellsFor(last); c < cellsFor(last + 1); c++) setBit(c, false);
+        nodes.remove(last);
+    }
+
+    @Override
+    public void removeNode(L label) {
+        if (label == null) throw new NullPointerException("Il label in input non deve essere nullo");
+        removeNode(new GraphNode<>(label));
+    }
+
+    @Override
+    public void removeNode(int i) {
+        if (i < 0 || i >= nodeCount()) throw new IndexOutOfBoundsException("L'indice in input è fuori range");
+        removeNode(nodes.get(i));
+    }
+
+    @Override
+    public GraphNode<L> getNode(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("Il nodo in input non deve essere nullo");
+        Integer index = nodesIndex.get(node);
+        return index == null ? null : nodes.get(index);
+    }
+
+    @Override
+    public GraphNode<L> getNode(L label) {
+        if (label == null) throw new NullPointerException("Il label non deve essere nullo");
+        // Cerco l'indice dell'etichetta senza creare un nodo di appoggio
+        Integer index = labelsIndex.get(label);
+        return index == null ? null : nodes.get(index);
+    }
+
+    @Override
+    public GraphNode<L> getNode(int i) {
+        if (i < 0 || i >= nodeCount()) throw new IndexOutOfBoundsException("L'indice in input è fuori range");
+        return nodes.get(i);
+    }
+
+    @Override
+    public int getNodeIndexOf(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("Il node in input non deve essere null");
+        if (!nodesIndex.containsKey(node)) throw new IllegalArgumentException("Il nodo deve essere nel grafo");
+        return nodesIndex.get(node);
+    }
+
+    @Override
+    public int getNodeIndexOf(L label) {
+        if (label == null) throw new NullPointerException("il label in input non deve essere null");
+        Integer index = labelsIndex.get(label);
+        if (index == null) throw new IllegalArgumentException("Il nodo deve essere nel grafo");
+        return index;
+    }
+
+    /*
+     * Restituisce una vista non modificabile dei nodi, che riflette le
+     * modifiche successive del grafo
+     */
+    @Override
+    public Set<GraphNode<L>> getNodes() {
+        return Collections.unmodifiableSet(nodesIndex.keySet());
+    }
+
+    @Override
+    public boolean addEdge(GraphEdge<L> edge) {
+        if (edge == null) throw new NullPointerException("l'arco in input non deve essere null");
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2())) throw new
+                IllegalArgumentException("i nodi dell'arco devono essere nel grafo");
+        if (isDirected() != edge.isDirected())
+            throw new IllegalArgumentException("Se l'arco è orientato anche il grafo deve esserlo");
+        long c = cell(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2()));
+        // Controllo se l'arco già esiste nel grafo
+        if (getBit(c)) return false;
+        // Creo l'array dei pesi solo al primo arco pesato, prima di modificare
+        // il grafo, dimensionandolo al più per il numero massimo di nodi
+        if (edge.hasWeight() && weights == null) {
+            if (nodeCount() > MAX_WEIGHTED_NODES)
+                throw new IllegalStateException("Un grafo con archi pesati può avere al massimo "
+                        + MAX_WEIGHTED_NODES + " nodi");
+            capacity = Math.min(capacity, MAX_WEIGHTED_NODES);
+            weights = new double[(int) cellsFor(capacity)];
+            Arrays.fill(weights, Double.NaN);
+        }
+        setBit(c, true);
+        edgeCount++;
+        if (weights != null) weights[(int) c] = edge.getWeight();
+        return true;
+    }
+
+    @Override
+    public boolean addEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        if (node1 == null || node2 == null) throw new NullPointerException("i nodi non devono essere null");
+        return addEdge(new GraphEdge<>(node1, node2, isDirected()));
+    }
+
+    @Override
+    public boolean addWeightedEdge(GraphNode<L> node1, GraphNode<L> node2, double weight) {
+        if (node1 == null || node2 == null) throw new NullPointerException("i nodi non devono essere null");
+        return addEdge(new GraphEdge<>(node1, node2, isDirected(), weight));
+    }
+
+    @Override
+    public boolean addEdge(L label1, L label2) {
+        if (label1 == null || label2 == null)
+            throw new NullPointerException("i label non devono essere null");
+        return addEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), isDirected()));
+    }
+
+    @Override
+    public boolean addWeightedEdge(L label1, L label2, double weight) {
+        if (label1 == null || label2 == null)
+            throw new NullPointerException("i label non devono essere null");
+        return addEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), isDirected(), weight));
+    }
+
+    @Override
+    public boolean addEdge(int i, int j) {
+        return addEdge(new GraphEdge<L>(getNode(i), getNode(j), isDirected()));
+    }
+
+    @Override
+    public boolean addWeightedEdge(int i, int j, double weight) {
+        return addEdge(new GraphEdge<L>(getNode(i), getNode(j), isDirected(), weight));
+    }
+
+    @Override
+    public void removeEdge(GraphEdge<L> edge) {
+        if (edge == null) throw new NullPointerException("L'arco in input non deve essere nullo");
+        if (getEdge(edge) == null) throw new IllegalArgumentException("l'arco in input non è nel grafo");
+        setBit(cell(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2())), false);
+        edgeCount--;
+    }
+
+    @Override
+    public void removeEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        if (node1 == null || node2 == null) throw new NullPointerException("i nodi in input non devono essere null");
+        removeEdge(new GraphEdge<L>(node1, node2, isDirected()));
+    }
+
+    @Override
+    public void removeEdge(L label1, L label2) {
+        if (label1 == null || label2 == null)
+            throw new NullPointerException("I label in input non devono essere null");
+        removeEdge(new GraphEdge<L>(new GraphNode<>(label1), new GraphNode<>(label2), isDirected()));
+    }
+
+    @Override
+    public void removeEdge(int i, int j) {
+        removeEdge(new GraphEdge<L>(getNode(i), getNode(j), isDirected()));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphEdge<L> edge) {
+        if (edge == null) throw new NullPointerException("l'arco non deve essere null");
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("i nodi devono essere presenti nel grafo");
+        int i = nodesIndex.get(edge.getNode1());
+        int j = nodesIndex.get(edge.getNode2());
+        return getBit(cell(i, j)) ? materialize(i, j) : null;
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        if (node1 == null || node2 == null) throw new NullPointerException("i nodi in input non devono essere null");
+        return getEdge(new GraphEdge<L>(node1, node2, isDirected()));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(L label1, L label2) {
+        if (label1 == null || label2 == null) throw new NullPointerException("I label in input non devono essere null");
+        return getEdge(new GraphEdge<L>(new GraphNode<L>(label1), new GraphNode<L>(label2), isDirected()));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(int i, int j) {
+        return getEdge(new GraphEdge<L>(getNode(i), getNode(j), isDirected()));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("il nodo non deve essere nullo");
+        if (!nodesIndex.containsKey(node)) throw new IllegalArgumentException("Il nodo non esiste");
+        Set<GraphNode<L>> tmp = new HashSet<GraphNode<L>>();
+        for (int j : adjacentIndexesOf(nodesIndex.get(node))) tmp.add(nodes.get(j));
+        return tmp;
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(L label) {
+        if (label == null) throw new NullPointerException("Il label non deve essere null");
+        return getAdjacentNodesOf(new GraphNode<L>(label));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(int i) {
+        return getAdjacentNodesOf(getNode(i));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("Il nodo in input non deve essere nullo");
+        if (!nodesIndex.containsKey(node)) throw new IllegalArgumentException("Nodo non presente");
+        Set<GraphEdge<L>> tmp = new HashSet<GraphEdge<L>>();
+        int i = nodesIndex.get(node);
+        for (int j : adjacentIndexesOf(i)) tmp.add(materialize(i, j));
+        return tmp;
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(L label) {
+        if (label == null) throw new NullPointerException("Il label in input non deve essere nullo");
+        return getEdgesOf(new GraphNode<L>(label));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(int i) {
+        if (i < 0 || i >= nodeCount()) throw new IndexOutOfBoundsException("L'indice in input è fuori range");
+        return getEdgesOf(nodes.get(i));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    /*
+     * Restituisce una vista non modificabile degli archi del grafo, che scorre
+     * i bit a 1 della matrice ad ogni iterazione. La vista riflette le
+     * modifiche successive del grafo, ma non deve essere scandita mentre il
+     * grafo viene modificato.
+     */
+    @Override
+    public Set<GraphEdge<L>> getEdges() {
+        return new AbstractSet<GraphEdge<L>>() {
+
+            @Override
+            public int size() {
+                return edgeCount;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof GraphEdge)) return false;
+                GraphEdge<?> edge = (GraphEdge<?>) o;
+                Integer i = nodesIndex.get(edge.getNode1());
+                Integer j = nodesIndex.get(edge.getNode2());
+                return i != null && j != null && getBit(cell(i, j));
+            }
+
+            @Override
+            public Iterator<GraphEdge<L>> iterator() {
+                return new EdgesIterator();
+            }
+        };
+    }
+
+    /*
+     * Iteratore sugli archi: scorre le celle a 1 in ordine crescente, cioè
+     * colonna per colonna. Le celle usate dai nodi attuali sono contigue, per
+     * cui basta seguire nextSetBit mantenendo la colonna della cella corrente.
+     */
+    private class EdgesIterator implements Iterator<GraphEdge<L>> {
+
+        // prossima cella a 1, oppure -1 se non ce ne sono altre
+        private long next;
+
+        // colonna della cella next
+        private int column;
+
+        EdgesIterator() {
+            this.column = 0;
+            this.next = nextSetBit(0, cellsFor(nodeCount()));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        @Override
+        public GraphEdge<L> next() {
+            if (next == -1) throw new NoSuchElementException("Non ci sono altri archi");
+            while (cellsFor(column + 1) <= next) column++;
+            GraphEdge<L> edge = materialize((int) (next - cellsFor(column)), column);
+            next = nextSetBit(next + 1, cellsFor(nodeCount()));
+            return edge;
+        }
+    }
+
+    /*
+     * Restituisce gli indici dei nodi adiacenti al nodo di indice i. Le celle
+     * (k, i) con k <= i sono contigue e vengono scandite a blocchi di 64 bit,
+     * le celle (i, j) con j > i sono una per colonna.
+     */
+    private List<Integer> adjacentIndexesOf(int i) {
+        List<Integer> result = new ArrayList<>();
+        long base = cell(0, i);
+        for (long c = nextSetBit(base, base + i + 1); c != -1; c = nextSetBit(c + 1, base + i + 1))
+            result.add((int) (c - base));
+        for (int j = i + 1; j < nodeCount(); j++)
+            if (getBit(cell(i, j))) result.add(j);
+        return result;
+    }
+
+    // Crea l'oggetto arco tra i nodi di indice i e j con il peso memorizzato
+    private GraphEdge<L> materialize(int i, int j) {
+        int low = Math.min(i, j);
+        int high = Math.max(i, j);
+        double weight = weights == null ? Double.NaN : weights[(int) cell(low, high)];
+        return new GraphEdge<L>(nodes.get(low), nodes.get(high), isDirected(), weight);
+    }
+
+    /*
+     * Raddoppia la capacità, senza superare il numero massimo di nodi,
+     * copiando le celle esistenti, che restano nella stessa posizione
+     */
+    private void grow() {
+        int max = weights == null ? MAX_NODES : MAX_WEIGHTED_NODES;
+        if (capacity >= max)
+            throw new IllegalStateException("Il grafo può avere al massimo " + max + " nodi"
+                    + (weights == null ? "" : " perché ha archi pesati"));
+        capacity = (int) Math.min(2L * capacity, max);
+        presence = Arrays.copyOf(presence, wordsFor(capacity));
+        if (weights != null) {
+            int oldLength = weights.length;
+            weights = Arrays.copyOf(weights, (int) cellsFor(capacity));
+            Arrays.fill(weights, oldLength, weights.length, Double.NaN);
+        }
+    }
+
+    // Copia il bit e l'eventuale peso della cella from nella cella to
+    private void moveCell(long from, long to) {
+        setBit(to, getBit(from));
+        if (weights != null) weights[(int) to] = weights[(int) from];
+    }
+
+    // Posizione della cella (i, j) nella parte triangolare superiore
+    private static long cell(int i, int j) {
+        if (i > j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        return (long) j * (j + 1) / 2 + i;
+    }
+
+    // Numero di celle usate da una matrice di n nodi
+    private static long cellsFor(int n) {
+        return (long) n * (n + 1) / 2;
+    }
+
+    // Numero di long necessari per le celle di una matrice di n nodi
+    private static int wordsFor(int n) {
+        return (int) ((cellsFor(n) + 63) >>> 6);
+    }
+
+    private boolean getBit(long c) {
+        return (presence[(int) (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    private void setBit(long c, boolean value) {
+        if (value) presence[(int) (c >>> 6)] |= 1L << c;
+        else presence[(int) (c >>> 6)] &= ~(1L << c);
+    }
+
+    // Restituisce la prima cella a 1 in [from, to) oppure -1 se non ce ne sono
+    private long nextSetBit(long from, long to) {
+        if (from >= to) return -1;
+        int w = (int) (from >>> 6);
+        long word = presence[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                long c = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                return c < to ? c : -1;
+            }
+            w++;
+            if ((long) w << 6 >= to) return -1;
+            word = presence[w];
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package it.unicam.cs.asdl2223.mp3;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Coda con priorità minima "dinamica" realizzata con uno heap binario su
+ * array. Gli elementi della coda sono gli interi da 0 a capacity - 1, che
+ * tipicamente sono gli indici dei nodi di un grafo, e a ognuno di essi è
+ * associata una priorità di tipo double. Per ogni elemento viene mantenuta la
+ * sua posizione corrente nello heap (handle), in questo modo la ricerca di un
+ * elemento costa O(1) e la diminuzione della priorità di un elemento già
+ * presente costa O(log n), come l'inserimento e l'estrazione del minimo.
+ *
+ * @author Marinozzi Cristian - cristian.marinozzi@studenti.unicam.it
+ */
+public class IndexedMinPriorityQueue {
+
+    /*
+     * Heap binario, le posizioni da 0 a size - 1 contengono gli elementi
+     * attualmente presenti nella coda
+     */
+    private final int[] heap;
+
+    /*
+     * handle[i] è la posizione dell'elemento i nello heap, oppure -1 se
+     * l'elemento i non è presente nella coda
+     */
+    private final int[] handle;
+
+    /*
+     * priority[i] è la priorità corrente dell'elemento i, significativa solo
+     * se l'elemento è presente nella coda
+     */
+    private final double[] priority;
+
+    // numero di elementi attualmente presenti nella coda
+    private int size;
+
+    /**
+     * Crea una coda vuota che può contenere gli elementi da 0 a capacity - 1.
+     *
+     * @param capacity
+     *                     il numero di elementi gestibili dalla coda
+     * @throws IllegalArgumentException
+     *                                      se la capacità passata è negativa
+     */
+    public IndexedMinPriorityQueue(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException(
+                    "Capacità negativa: " + capacity);
+        this.heap = new int[capacity];
+        this.handle = new int[capacity];
+        this.priority = new double[capacity];
+        Arrays.fill(this.handle, -1);
+        this.size = 0;
+    }
+
+    /**
+     * Restituisce il numero di elementi attualmente presenti nella coda.
+     *
+     * @return il numero di elementi attualmente presenti nella coda
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Determina se la coda è vuota.
+     *
+     * @return true se la coda è vuota, false altrimenti
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Determina se un elemento è attualmente presente nella coda.
+     *
+     * @param i
+     *              l'elemento da cercare
+     * @return true se l'elemento è presente, false altrimenti
+     * @throws IndexOutOfBoundsException
+     *                                       se l'elemento non è compreso tra 0
+     *                                       e capacity - 1
+     */
+    public boolean contains(int i) {
+        this.checkElement(i);
+        return this.handle[i] != -1;
+    }
+
+    /**
+     * Restituisce la priorità corrente di un elemento presente nella coda.
+     *
+     * @param i
+     *              l'elemento
+     * @return la priorità corrente dell'elemento
+     * @throws NoSuchElementException
+     *                                    se l'elemento non è presente nella
+     *                                    coda
+     */
+    public double getPriority(int i) {
+        if (!this.contains(i))
+            throw new NoSuchElementException(
+                    "Elemento " + i + " non presente nella coda");
+        return this.priority[i];
+    }
+
+    /**
+     * Inserisce un elemento nella coda con una certa priorità.
+     *
+     * @param i
+     *                     l'elemento da inserire
+     * @param priority
+     *                     la priorità dell'elemento
+     * @throws IllegalArgumentException
+     *                                      se l'elemento è già presente nella
+     *                                      coda
+     */
+    public void insert(int i, double priority) {
+        if (this.contains(i))
+            throw new IllegalArgumentException(
+                    "Elemento " + i + " già presente nella coda");
+        this.priority[i] = priority;
+        this.heap[this.size] = i;
+        this.handle[i] = this.size;
+        this.size++;
+        this.heapifyUp(this.size - 1);
+    }
+
+    /**
+     * Restituisce l'elemento con priorità minima senza estrarlo.
+     *
+     * @return l'elemento con priorità minima
+     * @throws NoSuchElementException
+     *                                    se la coda è vuota
+     */
+    public int minimum() {
+        if (this.isEmpty())
+            throw new NoSuchElementException("Coda vuota");
+        return this.heap[0];
+    }
+
+    /**
+     * Estrae l'elemento con priorità minima dalla coda.
+     *
+     * @return l'elemento con priorità minima
+     * @throws NoSuchElementException
+     *                                    se la coda è vuota
+     */
+    public int extractMinimum() {
+        if (this.isEmpty())
+            throw new NoSuchElementException("Coda vuota");
+        int min = this.heap[0];
+        this.size--;
+        // sposto l'ultimo elemento in cima e lo faccio scendere
+        if (this.size > 0) {
+            this.heap[0] = this.heap[this.size];
+            this.handle[this.heap[0]] = 0;
+            this.heapifyDown(0);
+        }
+        this.handle[min] = -1;
+        return min;
+    }
+
+    /**
+     * Diminuisce la priorità di un elemento presente nella coda.
+     *
+     * @param i
+     *                        l'elemento
+     * @param newPriority
+     *                        la nuova priorità, minore o uguale a quella
+     *                        corrente
+     * @throws NoSuchElementException
+     *                                      se l'elemento non è presente nella
+     *                                      coda
+     * @throws IllegalArgumentException
+     *                                      se la nuova priorità è maggiore di
+     *                                      quella corrente
+     */
+    public void decreasePriority(int i, double newPriority) {
+        if (!this.contains(i))
+            throw new NoSuchElementException(
+                    "Elemento " + i + " non presente nella coda");
+        if (newPriority > this.priority[i])
+            throw new IllegalArgumentException(
+                    "La nuova priorità deve essere minore di quella corrente");
+        this.priority[i] = newPriority;
+        this.heapifyUp(this.handle[i]);
+    }
+
+    /**
+     * Svuota la coda.
+     */
+    public void clear() {
+        // basta invalidare gli handle degli elementi ancora presenti
+        for (int k = 0; k < this.size; k++)
+            this.handle[this.heap[k]] = -1;
+        this.size = 0;
+    }
+
+    // fa risalire l'elemento in posizione k finché è minore del padre
+    private void heapifyUp(int k) {
+        int x = this.heap[k];
+        double p = this.priority[x];
+        while (k > 0) {
+            int parent = (k - 1) / 2;
+            int y = this.heap[parent];
+            if (this.priority[y] <= p)
+                break;
+            this.heap[k] = y;
+            this.handle[y] = k;
+            k = parent;
+        }
+        this.heap[k] = x;
+        this.handle[x] = k;
+    }
+
+    // fa scendere l'elemento in posizione k finché è maggiore di un figlio
+    private void heapifyDown(int k) {
+        int x = this.heap[k];
+        double p = this.priority[x];
+        int half = this.size / 2;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < this.size && this.priority[this.heap[right]] < this.priority[this.heap[child]])
+                child = right;
+            int y = this.heap[child];
+            if (p <= this.priority[y])
+                break;
+            this.heap[k] = y;
+            this.handle[y] = k;
+            k = child;
+        }
+        this.heap[k] = x;
+        this.handle[x] = k;
+    }
+
+    private void checkElement(int i) {
+        if (i < 0 || i >= this.handle.length)
+            throw new IndexOutOfBoundsException(
+                    "Elemento " + i + " fuori dall'intervallo della coda");
+    }
+}
@@ -0,0 +1,135 @@
+package it.unicam.cs.asdl2223.mp3;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Classe singoletto che implementa l'algoritmo di Kruskal per trovare un
+ * Minimum Spanning Tree di un grafo non orientato, pesato e con pesi non
+ * negativi. È un'alternativa a PrimMSP adatta ai grafi sparsi: costa
+ * O(m log m) per l'ordinamento degli archi, eseguito in parallelo, più un
+ * costo quasi lineare per la foresta di insiemi disgiunti.
+ * <p>
+ * La foresta di insiemi disgiunti (union-find) è memorizzata in due array di
+ * interi indicizzati dagli indici dei nodi: il padre di ogni nodo e il rango
+ * di ogni radice. Si usano l'unione per rango e la compressione dei cammini
+ * (per dimezzamento) durante la ricerca del rappresentante.
+ * <p>
+ * Se il grafo non è connesso il risultato è una foresta di copertura minima,
+ * cioè un albero di copertura minimo per ogni componente connessa. Su un grafo
+ * connesso il peso totale è lo stesso calcolato da PrimMSP.
+ *
+ * @param <L> tipo delle etichette dei nodi del grafo
+ * @author Marinozzi Cristian - cristian.marinozzi@studenti.unicam.it
+ */
+public class KruskalMSP<L> {
+
+    /*
+     * parent[i] è il padre del nodo i nella foresta di insiemi disgiunti, un
+     * nodo è la radice del proprio insieme se parent[i] == i
+     */
+    private int[] parent;
+
+    // rank[i] è un limite superiore all'altezza dell'albero con radice i
+    private int[] rank;
+
+    // peso totale dell'ultima foresta di copertura minima calcolata
+    private double totalWeight;
+
+    /**
+     * Crea un nuovo algoritmo.
+     */
+    public KruskalMSP() {
+        totalWeight = 0;
+    }
+
+    /**
+     * Utilizza l'algoritmo goloso di Kruskal per trovare una foresta di
+     * copertura minima in un grafo non orientato e pesato, con pesi degli archi
+     * non negativi. Gli archi sono ordinati per peso crescente e ognuno viene
+     * aggiunto al risultato se collega due componenti diverse. I nodi del grafo
+     * non vengono modificati.
+     *
+     * @param g un grafo non orientato, pesato, con pesi non negativi
+     * @return la lista degli archi della foresta di copertura minima, in
+     * ordine di peso non decrescente
+     * @throw NullPointerException se il grafo g è nullo
+     * @throw IllegalArgumentException se il grafo g è orientato, non pesato o
+     * con pesi negativi
+     */
+    public List<GraphEdge<L>> computeMSP(Graph<L> g) {
+        if (g == null) throw new NullPointerException("Grafo null");
+        if (g.isDirected()) throw new IllegalArgumentException("Grafo orientato");
+        //Assegno un indice a ogni nodo e creo un insieme per ognuno
+        Map<GraphNode<L>, Integer> indexes = new HashMap<>();
+        for (GraphNode<L> node : g.getNodes()) indexes.put(node, indexes.size());
+        parent = new int[indexes.size()];
+        rank = new int[indexes.size()];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        //Controllo i pesi degli archi
+        Set<GraphEdge<L>> edgeSet = g.getEdges();
+        for (GraphEdge<L> edge : edgeSet) {
+            if (!edge.hasWeight()) throw new IllegalArgumentException("Arco non pesato");
+            if (edge.getWeight() < 0) throw new IllegalArgumentException("Arco con peso negativo");
+        }
+        //Ordino gli archi per peso con un ordinamento parallelo: lo stream
+        //parallelo ordina una copia degli archi con Arrays.parallelSort
+        List<GraphEdge<L>> edges = edgeSet.parallelStream()
+                .sorted(Comparator.comparingDouble(GraphEdge::getWeight)).collect(Collectors.toList());
+        //Aggiungo un arco solo se collega due insiemi diversi, fermandomi
+        //quando ho già n - 1 archi (la foresta è sicuramente un albero)
+        List<GraphEdge<L>> mspEdges = new ArrayList<>();
+        totalWeight = 0;
+        for (int k = 0; k < edges.size() && mspEdges.size() < parent.length - 1; k++) {
+            GraphEdge<L> edge = edges.get(k);
+            int root1 = find(indexes.get(edge.getNode1()));
+            int root2 = find(indexes.get(edge.getNode2()));
+            if (root1 != root2) {
+                union(root1, root2);
+                mspEdges.add(edge);
+                totalWeight += edge.getWeight();
+            }
+        }
+        return mspEdges;
+    }
+
+    /**
+     * Restituisce il peso totale dell'ultima foresta di copertura minima
+     * calcolata, cioè la somma dei pesi degli archi restituiti dall'ultima
+     * chiamata di computeMSP.
+     *
+     * @return il peso totale dell'ultima foresta calcolata, 0 se non è ancora
+     * stata calcolata nessuna foresta
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    //Restituisce la radice dell'insieme di i, facendo puntare ogni nodo
+    //visitato al nonno (dimezzamento dei cammini)
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    //Unisce gli insiemi con radici root1 e root2 appendendo l'albero di rango
+    //minore sotto la radice dell'altro
+    private void union(int root1, int root2) {
+        if (rank[root1] < rank[root2]) {
+            parent[root1] = root2;
+        } else if (rank[root1] > rank[root2]) {
+            parent[root2] = root1;
+        } else {
+            parent[root2] = root1;
+            rank[root1]++;
+        }
+    }
+}
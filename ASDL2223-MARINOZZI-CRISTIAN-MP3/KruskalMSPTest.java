@@ -0,0 +1,133 @@
+/**
+ *
+ */
+package it.unicam.cs.asdl2223.mp3;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Template: Luca Tesei, Implementation: Collettiva da Esercitazione a
+ *         Casa
+ *
+ */
+class KruskalMSPTest {
+
+    // densità provate, come frazione del numero massimo di archi n(n-1)/2
+    static final double[] DENSITA = { 0.0, 0.05, 0.2, 0.5, 1.0 };
+
+    // tolleranza per il confronto di somme di pesi double
+    static final double EPSILON = 1.0E-9;
+
+    @Test
+    final void testSameWeightAsPrimOnConnectedGraphs() {
+        Random random = new Random(42);
+        for (double densita : DENSITA) {
+            for (int prova = 0; prova < 10; prova++) {
+                int n = 1 + random.nextInt(60);
+                AdjacencyMatrixUndirectedGraph<Integer> g = new AdjacencyMatrixUndirectedGraph<Integer>();
+                for (int i = 0; i < n; i++)
+                    g.addNode(i);
+                addRandomConnectedEdges(g, 0, n, densita, random);
+                PrimMSP<Integer> prim = new PrimMSP<Integer>();
+                KruskalMSP<Integer> kruskal = new KruskalMSP<Integer>();
+                prim.computeMSP(g, g.getNode(0));
+                List<GraphEdge<Integer>> archi = kruskal.computeMSP(g);
+                assertEquals(n - 1, archi.size());
+                assertEquals(prim.getTotalWeight(), kruskal.getTotalWeight(), EPSILON);
+                assertEquals(1, components(g, archi));
+                // gli archi sono restituiti in ordine di peso non decrescente
+                for (int k = 1; k < archi.size(); k++)
+                    assertTrue(archi.get(k - 1).getWeight() <= archi.get(k).getWeight());
+            }
+        }
+    }
+
+    @Test
+    final void testForestOnDisconnectedGraph() {
+        Random random = new Random(7);
+        for (double densita : DENSITA) {
+            // due componenti connesse: i nodi [0, k) e [k, n)
+            int n = 40;
+            int k = 15;
+            AdjacencyMatrixUndirectedGraph<Integer> g = new AdjacencyMatrixUndirectedGraph<Integer>();
+            for (int i = 0; i < n; i++)
+                g.addNode(i);
+            addRandomConnectedEdges(g, 0, k, densita, random);
+            addRandomConnectedEdges(g, k, n, densita, random);
+            KruskalMSP<Integer> kruskal = new KruskalMSP<Integer>();
+            List<GraphEdge<Integer>> archi = kruskal.computeMSP(g);
+            // un albero per componente: n - 2 archi
+            assertEquals(n - 2, archi.size());
+            assertEquals(2, components(g, archi));
+            // il peso è la somma dei pesi degli alberi trovati da Prim
+            // partendo da un nodo di ciascuna componente
+            PrimMSP<Integer> prim = new PrimMSP<Integer>();
+            prim.computeMSP(g, g.getNode(0));
+            double peso = prim.getTotalWeight();
+            prim.computeMSP(g, g.getNode(k));
+            peso += prim.getTotalWeight();
+            assertEquals(peso, kruskal.getTotalWeight(), EPSILON);
+        }
+    }
+
+    @Test
+    final void testExceptions() {
+        KruskalMSP<Integer> kruskal = new KruskalMSP<Integer>();
+        assertThrows(NullPointerException.class, () -> kruskal.computeMSP(null));
+        AdjacencyMatrixUndirectedGraph<Integer> g = new AdjacencyMatrixUndirectedGraph<Integer>();
+        g.addNode(0);
+        g.addNode(1);
+        g.addNode(2);
+        g.addEdge(0, 1);
+        assertThrows(IllegalArgumentException.class, () -> kruskal.computeMSP(g));
+        g.removeEdge(0, 1);
+        g.addWeightedEdge(1, 2, -1);
+        assertThrows(IllegalArgumentException.class, () -> kruskal.computeMSP(g));
+    }
+
+    /*
+     * Aggiunge fra i nodi di indice [from, to) un cammino che li rende
+     * connessi e poi archi casuali con la densità richiesta, tutti con pesi
+     * casuali
+     */
+    static void addRandomConnectedEdges(AdjacencyMatrixUndirectedGraph<Integer> g, int from, int to,
+            double densita, Random random) {
+        for (int i = from + 1; i < to; i++)
+            g.addWeightedEdge(i - 1, i, random.nextDouble() * 100);
+        for (int i = from; i < to; i++)
+            for (int j = i + 2; j < to; j++)
+                if (random.nextDouble() < densita)
+                    g.addWeightedEdge(i, j, random.nextDouble() * 100);
+    }
+
+    /*
+     * Conta le componenti connesse formate dai nodi del grafo con i soli archi
+     * dati, controllando che gli archi non formino cicli
+     */
+    private static int components(AdjacencyMatrixUndirectedGraph<Integer> g, List<GraphEdge<Integer>> archi) {
+        int[] padre = new int[g.nodeCount()];
+        for (int i = 0; i < padre.length; i++)
+            padre[i] = i;
+        int componenti = padre.length;
+        for (GraphEdge<Integer> arco : archi) {
+            int a = find(padre, g.getNodeIndexOf(arco.getNode1()));
+            int b = find(padre, g.getNodeIndexOf(arco.getNode2()));
+            assertNotEquals(a, b, "L'arco " + arco + " chiude un ciclo");
+            padre[a] = b;
+            componenti--;
+        }
+        return componenti;
+    }
+
+    private static int find(int[] padre, int i) {
+        while (padre[i] != i)
+            i = padre[i];
+        return i;
+    }
+
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package it.unicam.cs.asdl2223.mp3;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Benchmark che confronta i tempi di PrimMSP e KruskalMSP su grafi casuali
+ * connessi con lo stesso numero di nodi e densità crescente, per scegliere
+ * l'algoritmo più adatto in base alla densità del grafo. Per ogni densità
+ * vengono eseguite alcune iterazioni di riscaldamento e poi viene stampato il
+ * tempo medio di ciascun algoritmo, insieme al peso trovato, che deve
+ * coincidere.
+ * <p>
+ * Non viene eseguito con gli altri test: si abilita con la proprietà di
+ * sistema {@code -Dmsp.benchmark=true}; il numero di nodi e di ripetizioni si
+ * possono cambiare con {@code -Dmsp.benchmark.nodes} e
+ * {@code -Dmsp.benchmark.repetitions}.
+ *
+ * @author Template: Luca Tesei, Implementation: Collettiva da Esercitazione a
+ *         Casa
+ *
+ */
+class MSPBenchmarkTest {
+
+    // densità provate, come frazione del numero massimo di archi n(n-1)/2
+    static final double[] DENSITA = { 0.01, 0.05, 0.1, 0.25, 0.5, 1.0 };
+
+    static final int RISCALDAMENTO = 3;
+
+    @Test
+    @EnabledIfSystemProperty(named = "msp.benchmark", matches = "true")
+    final void benchmarkPrimVersusKruskal() {
+        int n = Integer.getInteger("msp.benchmark.nodes", 500);
+        int ripetizioni = Integer.getInteger("msp.benchmark.repetitions", 5);
+        Random random = new Random(42);
+        System.out.printf("%8s %10s %14s %14s %14s%n", "densità", "archi", "Prim (ms)", "Kruskal (ms)", "peso");
+        for (double densita : DENSITA) {
+            AdjacencyMatrixUndirectedGraph<Integer> g = new AdjacencyMatrixUndirectedGraph<Integer>();
+            for (int i = 0; i < n; i++)
+                g.addNode(i);
+            KruskalMSPTest.addRandomConnectedEdges(g, 0, n, densita, random);
+            PrimMSP<Integer> prim = new PrimMSP<Integer>();
+            KruskalMSP<Integer> kruskal = new KruskalMSP<Integer>();
+            GraphNode<Integer> sorgente = g.getNode(0);
+            for (int i = 0; i < RISCALDAMENTO; i++) {
+                prim.computeMSP(g, sorgente);
+                kruskal.computeMSP(g);
+            }
+            long tempoPrim = 0;
+            long tempoKruskal = 0;
+            for (int i = 0; i < ripetizioni; i++) {
+                long inizio = System.nanoTime();
+                prim.computeMSP(g, sorgente);
+                tempoPrim += System.nanoTime() - inizio;
+                inizio = System.nanoTime();
+                kruskal.computeMSP(g);
+                tempoKruskal += System.nanoTime() - inizio;
+            }
+            assertEquals(prim.getTotalWeight(), kruskal.getTotalWeight(), 1.0E-6);
+            System.out.printf("%8.2f %10d %14.3f %14.3f %14.3f%n", densita, g.edgeCount(),
+                    tempoPrim / 1e6 / ripetizioni, tempoKruskal / 1e6 / ripetizioni, prim.getTotalWeight());
+        }
+    }
+
+}
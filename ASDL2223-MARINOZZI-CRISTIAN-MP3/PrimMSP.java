@@ -1,18 +1,24 @@
 package it.unicam.cs.asdl2223.mp3;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Classe singoletto che implementa l'algoritmo di Prim per trovare un Minimum
  * Spanning Tree di un grafo non orientato, pesato e con pesi non negativi.
  * <p>
- * L'algoritmo richiede l'uso di una coda di min priorità tra i nodi che può
- * essere realizzata con una semplice ArrayList (non c'è bisogno di ottimizzare
- * le operazioni di inserimento, di estrazione del minimo, o di decremento della
- * priorità).
+ * L'algoritmo usa una coda di min priorità indicizzata sugli indici dei nodi
+ * (IndexedMinPriorityQueue), realizzata con uno heap binario, per cui
+ * l'estrazione del minimo e il decremento della priorità costano O(log n). I
+ * nodi già inseriti nell'albero sono registrati in un array di booleani e per
+ * ogni nodo adiacente l'arco viene letto una sola volta dagli archi del nodo
+ * estratto. Il calcolo può essere eseguito anche su una fotografia CSR del
+ * grafo (CsrGraph), in cui gli archi di ogni nodo sono letti da array contigui.
  * <p>
- * Si possono usare i colori dei nodi per registrare la scoperta e la visita
+ * Si usano i colori dei nodi per registrare la scoperta e la visita
  * effettuata dei nodi.
  *
  * @param <L> tipo delle etichette dei nodi del grafo
@@ -21,19 +27,22 @@ import java.util.List;
  */
 public class PrimMSP<L> {
 
-    private List<GraphNode<L>> priorityQueue;
     /*
-     * In particolare: si deve usare una coda con priorità che può semplicemente
-     * essere realizzata con una List<GraphNode<L>> e si deve mantenere un
-     * insieme dei nodi già visitati
+     * Coda con priorità sugli indici dei nodi, la priorità di un nodo è il
+     * peso dell'arco più leggero che lo collega all'albero corrente
      */
+    private IndexedMinPriorityQueue priorityQueue;
+
+    // peso totale dell'ultimo albero di copertura minimo calcolato
+    private double totalWeight;
 
     /**
-     * Crea un nuovo algoritmo e inizializza la coda di priorità con una coda
-     * vuota.
+     * Crea un nuovo algoritmo. La coda di priorità viene creata a ogni calcolo
+     * con la dimensione del grafo.
      */
     public PrimMSP() {
-        priorityQueue = new ArrayList<>();
+        priorityQueue = null;
+        totalWeight = 0;
     }
 
     /**
@@ -47,60 +56,184 @@ public class PrimMSP<L> {
      * @param s il nodo del grafo g sorgente, cioè da cui parte il calcolo
      *          dell'albero di copertura minimo. Tale nodo sarà la radice
      *          dell'albero di copertura trovato
+     * @return la lista degli archi dell'albero di copertura minimo, nell'ordine
+     * in cui i nodi sono stati aggiunti all'albero
      * @throw NullPointerException se il grafo g o il nodo sorgente s sono nulli
      * @throw IllegalArgumentException se il nodo sorgente s non esiste in g
      * @throw IllegalArgumentException se il grafo g è orientato, non pesato o
      * con pesi negativi
      */
-    public void computeMSP(Graph<L> g, GraphNode<L> s) {
+    public List<GraphEdge<L>> computeMSP(Graph<L> g, GraphNode<L> s) {
         //Come prima cosa verifico che il grafo ed il nodo non siano nulli, poi che il grafo in input
         //contenga il nodo sempre in input ed infine che il grafo sia non orientato.
         //Se una di questa condizioni è vera throwo.
         if (g == null || s == null) throw new NullPointerException("Grafo o nodo null");
-        if (g.getNode(s) == null) throw new IllegalArgumentException("Il nodo non appartiene al grafo");
+        if (!g.getNodes().contains(s)) throw new IllegalArgumentException("Il nodo non appartiene al grafo");
         if (g.isDirected()) throw new IllegalArgumentException("Grafo orientato");
-        //Successivamente imposto il floatingpointDistance, il previous ed il colore di ogni nodo.
+        //Assegno un indice a ogni nodo e imposto il floatingpointDistance, il previous ed il colore di ogni nodo.
+        List<GraphNode<L>> nodes = new ArrayList<>(g.nodeCount());
+        Map<GraphNode<L>, Integer> indexes = new HashMap<>();
         for (GraphNode<L> node : g.getNodes()) {
-            if (!node.equals(s)) {
-                node.setFloatingPointDistance(Double.POSITIVE_INFINITY);
-            } else {
-                //il nodo corrisponde ad s ed imposto il suo floatingPointDistance a 0
-                node.setFloatingPointDistance(0);
-            }
-            priorityQueue.add(node);
+            indexes.put(node, nodes.size());
+            nodes.add(node);
+            node.setFloatingPointDistance(Double.POSITIVE_INFINITY);
             node.setColor(GraphNode.COLOR_WHITE);
             node.setPrevious(null);
         }
-        //Finchè la priorty non è vuota richiamo il getAndRemoveMin (trova il minimo nodo e
-        //lo rimuove per poi restituirlo) e cambio il colore del nodo che restituisce(min)
+        //inTree[i] diventa true quando il nodo i viene estratto ed entra nell'albero,
+        //parentEdge[i] è l'arco più leggero trovato finora che collega il nodo i all'albero
+        boolean[] inTree = new boolean[nodes.size()];
+        List<GraphEdge<L>> parentEdge = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) parentEdge.add(null);
+        List<GraphEdge<L>> mspEdges = new ArrayList<>();
+        totalWeight = 0;
+        priorityQueue = new IndexedMinPriorityQueue(nodes.size());
+        //Nella coda entrano solo i nodi scoperti, a partire dalla sorgente con priorità 0
+        int source = indexes.get(s);
+        nodes.get(source).setFloatingPointDistance(0);
+        nodes.get(source).setColor(GraphNode.COLOR_GREY);
+        priorityQueue.insert(source, 0);
         while (!priorityQueue.isEmpty()) {
-            GraphNode<L> min = getAndRemoveMin();
+            int minIndex = priorityQueue.extractMinimum();
+            GraphNode<L> min = nodes.get(minIndex);
+            inTree[minIndex] = true;
             min.setColor(GraphNode.COLOR_BLACK);
-            //Poi creo un ciclo che oltre a verificare le varie eccezioni
-            //che si potrebbero presentare dovute al peso degli archi...
-            for (GraphNode<L> node : g.getAdjacentNodesOf(min)) {
-                if (!g.getEdge(min, node).hasWeight()) throw new IllegalArgumentException();
-                if (g.getEdge(min, node).getWeight() < 0) throw new IllegalArgumentException();
-                //...verifica se node fa parte della priority queue e se il suo
-                // floatingPointDistance è maggiore del peso dell'arco tra min e node.
-                // Nel caso la condizione risulti vera aggiorno il floatingDistance
-                // con il peso dell'arco e coloro il nodo di nero.
-                if (priorityQueue.contains(node) && g.getEdge(min, node).getWeight() < node.getFloatingPointDistance()) {
-                    node.setFloatingPointDistance(g.getEdge(min, node).getWeight());
+            if (parentEdge.get(minIndex) != null) {
+                mspEdges.add(parentEdge.get(minIndex));
+                totalWeight += parentEdge.get(minIndex).getWeight();
+            }
+            //Per ogni arco di min leggo una sola volta il nodo all'altro estremo e il peso
+            for (GraphEdge<L> edge : g.getEdgesOf(min)) {
+                if (!edge.hasWeight()) throw new IllegalArgumentException("Arco non pesato");
+                double weight = edge.getWeight();
+                if (weight < 0) throw new IllegalArgumentException("Arco con peso negativo");
+                int nodeIndex = indexes.get(min.equals(edge.getNode1()) ? edge.getNode2() : edge.getNode1());
+                //se il nodo non è ancora nell'albero e l'arco è più leggero della sua priorità
+                //aggiorno priorità, previous e arco di collegamento
+                if (!inTree[nodeIndex] && weight < nodes.get(nodeIndex).getFloatingPointDistance()) {
+                    GraphNode<L> node = nodes.get(nodeIndex);
+                    node.setFloatingPointDistance(weight);
                     node.setPrevious(min);
-                    node.setColor(GraphNode.COLOR_BLACK);
+                    parentEdge.set(nodeIndex, edge);
+                    if (priorityQueue.contains(nodeIndex)) {
+                        priorityQueue.decreasePriority(nodeIndex, weight);
+                    } else {
+                        node.setColor(GraphNode.COLOR_GREY);
+                        priorityQueue.insert(nodeIndex, weight);
+                    }
                 }
             }
         }
+        return mspEdges;
     }
 
-    private GraphNode<L> getAndRemoveMin() {
-        GraphNode<L> min = priorityQueue.get(0);
-        for (int i = 1; i < priorityQueue.size(); i++) {
-            if (priorityQueue.get(i).getFloatingPointDistance() < min.getFloatingPointDistance())
-                min = priorityQueue.get(i);
+    /**
+     * Esegue l'algoritmo di Prim su una fotografia CSR di un grafo non
+     * orientato, pesato e con pesi non negativi. Il risultato e le modifiche ai
+     * nodi (previous, colore e floatingPointDistance) sono gli stessi di
+     * {@link #computeMSP(Graph, GraphNode)}, ma gli archi di ogni nodo sono
+     * letti dagli array della fotografia, senza creare insiemi di archi e
+     * senza cercare gli indici dei nodi in una mappa.
+     *
+     * @param g la fotografia di un grafo non orientato, pesato, con pesi non
+     *          negativi
+     * @param s il nodo sorgente, che sarà la radice dell'albero di copertura
+     *          trovato
+     * @return la lista degli archi dell'albero di copertura minimo, nell'ordine
+     * in cui i nodi sono stati aggiunti all'albero
+     * @throw NullPointerException se la fotografia g o il nodo sorgente s sono
+     * nulli
+     * @throw IllegalArgumentException se il nodo sorgente s non esiste in g
+     * @throw IllegalArgumentException se il grafo fotografato è orientato, non
+     * pesato o con pesi negativi
+     */
+    public List<GraphEdge<L>> computeMSP(CsrGraph<L> g, GraphNode<L> s) {
+        if (g == null) throw new NullPointerException("Grafo o nodo null");
+        List<GraphEdge<L>> mspEdges = computeMSP(g, s, new TraversalContext<>(g, true));
+        totalWeight = 0;
+        for (GraphEdge<L> edge : mspEdges) totalWeight += edge.getWeight();
+        return mspEdges;
+    }
+
+    /**
+     * Esegue l'algoritmo di Prim su una fotografia CSR come
+     * {@link #computeMSP(CsrGraph, GraphNode)}, ma scrive colori,
+     * floatingPointDistance e predecessori solo nel contesto passato, senza
+     * modificare i nodi del grafo né lo stato di questo oggetto (il peso
+     * restituito da getTotalWeight non cambia). Più alberi di copertura dello
+     * stesso grafo possono quindi essere calcolati contemporaneamente, anche
+     * dallo stesso oggetto, ognuno con il proprio contesto.
+     *
+     * @param g       la fotografia di un grafo non orientato, pesato, con pesi
+     *                non negativi
+     * @param s       il nodo sorgente, che sarà la radice dell'albero di
+     *                copertura trovato
+     * @param context il contesto in cui scrivere i risultati
+     * @return la lista degli archi dell'albero di copertura minimo, nell'ordine
+     * in cui i nodi sono stati aggiunti all'albero
+     * @throw NullPointerException se la fotografia g, il nodo sorgente s o il
+     * contesto sono nulli
+     * @throw IllegalArgumentException se il nodo sorgente s non esiste in g o
+     * se il contesto non si riferisce a g
+     * @throw IllegalArgumentException se il grafo fotografato è orientato, non
+     * pesato o con pesi negativi
+     */
+    public List<GraphEdge<L>> computeMSP(CsrGraph<L> g, GraphNode<L> s, TraversalContext<L> context) {
+        if (g == null || s == null || context == null) throw new NullPointerException("Grafo, nodo o contesto null");
+        int source = g.getNodeIndexOf(s);
+        if (source == -1) throw new IllegalArgumentException("Il nodo non appartiene al grafo");
+        if (context.getGraph() != g) throw new IllegalArgumentException("Il contesto non si riferisce al grafo");
+        if (g.isDirected()) throw new IllegalArgumentException("Grafo orientato");
+        int n = g.nodeCount();
+        for (int i = 0; i < n; i++) {
+            context.setFloatingPointDistance(i, Double.POSITIVE_INFINITY);
+            context.setColor(i, GraphNode.COLOR_WHITE);
+            context.setPrevious(i, -1);
+        }
+        //parentEdge[i] è la posizione nella fotografia dell'arco che collega i
+        //all'albero; la coda è locale per non condividerla fra più esecuzioni
+        int[] parentEdge = new int[n];
+        Arrays.fill(parentEdge, -1);
+        List<GraphEdge<L>> mspEdges = new ArrayList<>();
+        IndexedMinPriorityQueue queue = new IndexedMinPriorityQueue(n);
+        context.setFloatingPointDistance(source, 0);
+        context.setColor(source, GraphNode.COLOR_GREY);
+        queue.insert(source, 0);
+        while (!queue.isEmpty()) {
+            int minIndex = queue.extractMinimum();
+            context.setColor(minIndex, GraphNode.COLOR_BLACK);
+            if (parentEdge[minIndex] != -1) mspEdges.add(g.getEdge(parentEdge[minIndex]));
+            for (int k = g.firstEdgeOf(minIndex); k < g.endEdgeOf(minIndex); k++) {
+                double weight = g.getEdgeWeight(k);
+                if (Double.isNaN(weight)) throw new IllegalArgumentException("Arco non pesato");
+                if (weight < 0) throw new IllegalArgumentException("Arco con peso negativo");
+                int nodeIndex = g.getEdgeTarget(k);
+                if (context.getColor(nodeIndex) != GraphNode.COLOR_BLACK
+                        && weight < context.getFloatingPointDistance(nodeIndex)) {
+                    context.setFloatingPointDistance(nodeIndex, weight);
+                    context.setPrevious(nodeIndex, minIndex);
+                    parentEdge[nodeIndex] = k;
+                    if (queue.contains(nodeIndex)) {
+                        queue.decreasePriority(nodeIndex, weight);
+                    } else {
+                        context.setColor(nodeIndex, GraphNode.COLOR_GREY);
+                        queue.insert(nodeIndex, weight);
+                    }
+                }
+            }
         }
-        priorityQueue.remove(min);
-        return min;
+        return mspEdges;
+    }
+
+    /**
+     * Restituisce il peso totale dell'ultimo albero di copertura minimo
+     * calcolato, cioè la somma dei pesi degli archi restituiti dall'ultima
+     * chiamata di computeMSP.
+     *
+     * @return il peso totale dell'ultimo albero calcolato, 0 se non è ancora
+     * stato calcolato nessun albero
+     */
+    public double getTotalWeight() {
+        return totalWeight;
     }
 }
@@ -0,0 +1,163 @@
+package it.unicam.cs.asdl2223.mp3;
+
+import java.util.Arrays;
+
+/**
+ * Stato di una singola esecuzione di un algoritmo su una fotografia CSR di un
+ * grafo: colore, distanza in virgola mobile e predecessore di ogni nodo. I
+ * valori sono memorizzati in array di tipi primitivi indicizzati dagli indici
+ * dei nodi nella fotografia, invece che nei campi degli oggetti GraphNode, per
+ * cui più esecuzioni sullo stesso grafo, ognuna con il proprio contesto,
+ * possono avvenire contemporaneamente su thread diversi senza copiare il grafo
+ * e senza sincronizzazione.
+ *
+ * Ogni array viene creato solo quando l'algoritmo scrive per la prima volta il
+ * valore corrispondente; finché non è stato scritto un valore vale il default
+ * indicato nel relativo metodo get.
+ *
+ * Un contesto creato dagli algoritmi che per contratto modificano i nodi del
+ * grafo scrive ogni valore anche nel nodo corrispondente, in modo che i nodi
+ * contengano gli stessi risultati delle versioni che non usano il contesto.
+ *
+ * @param <L> le etichette dei nodi del grafo
+ * @author Marinozzi Cristian - cristian.marinozzi@studenti.unicam.it
+ */
+public class TraversalContext<L> {
+
+    // la fotografia a cui si riferiscono gli indici
+    private final CsrGraph<L> graph;
+
+    // se true ogni valore viene scritto anche nel nodo corrispondente
+    private final boolean writeNodes;
+
+    private int[] colors;
+
+    private double[] floatingPointDistances;
+
+    // indice del predecessore, -1 se il nodo non ha predecessore
+    private int[] previous;
+
+    /**
+     * Crea un contesto vuoto che non modifica i nodi del grafo.
+     *
+     * @param graph la fotografia del grafo su cui verrà eseguito l'algoritmo
+     * @throws NullPointerException se la fotografia passata è nulla
+     */
+    public TraversalContext(CsrGraph<L> graph) {
+        this(graph, false);
+    }
+
+    /*
+     * Crea un contesto vuoto che, se writeNodes è true, scrive ogni valore
+     * anche nei nodi del grafo
+     */
+    TraversalContext(CsrGraph<L> graph, boolean writeNodes) {
+        if (graph == null)
+            throw new NullPointerException("Grafo nullo");
+        this.graph = graph;
+        this.writeNodes = writeNodes;
+    }
+
+    /**
+     * @return la fotografia a cui si riferisce il contesto
+     */
+    public CsrGraph<L> getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * @param i l'indice di un nodo
+     * @return il colore del nodo, {@code GraphNode.COLOR_WHITE} se non è mai
+     *         stato assegnato
+     */
+    public int getColor(int i) {
+        return this.colors == null ? GraphNode.COLOR_WHITE : this.colors[i];
+    }
+
+    /**
+     * @param i l'indice di un nodo
+     * @return la distanza in virgola mobile del nodo,
+     *         {@code Double.POSITIVE_INFINITY} se non è mai stata assegnata
+     */
+    public double getFloatingPointDistance(int i) {
+        return this.floatingPointDistances == null ? Double.POSITIVE_INFINITY : this.floatingPointDistances[i];
+    }
+
+    /**
+     * @param i l'indice di un nodo
+     * @return l'indice del predecessore del nodo, -1 se il nodo non ha
+     *         predecessore
+     */
+    public int getPreviousIndex(int i) {
+        return this.previous == null ? -1 : this.previous[i];
+    }
+
+    /**
+     * @param node un nodo del grafo
+     * @return il colore del nodo in questo contesto
+     * @throws NullPointerException     se il nodo passato è nullo
+     * @throws IllegalArgumentException se il nodo non appartiene al grafo
+     */
+    public int getColor(GraphNode<L> node) {
+        return this.getColor(this.indexOf(node));
+    }
+
+    /**
+     * @param node un nodo del grafo
+     * @return la distanza in virgola mobile del nodo in questo contesto
+     * @throws NullPointerException     se il nodo passato è nullo
+     * @throws IllegalArgumentException se il nodo non appartiene al grafo
+     */
+    public double getFloatingPointDistance(GraphNode<L> node) {
+        return this.getFloatingPointDistance(this.indexOf(node));
+    }
+
+    /**
+     * @param node un nodo del grafo
+     * @return il predecessore del nodo in questo contesto, null se il nodo non
+     *         ha predecessore
+     * @throws NullPointerException     se il nodo passato è nullo
+     * @throws IllegalArgumentException se il nodo non appartiene al grafo
+     */
+    public GraphNode<L> getPrevious(GraphNode<L> node) {
+        int p = this.getPreviousIndex(this.indexOf(node));
+        return p == -1 ? null : this.graph.getNodeAtIndex(p);
+    }
+
+    void setColor(int i, int color) {
+        if (this.colors == null) {
+            this.colors = new int[this.graph.nodeCount()];
+            Arrays.fill(this.colors, GraphNode.COLOR_WHITE);
+        }
+        this.colors[i] = color;
+        if (this.writeNodes)
+            this.graph.getNodeAtIndex(i).setColor(color);
+    }
+
+    void setFloatingPointDistance(int i, double distance) {
+        if (this.floatingPointDistances == null) {
+            this.floatingPointDistances = new double[this.graph.nodeCount()];
+            Arrays.fill(this.floatingPointDistances, Double.POSITIVE_INFINITY);
+        }
+        this.floatingPointDistances[i] = distance;
+        if (this.writeNodes)
+            this.graph.getNodeAtIndex(i).setFloatingPointDistance(distance);
+    }
+
+    void setPrevious(int i, int p) {
+        if (this.previous == null) {
+            this.previous = new int[this.graph.nodeCount()];
+            Arrays.fill(this.previous, -1);
+        }
+        this.previous[i] = p;
+        if (this.writeNodes)
+            this.graph.getNodeAtIndex(i).setPrevious(p == -1 ? null : this.graph.getNodeAtIndex(p));
+    }
+
+    private int indexOf(GraphNode<L> node) {
+        int i = this.graph.getNodeIndexOf(node);
+        if (i == -1)
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo");
+        return i;
+    }
+}